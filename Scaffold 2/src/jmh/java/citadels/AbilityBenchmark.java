@@ -0,0 +1,58 @@
+package citadels;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Measures the ability of each {@link CharacterRole}. Every invocation starts from a fresh
+ * five player game where each city has up to three districts, since abilities change gold, hands and cities.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class AbilityBenchmark {
+    /** Every {@link CharacterRole} is benchmarked when no values are given. */
+    @Param
+    public CharacterRole role;
+
+    private GameEngine engine;
+    private Player player;
+    private CharacterCard character;
+
+    @Setup(Level.Invocation)
+    public void setUp() {
+        engine = Fixtures.newGame(5);
+        List<Player> players = engine.getPlayers();
+        List<CharacterCard> characters = CharacterCard.getCharacters();
+        int next = 0;
+        for (Player p : players) {
+            CharacterCard assigned = characters.get(next++);
+            if (assigned.getRole() == role) {
+                assigned = characters.get(next++);
+            }
+            p.assignCharacter(assigned);
+            p.addGold(20);
+            for (int i = 0; i < 3; i++) {
+                DistrictCard card = engine.getDeck().draw();
+                if (card == null) {
+                    break;
+                }
+                p.drawCard(card);
+                if (!p.hasBuilt(card.getName())) {
+                    p.buildDistrict(card);
+                }
+            }
+        }
+        player = players.get(0);
+        character = CharacterCard.of(role);
+        player.assignCharacter(character);
+    }
+
+    @Benchmark
+    public Player useAbility() {
+        character.useAbility(engine, player, 0);
+        return player;
+    }
+}
@@ -0,0 +1,29 @@
+package citadels;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Measures one computer turn: collecting resources, building and using the ability.
+ * Each invocation starts from a fresh game waiting on the first character's turn.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class ComputerBenchmark {
+    private GameEngine engine;
+    private Computer computer;
+
+    @Setup(Level.Invocation)
+    public void setUp() {
+        engine = Fixtures.gameAtFirstTurn(5);
+        computer = new Computer(engine);
+    }
+
+    @Benchmark
+    public GameEngine takeTurn() {
+        computer.takeTurn(engine.getCurrentPlayer());
+        return engine;
+    }
+}
@@ -0,0 +1,50 @@
+package citadels;
+
+import java.io.ByteArrayInputStream;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Measures loading, shuffling and drawing from the district deck.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class DeckBenchmark {
+    private Deck deck;
+
+    @Setup
+    public void setUp() {
+        deck = Fixtures.newDeck();
+    }
+
+    @Benchmark
+    public Deck loadFromStream() {
+        Deck loaded = new Deck();
+        loaded.loadFromStream(new ByteArrayInputStream(Fixtures.CARDS_TSV));
+        return loaded;
+    }
+
+    @Benchmark
+    public Deck loadFromCatalog() {
+        Deck loaded = new Deck();
+        loaded.loadFromCatalog(DistrictCatalog.standard());
+        return loaded;
+    }
+
+    @Benchmark
+    public void shuffle() {
+        deck.shuffle();
+    }
+
+    /**
+     * Draws the top card and puts it back at the bottom, so the deck keeps its size between calls.
+     */
+    @Benchmark
+    public DistrictCard draw() {
+        DistrictCard card = deck.draw();
+        deck.addToBottom(card);
+        return card;
+    }
+}
@@ -0,0 +1,32 @@
+package citadels;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Measures sampling a hidden-information world from one seat's view of a game in its first turn.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class DeterminizerBenchmark {
+    @Param({"4", "7"})
+    public int players;
+
+    private GameState state;
+    private Determinizer determinizer;
+    private final SplittableRandom random = new SplittableRandom(1);
+
+    @Setup
+    public void setUp() {
+        state = GameState.of(Fixtures.gameAtFirstTurn(players));
+        determinizer = new Determinizer(DistrictCatalog.standard());
+    }
+
+    @Benchmark
+    public GameState sample() {
+        return determinizer.sample(state, state.getCurrentSeat(), random);
+    }
+}
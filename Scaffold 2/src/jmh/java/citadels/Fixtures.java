@@ -0,0 +1,70 @@
+package citadels;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Shared setup for the benchmarks: the cards.tsv bytes, fresh decks and players,
+ * and games advanced to a known point.
+ */
+final class Fixtures {
+    /** The bundled cards.tsv, read once so benchmarks do not measure resource lookups. */
+    static final byte[] CARDS_TSV = readCards();
+
+    private Fixtures() {
+    }
+
+    private static byte[] readCards() {
+        try (InputStream in = Fixtures.class.getClassLoader().getResourceAsStream("cards.tsv")) {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            in.transferTo(bytes);
+            return bytes.toByteArray();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Returns a shuffled deck with every district card.
+     */
+    static Deck newDeck() {
+        Deck deck = new Deck();
+        deck.loadFromCatalog(DistrictCatalog.standard());
+        return deck;
+    }
+
+    /**
+     * Returns the given number of players with the starting gold.
+     */
+    static List<Player> newPlayers(int count) {
+        List<Player> players = new ArrayList<>(count);
+        for (int i = 1; i <= count; i++) {
+            players.add(new Player("Player " + i));
+        }
+        return players;
+    }
+
+    /**
+     * Returns a silent game of computer players that has been dealt and is in its first selection phase.
+     */
+    static GameEngine newGame(int numPlayers) {
+        GameEngine engine = new GameEngine(newDeck(), newPlayers(numPlayers), null);
+        engine.start();
+        return engine;
+    }
+
+    /**
+     * Returns a silent game whose first draft is complete, waiting on the first character's turn.
+     */
+    static GameEngine gameAtFirstTurn(int numPlayers) {
+        GameEngine engine = newGame(numPlayers);
+        while (engine.getPhase() == GameEngine.Phase.SELECT_CHARACTER) {
+            engine.step(Action.selectCharacter(0));
+        }
+        return engine;
+    }
+}
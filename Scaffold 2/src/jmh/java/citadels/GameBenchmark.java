@@ -0,0 +1,23 @@
+package citadels;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Measures a complete game between computer players, including loading the deck.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class GameBenchmark {
+    @Param({"4", "7"})
+    public int numPlayers;
+
+    @Benchmark
+    public GameEngine fullGame() {
+        GameEngine engine = Fixtures.newGame(numPlayers);
+        engine.runToEnd();
+        return engine;
+    }
+}
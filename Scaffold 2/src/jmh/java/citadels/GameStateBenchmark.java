@@ -0,0 +1,35 @@
+package citadels;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Measures capturing a game state and branching from it with {@link GameState#apply(Action)}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class GameStateBenchmark {
+    private GameEngine game;
+    private GameState state;
+
+    @Setup
+    public void setUp() {
+        game = Fixtures.gameAtFirstTurn(5);
+        state = GameState.of(game);
+    }
+
+    @Benchmark
+    public GameState capture() {
+        return GameState.of(game);
+    }
+
+    /**
+     * Branches from the same state each time, so the scratch engine reloads the seat the last branch changed on every call.
+     */
+    @Benchmark
+    public GameState branch() {
+        return state.apply(state.getLegalActions().get(0));
+    }
+}
@@ -0,0 +1,39 @@
+package citadels;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Measures final scoring of a completed city with every colour and the purple bonus districts.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class ScoreBenchmark {
+    private List<Player> players;
+    private Player player;
+
+    @Setup
+    public void setUp() {
+        players = Fixtures.newPlayers(4);
+        player = players.get(0);
+        player.addGold(30);
+        String[][] city = {
+            {"Watchtower", "red", "1"}, {"Manor", "yellow", "3"}, {"Tavern", "green", "1"},
+            {"Temple", "blue", "1"}, {"University", "purple", "6"}, {"Wishing Well", "purple", "5"},
+            {"Imperial Treasury", "purple", "4"}, {"Park", "purple", "6"}
+        };
+        for (String[] district : city) {
+            DistrictCard card = new DistrictCard(district[0], district[1], Integer.parseInt(district[2]), "");
+            player.drawCard(card);
+            player.buildDistrict(card);
+        }
+    }
+
+    @Benchmark
+    public int calculateScore() {
+        return App.calculateScore(players, player, true);
+    }
+}
@@ -0,0 +1,40 @@
+package citadels;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Measures writing and reading a binary snapshot of a game in its first turn.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class SnapshotBenchmark {
+    private GameEngine game;
+    private GameEngine target;
+    private final ByteBuffer buffer = ByteBuffer.allocate(1 << 14);
+
+    @Setup
+    public void setUp() {
+        game = Fixtures.gameAtFirstTurn(5);
+        target = Fixtures.newGame(5);
+    }
+
+    @Benchmark
+    public int write() {
+        buffer.clear();
+        GameSnapshot.write(game, buffer);
+        return buffer.position();
+    }
+
+    @Benchmark
+    public GameEngine writeAndRead() {
+        buffer.clear();
+        GameSnapshot.write(game, buffer);
+        buffer.flip();
+        GameSnapshot.read(target, buffer, DistrictCatalog.standard());
+        return target;
+    }
+}
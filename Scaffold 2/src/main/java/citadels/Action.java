@@ -0,0 +1,115 @@
+package citadels;
+
+/**
+ * A single decision made by a seat in the game, applied with {@link GameEngine#step(Action)}.
+ * Actions that need an argument carry an index, such as a position in the draft choices,
+ * a position in the hand, or a position in the ability target list.
+ */
+public final class Action {
+
+    /**
+     * The kinds of decisions a seat can make.
+     */
+    public enum Type {
+        SELECT_CHARACTER,
+        TAKE_GOLD,
+        DRAW_CARDS,
+        KEEP_CARD,
+        BUILD,
+        USE_ABILITY,
+        END_TURN
+    }
+
+    private static final Action TAKE_GOLD = new Action(Type.TAKE_GOLD, -1);
+    private static final Action DRAW_CARDS = new Action(Type.DRAW_CARDS, -1);
+    private static final Action END_TURN = new Action(Type.END_TURN, -1);
+
+    private final Type type;
+    private final int index;
+
+    private Action(Type type, int index) {
+        this.type = type;
+        this.index = index;
+    }
+
+    /**
+     * Picks a character from the current draft choices.
+     * @param choice the index into {@link GameEngine#getDraftChoices()}
+     * @return the action
+     */
+    public static Action selectCharacter(int choice) {
+        return new Action(Type.SELECT_CHARACTER, choice);
+    }
+
+    /**
+     * Collects 2 gold at the start of the turn.
+     * @return the action
+     */
+    public static Action takeGold() {
+        return TAKE_GOLD;
+    }
+
+    /**
+     * Draws two cards at the start of the turn, one of which is kept.
+     * @return the action
+     */
+    public static Action drawCards() {
+        return DRAW_CARDS;
+    }
+
+    /**
+     * Keeps one of the two drawn cards.
+     * @param choice 0 for the first card, 1 for the second
+     * @return the action
+     */
+    public static Action keepCard(int choice) {
+        return new Action(Type.KEEP_CARD, choice);
+    }
+
+    /**
+     * Builds a district from the hand.
+     * @param handIndex the position of the card in the hand
+     * @return the action
+     */
+    public static Action build(int handIndex) {
+        return new Action(Type.BUILD, handIndex);
+    }
+
+    /**
+     * Uses the character's ability.
+     * @param target the index into {@link GameEngine#getAbilityTargets()}, ignored by abilities without a target
+     * @return the action
+     */
+    public static Action useAbility(int target) {
+        return new Action(Type.USE_ABILITY, target);
+    }
+
+    /**
+     * Ends the current turn.
+     * @return the action
+     */
+    public static Action endTurn() {
+        return END_TURN;
+    }
+
+    /**
+     * Returns the kind of this action.
+     * @return the action type
+     */
+    public Type getType() {
+        return type;
+    }
+
+    /**
+     * Returns the argument of this action, or -1 if the action takes none.
+     * @return the action index
+     */
+    public int getIndex() {
+        return index;
+    }
+
+    @Override
+    public String toString() {
+        return index < 0 ? type.toString() : type + " " + index;
+    }
+}
@@ -0,0 +1,55 @@
+package citadels;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+
+/**
+ * A pool of equally sized direct byte buffers, so connections borrow buffers only while they
+ * have bytes to read or write instead of each holding its own. Direct buffers are costly to
+ * allocate and free, and the pool keeps the ones it hands out in circulation.
+ * <p>
+ * The pool is not thread safe; it belongs to the thread of one selector.
+ */
+final class BufferPool {
+    private final int bufferSize;
+    private final int maxPooled;
+    private final ArrayDeque<ByteBuffer> free = new ArrayDeque<>();
+
+    /**
+     * Creates an empty pool.
+     * @param bufferSize the capacity of every buffer, in bytes
+     * @param maxPooled  the most idle buffers kept for reuse
+     */
+    BufferPool(int bufferSize, int maxPooled) {
+        this.bufferSize = bufferSize;
+        this.maxPooled = maxPooled;
+    }
+
+    /**
+     * Returns an empty buffer, reusing an idle one if there is one.
+     * @return a cleared buffer
+     */
+    ByteBuffer acquire() {
+        ByteBuffer buffer = free.pollFirst();
+        return buffer != null ? buffer : ByteBuffer.allocateDirect(bufferSize);
+    }
+
+    /**
+     * Returns a buffer to the pool. The buffer must not be used afterwards.
+     * @param buffer a buffer from {@link #acquire()}
+     */
+    void release(ByteBuffer buffer) {
+        if (free.size() < maxPooled) {
+            buffer.clear();
+            free.addFirst(buffer);
+        }
+    }
+
+    /**
+     * Returns the capacity of the pool's buffers.
+     * @return the buffer size in bytes
+     */
+    int getBufferSize() {
+        return bufferSize;
+    }
+}
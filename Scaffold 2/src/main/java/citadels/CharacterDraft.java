@@ -0,0 +1,227 @@
+package citadels;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * The character draft of a round. Dealing removes one character face down and, with four or
+ * five players, one or two more face up, which may never include the King. The players then
+ * pick from what is left in selection order; with seven players the last player chooses
+ * between the one remaining character and the face down card.
+ * <p>
+ * The removals are sampled directly: the face up cards are drawn from the characters other than
+ * the King, then the face down card and the order of the pool from everything left, in a single
+ * partial shuffle. This gives the same distribution as reshuffling until the King is not face up,
+ * without ever throwing a deal away. The draft keeps its lists between rounds, so dealing
+ * allocates nothing.
+ * <p>
+ * The {@link GameEngine} runs the draft one pick at a time and asks each seat's
+ * {@link PickPolicy} for its pick; {@link #run} plays a whole draft on its own.
+ */
+public final class CharacterDraft {
+    /**
+     * Chooses a character for a player during the draft.
+     */
+    public interface PickPolicy {
+        /**
+         * Picks one of the characters on offer.
+         * @param player  the player picking
+         * @param choices the characters the player can pick from
+         * @return the index of the chosen character in the choices
+         */
+        int pick(Player player, List<CharacterCard> choices);
+    }
+
+    /** The characters being dealt, with the King moved to the last place before each deal. */
+    private final CharacterCard[] cards = new CharacterCard[CharacterRole.values().length];
+    private final List<CharacterCard> pool = new ArrayList<>(cards.length);
+    private final List<CharacterCard> poolView = Collections.unmodifiableList(pool);
+    private final List<CharacterCard> faceUp = new ArrayList<>(2);
+    private final List<CharacterCard> faceUpView = Collections.unmodifiableList(faceUp);
+    private final List<CharacterCard> lastChoices = new ArrayList<>(2);
+    private final List<CharacterCard> lastChoicesView = Collections.unmodifiableList(lastChoices);
+    private CharacterCard hidden;
+    private int numPlayers;
+
+    /**
+     * Returns how many characters are removed face up for a number of players.
+     * @param numPlayers the number of players
+     * @return 2 with four players, 1 with five and 0 otherwise
+     */
+    public static int faceUpCount(int numPlayers) {
+        if (numPlayers == 4) {
+            return 2;
+        } else if (numPlayers == 5) {
+            return 1;
+        }
+        return 0;
+    }
+
+    /**
+     * Deals a new draft: removes the face down and face up characters and shuffles the rest into the pool.
+     * @param numPlayers the number of players, between 4 and 7
+     * @param random     the source of the deal
+     */
+    public void deal(int numPlayers, SplittableRandom random) {
+        this.numPlayers = numPlayers;
+        int king = cards.length - 1;
+        int n = 0;
+        for (CharacterCard card : CharacterCard.getCharacters()) {
+            if (card.getRole() != CharacterRole.KING) {
+                cards[n++] = card;
+            }
+        }
+        cards[king] = CharacterCard.of(CharacterRole.KING);
+
+        // Fisher-Yates from the front, where the face up draws leave out the King's last place
+        int faceUpCount = faceUpCount(numPlayers);
+        faceUp.clear();
+        for (int i = 0; i < faceUpCount; i++) {
+            swap(i, i + random.nextInt(king - i));
+            faceUp.add(cards[i]);
+        }
+        for (int i = faceUpCount; i < king; i++) {
+            swap(i, i + random.nextInt(cards.length - i));
+        }
+        hidden = cards[faceUpCount];
+        pool.clear();
+        for (int i = faceUpCount + 1; i < cards.length; i++) {
+            pool.add(cards[i]);
+        }
+    }
+
+    private void swap(int i, int j) {
+        CharacterCard swap = cards[i];
+        cards[i] = cards[j];
+        cards[j] = swap;
+    }
+
+    /**
+     * Returns the characters the player making a pick can choose from.
+     * @param pick the number of picks already made this round
+     * @return the choices, which change as the draft goes on
+     */
+    public List<CharacterCard> getChoices(int pick) {
+        if (numPlayers == 7 && pick == numPlayers - 1) {
+            lastChoices.clear();
+            lastChoices.add(pool.get(0));
+            lastChoices.add(hidden);
+            return lastChoicesView;
+        }
+        return poolView;
+    }
+
+    /**
+     * Takes a character out of the draft for the player making a pick.
+     * @param pick   the number of picks already made this round
+     * @param choice the index of the character in {@link #getChoices(int)}
+     * @return the chosen character
+     * @throws IndexOutOfBoundsException if the choice is not on offer
+     */
+    public CharacterCard take(int pick, int choice) {
+        CharacterCard chosen = getChoices(pick).get(choice);
+        pool.remove(chosen);
+        return chosen;
+    }
+
+    /**
+     * Deals a draft and plays all of its picks without a game, starting from the crowned seat.
+     * Nothing is written and the players' characters are left alone.
+     * @param players     the players in seat order
+     * @param crownedSeat the seat that picks first
+     * @param policies    the policy picking for each seat
+     * @param random      the source of the deal
+     * @return the character picked by each seat, indexed by seat
+     */
+    public CharacterCard[] run(List<Player> players, int crownedSeat, PickPolicy[] policies, SplittableRandom random) {
+        int n = players.size();
+        deal(n, random);
+        CharacterCard[] picked = new CharacterCard[n];
+        for (int i = 0; i < n; i++) {
+            int seat = (crownedSeat + i) % n;
+            picked[seat] = take(i, policies[seat].pick(players.get(seat), getChoices(i)));
+        }
+        clear();
+        return picked;
+    }
+
+    /**
+     * Returns every character still in the draft, including the one only offered on the last pick
+     * with seven players.
+     * @return the pool, which changes as the draft goes on
+     */
+    public List<CharacterCard> getPool() {
+        return poolView;
+    }
+
+    /**
+     * Returns the characters removed face up when the draft was dealt.
+     * @return the face up characters, which the King is never among
+     */
+    public List<CharacterCard> getFaceUp() {
+        return faceUpView;
+    }
+
+    /**
+     * Returns the character removed face down.
+     * @return the hidden character, or null if no draft is dealt
+     */
+    public CharacterCard getHidden() {
+        return hidden;
+    }
+
+    /**
+     * Empties the draft.
+     */
+    void clear() {
+        pool.clear();
+        faceUp.clear();
+        lastChoices.clear();
+        hidden = null;
+    }
+
+    /**
+     * Ends the picks: empties the pool and puts the face down character away, leaving the face up
+     * characters on the table for the rest of the round.
+     */
+    void endPicks() {
+        pool.clear();
+        lastChoices.clear();
+        hidden = null;
+    }
+
+    /**
+     * Empties the draft so a saved one can be put back with {@link #add} and {@link #setHidden}.
+     * @param numPlayers the number of players
+     */
+    void restore(int numPlayers) {
+        clear();
+        this.numPlayers = numPlayers;
+    }
+
+    /**
+     * Puts a saved character back into the pool, after the ones already there.
+     * @param card the character
+     */
+    void add(CharacterCard card) {
+        pool.add(card);
+    }
+
+    /**
+     * Puts a saved face up character back on the table.
+     * @param card the character
+     */
+    void addFaceUp(CharacterCard card) {
+        faceUp.add(card);
+    }
+
+    /**
+     * Puts back the saved face down character.
+     * @param card the character, or null
+     */
+    void setHidden(CharacterCard card) {
+        hidden = card;
+    }
+}
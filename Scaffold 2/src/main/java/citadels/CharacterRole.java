@@ -0,0 +1,530 @@
+package citadels;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The eight characters of the game in turn order. Each role carries its turn order, its ability
+ * description and its own implementation of the ability, so using an ability is a single virtual call.
+ */
+public enum CharacterRole {
+    ASSASSIN(1, "Assassin", "Kill a character.") {
+        @Override
+        public boolean usesAbilityFirst() {
+            return true;
+        }
+
+        @Override
+        public List<String> getAbilityTargets(GameEngine game, Player player) {
+            List<String> targets = new ArrayList<>(ASSASSIN_TARGETS.length);
+            for (CharacterRole target : ASSASSIN_TARGETS) {
+                targets.add(target.getDisplayName());
+            }
+            return targets;
+        }
+
+        @Override
+        public int getAbilityTargetCount(GameEngine game, Player player) {
+            return ASSASSIN_TARGETS.length;
+        }
+
+        @Override
+        public int getAbilityTargetKey(GameEngine game, Player player, int target) {
+            return ASSASSIN_TARGETS[target].turnOrder;
+        }
+
+        @Override
+        public void useAbility(GameEngine game, Player player, int target) {
+            if (game.isLogging()) {
+                game.log("[ACTION] " + player.getName() + " (Assassin) picks a character to kill.");
+            }
+
+            if (target >= 0 && target < ASSASSIN_TARGETS.length) {
+                CharacterRole chosen = ASSASSIN_TARGETS[target];
+                if (game.isLogging()) {
+                    game.log(player.getName() + " assassinates the " + chosen.getDisplayName() + ". They will skip their turn.");
+                }
+                markAssassinated(game, chosen);
+            }
+        }
+    },
+
+    THIEF(2, "Thief", "Steal gold from a character.") {
+        @Override
+        public boolean usesAbilityFirst() {
+            return true;
+        }
+
+        @Override
+        public List<String> getAbilityTargets(GameEngine game, Player player) {
+            List<String> targets = new ArrayList<>();
+            for (Player target : collectThiefTargets(player, game.getPlayers())) {
+                targets.add(target.getCharacter().getName());
+            }
+            return targets;
+        }
+
+        @Override
+        public int getAbilityTargetCount(GameEngine game, Player player) {
+            int count = 0;
+            for (Player target : game.getPlayers()) {
+                if (isThiefTarget(player, target)) {
+                    count++;
+                }
+            }
+            return count;
+        }
+
+        @Override
+        public int getAbilityTargetKey(GameEngine game, Player player, int target) {
+            // The gold is taken from a seat, whichever character it turns out to hold
+            List<Player> players = game.getPlayers();
+            int remaining = target;
+            for (int seat = 0; seat < players.size(); seat++) {
+                if (isThiefTarget(player, players.get(seat)) && remaining-- == 0) {
+                    return seat;
+                }
+            }
+            throw new IndexOutOfBoundsException("No target " + target);
+        }
+
+        @Override
+        public void useAbility(GameEngine game, Player player, int target) {
+            if (game.isLogging()) {
+                game.log("[ACTION] " + player.getName() + " (Thief) picks a target to rob.");
+            }
+
+            List<Player> targetPlayers = collectThiefTargets(player, game.getPlayers());
+
+            if (targetPlayers.isEmpty()) {
+                game.log("No valid targets to rob.");
+            }
+            else if (target >= 0 && target < targetPlayers.size()) {
+                Player targetPlayer = targetPlayers.get(target);
+                String targetCharacter = targetPlayer.getCharacter().getName();
+                int stolenGold = targetPlayer.getGold();
+                targetPlayer.spendGold(stolenGold);
+                player.addGold(stolenGold);
+                game.record(GameEvent.GOLD, targetPlayer, -stolenGold);
+                game.record(GameEvent.GOLD, player, stolenGold);
+                if (game.isLogging()) {
+                    game.log(player.getName() + " steals " + stolenGold + " gold from the " + targetCharacter + " (" + targetPlayer.getName() + ").");
+                }
+            }
+        }
+    },
+
+    MAGICIAN(3, "Magician", "Swap hand or redraw.") {
+        @Override
+        public void useAbility(GameEngine game, Player player, int target) {
+            if (game.isLogging()) {
+                game.log("[ACTION] " + player.getName() + " (Magician) redraws hand.");
+            }
+            Deck deck = game.getDeck();
+            List<DistrictCard> oldHand = new ArrayList<>(player.getHand());
+            List<DistrictCard> newHand = new ArrayList<>();
+
+            for (int i = 0; i < oldHand.size(); i++) {
+                DistrictCard newCard = deck.draw();
+                if (newCard != null) {
+                    newHand.add(newCard);
+                    game.record(GameEvent.CARD_DRAWN, player, newCard.getId());
+                }
+                else {
+                    game.log("Deck is empty, cannot redraw remaining cards.");
+                    break;
+                }
+            }
+            // Discarded cards go back to the bottom of the deck
+            for (DistrictCard card : oldHand) {
+                deck.addToBottom(card);
+                game.record(GameEvent.CARD_RETURNED, player, card.getId());
+            }
+            player.getHand().clear();
+            player.getHand().addAll(newHand);
+
+            // Add second magician ability
+        }
+    },
+
+    KING(4, "King", "Gain gold for yellow, get crown.") {
+        @Override
+        public void useAbility(GameEngine game, Player player, int target) {
+            if (game.isLogging()) {
+                game.log("[ACTION] " + player.getName() + " (King) gains 1 gold per yellow district.");
+            }
+            int income = player.countColor(DistrictColor.YELLOW);
+            player.addGold(income);
+            game.record(GameEvent.GOLD, player, income);
+            if (game.isLogging()) {
+                game.log(player.getName() + " will receive the crown next round.");
+            }
+            player.setReceiveCrown(true);
+        }
+    },
+
+    BISHOP(5, "Bishop", "Gain gold for blue, immune to Warlord.") {
+        @Override
+        public void useAbility(GameEngine game, Player player, int target) {
+            if (game.isLogging()) {
+                game.log("[ACTION] " + player.getName() + " (Bishop) gains 1 gold per blue district.");
+            }
+            int income = player.countColor(DistrictColor.BLUE);
+            player.addGold(income);
+            game.record(GameEvent.GOLD, player, income);
+            if (game.isLogging()) {
+                game.log("[ACTION] " + player.getName() + " (Bishop) is immune to the Warlord.");
+            }
+        }
+    },
+
+    MERCHANT(6, "Merchant", "Gain gold for green, +1 gold.") {
+        @Override
+        public void useAbility(GameEngine game, Player player, int target) {
+            if (game.isLogging()) {
+                game.log("[ACTION] " + player.getName() + " (Merchant) receives 1 extra gold.");
+            }
+            player.addGold(1);
+            game.record(GameEvent.GOLD, player, 1);
+        }
+    },
+
+    ARCHITECT(7, "Architect", "Draw 2 extra cards, build up to 3.") {
+        @Override
+        public int getBuildLimit() {
+            return 3;
+        }
+
+        @Override
+        public void useAbility(GameEngine game, Player player, int target) {
+            if (game.isLogging()) {
+                game.log("[ACTION] " + player.getName() + " (Architect) draws 2 extra cards.");
+            }
+            for (int i = 0; i < 2; i++) {
+                DistrictCard card = game.getDeck().draw();
+                if (card != null) {
+                    player.drawCard(card);
+                    game.record(GameEvent.CARD_DRAWN, player, card.getId());
+                } else {
+                    game.log("Deck is empty, cannot draw more cards.");
+                    break;
+                }
+            }
+        }
+    },
+
+    WARLORD(8, "Warlord", "Gain gold for red, destroy buildings.") {
+        @Override
+        public List<String> getAbilityTargets(GameEngine game, Player player) {
+            List<Player> owners = new ArrayList<>();
+            List<DistrictCard> buildings = new ArrayList<>();
+            collectWarlordTargets(player, game.getPlayers(), owners, buildings);
+            List<String> targets = new ArrayList<>(buildings.size());
+            for (int i = 0; i < buildings.size(); i++) {
+                DistrictCard building = buildings.get(i);
+                targets.add(building.getName() + " owned by " + owners.get(i).getName() + " (Cost: " + (building.getCost() - 1) + " gold)");
+            }
+            return targets;
+        }
+
+        @Override
+        public int getAbilityTargetCount(GameEngine game, Player player) {
+            int count = 0;
+            for (Player target : game.getPlayers()) {
+                if (canDestroyIn(player, target)) {
+                    for (DistrictCard district : target.getBuiltDistricts()) {
+                        if (canDestroy(player, district)) {
+                            count++;
+                        }
+                    }
+                }
+            }
+            return count;
+        }
+
+        @Override
+        public int getAbilityTargetKey(GameEngine game, Player player, int target) {
+            // A city holds at most one district of each name, so the seat and card id name the target
+            List<Player> players = game.getPlayers();
+            int remaining = target;
+            for (int seat = 0; seat < players.size(); seat++) {
+                Player owner = players.get(seat);
+                if (canDestroyIn(player, owner)) {
+                    for (DistrictCard district : owner.getBuiltDistricts()) {
+                        if (canDestroy(player, district) && remaining-- == 0) {
+                            return (seat << 16) | district.getId();
+                        }
+                    }
+                }
+            }
+            throw new IndexOutOfBoundsException("No target " + target);
+        }
+
+        @Override
+        public void useAbility(GameEngine game, Player player, int target) {
+            if (game.isLogging()) {
+                game.log("[ACTION] " + player.getName() + " (Warlord) gains 1 gold per red district.");
+            }
+            int income = player.countColor(DistrictColor.RED);
+            player.addGold(income);
+            game.record(GameEvent.GOLD, player, income);
+
+            // Destroy building logic
+            List<Player> validTargets = new ArrayList<>();
+            List<DistrictCard> validBuildings = new ArrayList<>();
+            collectWarlordTargets(player, game.getPlayers(), validTargets, validBuildings);
+
+            if (validTargets.isEmpty()) {
+                if (game.isLogging()) {
+                    game.log(player.getName() + " cannot destroy any buildings (insufficient gold or no valid targets).");
+                }
+            }
+            else if (target >= 0 && target < validBuildings.size()) {
+                DistrictCard toDestroy = validBuildings.get(target);
+                Player targetPlayer = validTargets.get(target);
+                int cost = toDestroy.getCost() - 1;
+
+                player.spendGold(cost);
+                targetPlayer.getBuiltDistricts().remove(toDestroy);
+                game.record(GameEvent.GOLD, player, -cost);
+                game.record(GameEvent.DISTRICT_DESTROYED, targetPlayer, toDestroy.getId());
+                game.getDeck().addToBottom(toDestroy);
+                if (game.isLogging()) {
+                    game.log(player.getName() + " destroyed " + toDestroy.getName() + " in " + targetPlayer.getName() + "'s city for " + cost + " gold.");
+                }
+            }
+        }
+    };
+
+    /** The characters the Assassin can choose to kill. */
+    private static final CharacterRole[] ASSASSIN_TARGETS = {KING, WARLORD, ARCHITECT, MAGICIAN, BISHOP, MERCHANT, THIEF};
+
+    private static final CharacterRole[] BY_TURN_ORDER = new CharacterRole[9];
+
+    static {
+        for (CharacterRole role : values()) {
+            BY_TURN_ORDER[role.turnOrder] = role;
+        }
+    }
+
+    private final int turnOrder;
+    private final String displayName;
+    private final String description;
+
+    CharacterRole(int turnOrder, String displayName, String description) {
+        this.turnOrder = turnOrder;
+        this.displayName = displayName;
+        this.description = description;
+    }
+
+    /**
+     * Runs the special ability of this character and updates the game state.
+     * Abilities with a target act on the entry of {@link #getAbilityTargets} at the given index.
+     *
+     * @param game   the game the ability is used in
+     * @param player the player using the ability
+     * @param target the index of the chosen target, ignored by abilities without a target
+     */
+    public abstract void useAbility(GameEngine game, Player player, int target);
+
+    /**
+     * Returns a description of every target the ability can currently be used on.
+     * Abilities without a target return an empty list.
+     *
+     * @param game   the game the ability is used in
+     * @param player the player using the ability
+     * @return the list of target descriptions
+     */
+    public List<String> getAbilityTargets(GameEngine game, Player player) {
+        return Collections.emptyList();
+    }
+
+    /**
+     * Returns how many targets the ability can currently be used on, without describing them,
+     * for the engine and the computer players. Abilities without a target return 0.
+     *
+     * @param game   the game the ability is used in
+     * @param player the player using the ability
+     * @return the size of {@link #getAbilityTargets}
+     */
+    public int getAbilityTargetCount(GameEngine game, Player player) {
+        return 0;
+    }
+
+    /**
+     * Returns what an ability target stands for, independent of its place in
+     * {@link #getAbilityTargets}. Two games that differ only in what the player cannot see give
+     * the same target the same key, even when the hidden characters put it at another index.
+     *
+     * @param game   the game the ability is used in
+     * @param player the player using the ability
+     * @param target the index of the target
+     * @return the key of the target
+     * @throws IndexOutOfBoundsException if the ability has no target at the index
+     */
+    public int getAbilityTargetKey(GameEngine game, Player player, int target) {
+        throw new IndexOutOfBoundsException("The " + displayName + " has no targets");
+    }
+
+    /**
+     * Returns whether this character uses their ability at the start of their turn,
+     * before collecting gold or cards.
+     * @return true if the ability is used at the start of the turn
+     */
+    public boolean usesAbilityFirst() {
+        return false;
+    }
+
+    /**
+     * Returns how many districts this character may build in one turn.
+     * @return the build limit
+     */
+    public int getBuildLimit() {
+        return 1;
+    }
+
+    /**
+     * Returns the turn order of the character, from 1 to 8.
+     * @return the character's turn order
+     */
+    public int getTurnOrder() {
+        return turnOrder;
+    }
+
+    /**
+     * Returns the name of the character as shown to players.
+     * @return the character's name
+     */
+    public String getDisplayName() {
+        return displayName;
+    }
+
+    /**
+     * Returns the ability description of the character.
+     * @return the character's ability description
+     */
+    public String getDescription() {
+        return description;
+    }
+
+    /**
+     * Returns the role with the given turn order.
+     * @param turnOrder the turn order, from 1 to 8
+     * @return the role
+     */
+    public static CharacterRole byTurnOrder(int turnOrder) {
+        return BY_TURN_ORDER[turnOrder];
+    }
+
+    /**
+     * Returns the role with the given name, ignoring case.
+     * @param name the character name
+     * @return the role, or null if no character has that name
+     */
+    public static CharacterRole byName(String name) {
+        for (int i = 1; i < BY_TURN_ORDER.length; i++) {
+            if (BY_TURN_ORDER[i].displayName.equalsIgnoreCase(name)) {
+                return BY_TURN_ORDER[i];
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns the role of the character a player holds this round.
+     * @param player the player
+     * @return the role, or null if the player has no character
+     */
+    static CharacterRole of(Player player) {
+        return player.getCharacter() == null ? null : player.getCharacter().getRole();
+    }
+
+    /**
+     * Collects every district the Warlord can afford to destroy, skipping the Bishop and completed cities.
+     * The owner of each building is added to the owners list at the same index.
+     * @param player the Warlord player
+     * @param players the list of all players in the game
+     * @param owners receives the owner of each destroyable building
+     * @param buildings receives each destroyable building
+     */
+    private static void collectWarlordTargets(Player player, List<Player> players, List<Player> owners, List<DistrictCard> buildings) {
+        for (Player target : players) {
+            if (canDestroyIn(player, target)) {
+                for (DistrictCard district : target.getBuiltDistricts()) {
+                    if (canDestroy(player, district)) {
+                        owners.add(target);
+                        buildings.add(district);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns whether the Warlord may destroy districts in a player's city: it is someone else's,
+     * not empty, not complete, and not the Bishop's.
+     * @param player the Warlord player
+     * @param target the city's owner
+     * @return true if the city can be attacked
+     */
+    private static boolean canDestroyIn(Player player, Player target) {
+        int citySize = target.getBuiltDistricts().size();
+        return target != player && citySize > 0 && citySize < GameEngine.CITY_SIZE && of(target) != BISHOP;
+    }
+
+    /**
+     * Returns whether the Warlord can pay to destroy a district, which costs one less than it did to build.
+     * @param player   the Warlord player
+     * @param district the district
+     * @return true if the Warlord has the gold
+     */
+    private static boolean canDestroy(Player player, DistrictCard district) {
+        return player.getGold() >= district.getCost() - 1;
+    }
+
+    /**
+     * Collects the players the Thief can rob, which excludes the Assassin and the Thief.
+     * @param player the Thief player
+     * @param players the list of all players in the game
+     * @return the players that can be robbed
+     */
+    private static List<Player> collectThiefTargets(Player player, List<Player> players) {
+        List<Player> targetPlayers = new ArrayList<>();
+        for (Player p : players) {
+            if (isThiefTarget(player, p)) {
+                targetPlayers.add(p);
+            }
+        }
+        return targetPlayers;
+    }
+
+    /**
+     * Returns whether the Thief can rob a player.
+     * @param player the Thief player
+     * @param target the player to rob
+     * @return true if the target has a character other than the Assassin or the Thief
+     */
+    private static boolean isThiefTarget(Player player, Player target) {
+        CharacterRole role = of(target);
+        return target != player && role != null && role != ASSASSIN && role != THIEF;
+    }
+
+    /**
+     * Marks the player holding the given character as assassinated. They will skip their turn.
+     * @param game the game the assassination happens in
+     * @param role the character to mark as assassinated
+     */
+    private static void markAssassinated(GameEngine game, CharacterRole role) {
+        for (Player player : game.getPlayers()) {
+            if (of(player) == role) {
+                if (game.isLogging()) {
+                    game.log("The " + role.getDisplayName() + " (" + player.getName() + ") has been assassinated and will skip their turn.");
+                }
+                player.setAssassinated(true);
+                game.record(GameEvent.ASSASSINATED, player, 0);
+                break;
+            }
+        }
+    }
+}
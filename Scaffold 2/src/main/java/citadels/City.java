@@ -0,0 +1,227 @@
+package citadels;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.RandomAccess;
+
+/**
+ * The districts a player has built. Every change to the list goes through {@link #add(int, DistrictCard)},
+ * {@link #set(int, DistrictCard)} or {@link #remove(int)}, so the per-color counts, the color mask,
+ * the built district index, the score totals and the Zobrist hash are kept up to date whether a
+ * district is built, destroyed by the Warlord or restored from a save.
+ */
+class City extends AbstractList<DistrictCard> implements RandomAccess {
+    private DistrictCard[] districts = new DistrictCard[GameEngine.CITY_SIZE];
+    private int size;
+    private final int[] colorCounts = new int[DistrictColor.values().length];
+    private int colorMask;
+    /** Number of built copies of each catalog district, indexed by district id. */
+    private int[] idCounts = new int[64];
+    /** Number of built copies of each district name, which also covers cards without a catalog id. */
+    private final Map<String, Integer> nameCounts = new HashMap<>();
+    /** Number of built cards that have no catalog id. */
+    private int uncataloged;
+    /** Sum of the costs of the built districts. */
+    private int baseScore;
+    /** Points from purple districts that always give the same bonus. */
+    private int fixedBonus;
+    /** Number of built districts with each bonus, indexed by {@link DistrictBonus#ordinal()}. */
+    private final int[] bonusCounts = new int[DistrictBonus.values().length];
+    /** Number of built Wishing Wells that are themselves purple. */
+    private int purpleWells;
+    /** The seat of the owner, which the Zobrist keys depend on. */
+    private int seat;
+    /** XOR of the Zobrist keys of the built catalog districts. */
+    private long hash;
+
+    @Override
+    public DistrictCard get(int index) {
+        Objects.checkIndex(index, size);
+        return districts[index];
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public DistrictCard set(int index, DistrictCard district) {
+        Objects.checkIndex(index, size);
+        DistrictCard old = districts[index];
+        districts[index] = district;
+        removed(old);
+        added(district);
+        return old;
+    }
+
+    @Override
+    public void add(int index, DistrictCard district) {
+        Objects.checkIndex(index, size + 1);
+        if (size == districts.length) {
+            districts = Arrays.copyOf(districts, size * 2);
+        }
+        System.arraycopy(districts, index, districts, index + 1, size - index);
+        districts[index] = district;
+        size++;
+        modCount++;
+        added(district);
+    }
+
+    @Override
+    public DistrictCard remove(int index) {
+        Objects.checkIndex(index, size);
+        DistrictCard old = districts[index];
+        System.arraycopy(districts, index + 1, districts, index, size - index - 1);
+        districts[--size] = null;
+        modCount++;
+        removed(old);
+        return old;
+    }
+
+    /**
+     * Returns how many districts of a color are in the city.
+     * @param color the district color
+     * @return the number of districts of that color
+     */
+    int countColor(DistrictColor color) {
+        return colorCounts[color.ordinal()];
+    }
+
+    /**
+     * Returns the colors present in the city as a bit mask of {@link DistrictColor#bit()}.
+     * @return the color mask
+     */
+    int getColorMask() {
+        return colorMask;
+    }
+
+    /**
+     * Returns the Zobrist hash of the built districts. Cards without a catalog id do not change it.
+     * @return the hash
+     */
+    long getHash() {
+        return hash;
+    }
+
+    /**
+     * Moves the city to another seat, rehashing the built districts with that seat's keys.
+     * @param seat the owner's seat
+     */
+    void setSeat(int seat) {
+        this.seat = seat;
+        hash = 0;
+        for (int id = 0; id < idCounts.length; id++) {
+            for (int copy = 0; copy < idCounts[id]; copy++) {
+                hash ^= Zobrist.district(seat, id, copy);
+            }
+        }
+    }
+
+    /**
+     * Returns the sum of the costs of the built districts.
+     * @return the base score
+     */
+    int getBaseScore() {
+        return baseScore;
+    }
+
+    /**
+     * Returns the points from purple districts for a player with the given gold and hand size.
+     * @param gold     the player's gold
+     * @param handSize the number of cards in the player's hand
+     * @return the purple district bonus
+     */
+    int getPurpleBonus(int gold, int handSize) {
+        int bonus = fixedBonus;
+        bonus += bonusCounts[DistrictBonus.POINT_PER_GOLD.ordinal()] * gold;
+        bonus += bonusCounts[DistrictBonus.POINT_PER_CARD.ordinal()] * handSize;
+        // Each Wishing Well counts every purple district except itself
+        bonus += bonusCounts[DistrictBonus.POINT_PER_PURPLE.ordinal()] * countColor(DistrictColor.PURPLE) - purpleWells;
+        if (gold == 0) {
+            bonus += bonusCounts[DistrictBonus.NO_GOLD.ordinal()];
+        }
+        if (handSize == 0) {
+            bonus += 2 * bonusCounts[DistrictBonus.EMPTY_HAND.ordinal()];
+        }
+        return bonus;
+    }
+
+    /**
+     * Checks whether a district with the given name is in the city.
+     * @param name the district name
+     * @return true if the district has been built
+     */
+    boolean containsName(String name) {
+        return nameCounts.containsKey(name);
+    }
+
+    /**
+     * Checks whether the same district as the given card is in the city. Catalog cards are looked up
+     * by id, unless the city holds cards without an id, which can only be matched by name.
+     * @param card the district card
+     * @return true if the district has been built
+     */
+    boolean containsDistrict(DistrictCard card) {
+        int id = card.getId();
+        if (id == DistrictCatalog.NO_ID || uncataloged > 0) {
+            return nameCounts.containsKey(card.getName());
+        }
+        return id < idCounts.length && idCounts[id] > 0;
+    }
+
+    private void added(DistrictCard district) {
+        DistrictColor color = district.getColorType();
+        if (color != null) {
+            colorCounts[color.ordinal()]++;
+            colorMask |= color.bit();
+        }
+        int id = district.getId();
+        if (id == DistrictCatalog.NO_ID) {
+            uncataloged++;
+        } else {
+            if (id >= idCounts.length) {
+                idCounts = Arrays.copyOf(idCounts, Math.max(id + 1, idCounts.length * 2));
+            }
+            hash ^= Zobrist.district(seat, id, idCounts[id]++);
+        }
+        nameCounts.merge(district.getName(), 1, Integer::sum);
+        scored(district, 1);
+    }
+
+    private void removed(DistrictCard district) {
+        DistrictColor color = district.getColorType();
+        if (color != null && --colorCounts[color.ordinal()] == 0) {
+            colorMask &= ~color.bit();
+        }
+        int id = district.getId();
+        if (id == DistrictCatalog.NO_ID) {
+            uncataloged--;
+        } else {
+            hash ^= Zobrist.district(seat, id, --idCounts[id]);
+        }
+        nameCounts.computeIfPresent(district.getName(), (name, count) -> count == 1 ? null : count - 1);
+        scored(district, -1);
+    }
+
+    /**
+     * Adds a district's points to the score totals, or takes them away.
+     * @param district the district built or removed
+     * @param sign 1 when the district is built, -1 when it is removed
+     */
+    private void scored(DistrictCard district, int sign) {
+        baseScore += sign * district.getCost();
+        DistrictBonus bonus = district.getBonus();
+        bonusCounts[bonus.ordinal()] += sign;
+        if (bonus == DistrictBonus.TWO_POINTS) {
+            fixedBonus += sign * 2;
+        } else if (bonus == DistrictBonus.ONE_POINT) {
+            fixedBonus += sign;
+        } else if (bonus == DistrictBonus.POINT_PER_PURPLE && district.getColorType() == DistrictColor.PURPLE) {
+            purpleWells += sign;
+        }
+    }
+}
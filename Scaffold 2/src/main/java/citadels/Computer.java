@@ -4,25 +4,61 @@ import java.util.*;
 
 /**
  * Represents the Computer logic for the other characters in the Citadels game.
- * Handles decisions such as drawing cards, collecting gold, building districts, 
+ * Handles decisions such as drawing cards, collecting gold, building districts,
  * and using character abilities.
  */
-public class Computer {
-    /** The deck of district cards used in the game. */
-    private Deck deck;
-
-    /** The list of all players in the game, including the computer. */
-    private List<Player> players;
+public class Computer implements CharacterDraft.PickPolicy {
+    /** The game the computer players are playing in. */
+    private GameEngine game;
+    /** The tree search used for every decision, or null to play by the fixed rules. */
+    private MctsSearch search;
 
     /**
      * Constructs a Computer logic controller.
      *
-     * @param deck    The shared deck of district cards.
-     * @param players The list of all players in the game.
+     * @param game The game the computer players take part in.
+     */
+    public Computer(GameEngine game){
+        this.game = game;
+    }
+
+    /**
+     * Makes the computer players search each decision with Monte Carlo Tree Search instead of
+     * following the fixed rules below.
+     * @param search the search to use, or null to go back to the fixed rules. The caller keeps
+     *               ownership and closes it once the game is over.
+     */
+    public void setSearch(MctsSearch search) {
+        this.search = search;
+    }
+
+    /**
+     * Picks a character from the draft choices. The computer takes the first character offered,
+     * except for the last pick with seven players where it chooses randomly between the two cards.
+     *
+     * @param computer The computer-controlled player who is picking.
+     * @param choices  The characters currently offered.
+     * @return The index of the chosen character.
      */
-    public Computer(Deck deck, List<Player> players){
-        this.deck = deck;
-        this.players = players;
+    public int chooseCharacter(Player computer, List<CharacterCard> choices) {
+        if (search != null) {
+            return search.choose(game).getIndex();
+        }
+        if (game.getPlayers().size() == 7 && choices.size() == 2) {
+            return game.getRandom().nextBoolean() ? 0 : 1;
+        }
+        return 0;
+    }
+
+    /**
+     * Picks a character by {@link #chooseCharacter}, so the computer is a draft policy like any other.
+     * @param player  the player picking
+     * @param choices the characters the player can pick from
+     * @return the index of the chosen character
+     */
+    @Override
+    public int pick(Player player, List<CharacterCard> choices) {
+        return chooseCharacter(player, choices);
     }
 
     /**
@@ -37,52 +73,98 @@ public class Computer {
      * </ul>
      *
      * @param computer The computer-controlled player whose turn it is.
+     * @throws IllegalStateException if the computer chooses an action the game does not accept.
      */
     public void takeTurn(Player computer) {
-        System.out.println(computer.getName() + " is thinking...");
-
-        // Decision: take gold or draw cards based on current hand and deck status
-        if (computer.getHand().size() < 2 && !deck.isEmpty()) {
-            System.out.println(computer.getName() + " decides to draw cards.");
-            DistrictCard card1 = deck.draw();
-            DistrictCard card2 = deck.draw();
-            DistrictCard betterCard;
-
-            // Choose the more expensive card
-            if (card1.getCost() >= card2.getCost()) {
-                betterCard = card1;
-            } else {
-                betterCard = card2;
+        GameMetrics metrics = game.getMetrics();
+        long start = metrics == null ? 0 : System.nanoTime();
+        if (App.debugMode == true && game.isLogging()) {
+            // Code for debug mode
+            game.log("[DEBUG] " + computer.getName() + "'s hand:");
+            List<DistrictCard> hand = computer.getHand();
+            for (int j = 0; j < hand.size(); j++) {
+                DistrictCard card = hand.get(j);
+                game.log("[" + j + "] " + card.getName() + " [" + card.getColor() + "] " + "[" +  card.getCost() + "]");
+            }
+            game.log(computer.getName() + " has " + computer.getGold() + " gold.");
+        }
+        if (game.isLogging()) {
+            game.log(computer.getName() + " is thinking...");
+        }
+        while (game.getCurrentPlayer() == computer && !game.isGameOver()) {
+            Action action = chooseAction(computer);
+            if (!game.step(action)) {
+                throw new IllegalStateException(computer.getName() + " chose " + action.getType() + " " + action.getIndex()
+                    + ", which is not legal in " + game.getPhase());
+            }
+            if (game.getPhase() == GameEngine.Phase.SELECT_CHARACTER) {
+                break;
             }
+        }
+        game.log("");
+        if (metrics != null) {
+            metrics.getComputerTurnLatency().record(System.nanoTime() - start);
+        }
+    }
 
-            computer.drawCard(betterCard);
-        } else {
-            System.out.println(computer.getName() + " decides to take 2 gold.");
-            computer.addGold(2);
+    /**
+     * Chooses the next action for the computer-controlled player in the current phase.
+     *
+     * @param computer The computer-controlled player whose turn it is.
+     * @return The chosen action.
+     */
+    public Action chooseAction(Player computer) {
+        if (search != null) {
+            return search.choose(game);
         }
+        switch (game.getPhase()) {
+            case START_ABILITY:
+                return Action.useAbility(chooseTarget());
 
-        // Attempt to build the most expensive district the computer can afford and hasn't already built
-        List<DistrictCard> hand = computer.getHand();
-        DistrictCard toBuild = null;
-        for (DistrictCard card : hand) {
-            if (computer.getGold() >= card.getCost() && !computer.hasBuilt(card.getName())) {
-                if (toBuild == null || card.getCost() > toBuild.getCost()) {
-                    toBuild = card;
+            case TAKE_RESOURCES:
+                // Decision: take gold or draw cards based on current hand and deck status
+                if (computer.getHand().size() < 2 && !game.getDeck().isEmpty()) {
+                    return Action.drawCards();
                 }
-            }
-        }
+                return Action.takeGold();
+
+            case KEEP_CARD:
+                // Choose the more expensive card
+                DistrictCard[] drawn = game.getDrawnCards();
+                return Action.keepCard(drawn[0].getCost() >= drawn[1].getCost() ? 0 : 1);
+
+            case MAIN:
+                // Build the most expensive district the computer can afford and hasn't already built
+                List<DistrictCard> hand = computer.getHand();
+                int toBuild = -1;
+                for (int i = 0; i < hand.size(); i++) {
+                    if (game.canBuild(i) && (toBuild == -1 || hand.get(i).getCost() > hand.get(toBuild).getCost())) {
+                        toBuild = i;
+                    }
+                }
+                if (toBuild != -1) {
+                    return Action.build(toBuild);
+                }
+                // Always use the character's special ability at the end of the turn
+                if (!game.isAbilityUsed()) {
+                    return Action.useAbility(chooseTarget());
+                }
+                return Action.endTurn();
 
-        if (toBuild != null) {
-            System.out.println(computer.getName() + " builds: " + toBuild.getName() + " [" 
-                + toBuild.getColor() + "] [" + toBuild.getCost() + "]");
-            computer.buildDistrict(toBuild);
-        } else {
-            System.out.println(computer.getName() + " has nothing affordable or buildable this turn.");
+            default:
+                return Action.endTurn();
         }
+    }
 
-        // Always use the character's special ability at the end of the turn
-        computer.getCharacter().useAbility(computer, deck, players);
-        System.out.println(computer.getName() + " ends their turn.");
-        System.out.println("");
+    /**
+     * Chooses a random target for the current player's ability.
+     * @return The index of the target, or -1 if the ability has no targets.
+     */
+    private int chooseTarget() {
+        int targets = game.getAbilityTargetCount();
+        if (targets == 0) {
+            return -1;
+        }
+        return game.getRandom().nextInt(targets);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,32 @@
+package citadels;
+
+import java.io.PrintStream;
+
+/**
+ * Prints the game messages to a stream, one per line, as the console game shows them.
+ */
+public final class ConsoleEventSink implements GameEventSink {
+    private final PrintStream out;
+
+    /**
+     * Creates a sink printing to a stream.
+     * @param out where the messages are printed
+     */
+    public ConsoleEventSink(PrintStream out) {
+        this.out = out;
+    }
+
+    @Override
+    public void onEvent(GameEvent event, int seat, int value) {
+    }
+
+    @Override
+    public boolean wantsMessages() {
+        return true;
+    }
+
+    @Override
+    public void onMessage(String message) {
+        out.println(message);
+    }
+}
@@ -0,0 +1,40 @@
+package citadels;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Reads lines from a stream through one buffered reader, such as standard input or a player's
+ * socket. All the lines of a game come from the same buffer, so input piped in ahead of the
+ * prompts is kept rather than lost between readers.
+ */
+public final class ConsoleInput implements InputSource {
+    /** Characters buffered ahead of the line being read. */
+    private static final int BUFFER_SIZE = 1 << 13;
+
+    private final BufferedReader reader;
+
+    /**
+     * Creates a source reading a UTF-8 stream.
+     * @param in the stream
+     */
+    public ConsoleInput(InputStream in) {
+        this.reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8), BUFFER_SIZE);
+    }
+
+    /**
+     * Returns the next line. A stream that fails, such as a dropped connection, has ended.
+     * @return the line without its line terminator, or null once the stream has ended
+     */
+    @Override
+    public String readLine() {
+        try {
+            return reader.readLine();
+        } catch (IOException e) {
+            return null;
+        }
+    }
+}
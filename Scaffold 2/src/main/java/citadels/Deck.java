@@ -6,68 +6,80 @@ import java.util.*;
 /**
  * Provides functionality to load cards from a file or input stream,
  * alters and does actions to the deck
+ * <p>
+ * The cards are kept in a circular array: the top of the deck is at {@code head} and the
+ * bottom is {@code size - 1} places after it, so drawing from the top and adding to the
+ * bottom never shift the other cards. The capacity is always a power of two so positions
+ * wrap around with a mask.
  */
 public class Deck {
-    private List<DistrictCard> cards;
+    /** Starting capacity, a power of two large enough for the full district deck. */
+    private static final int INITIAL_CAPACITY = 128;
+
+    private SplittableRandom random;
+    private DistrictCard[] cards;
+    private int head;
+    private int size;
+    /** Counts every change to the cards or their order. */
+    private int modCount;
 
     /**
-     * Constructs a new empty deck.
+     * Constructs a new empty deck with an unseeded random source for shuffling.
      */
     public Deck(){
-        this.cards = new ArrayList<>();
+        this(new SplittableRandom());
+    }
+
+    /**
+     * Constructs a new empty deck that shuffles with the given random source.
+     * @param random the source used by {@link #shuffle()}
+     */
+    public Deck(SplittableRandom random){
+        this.random = random;
+        this.cards = new DistrictCard[INITIAL_CAPACITY];
     }
 
     /**
      * Loads district cards from a tab-separated file.
      * Each line should include name, quantity, color, cost, and optionally text.
      * @param file the file to load the cards from
+     * @throws UncheckedIOException if the file is missing or cannot be read
      */
     public void loadFromFile(File file) {
-        try (Scanner scanner = new Scanner(file)) {
-            if (scanner.hasNextLine()) scanner.nextLine(); // skip header
-            while (scanner.hasNextLine()) {
-                String[] parts = scanner.nextLine().split("\t");
-                if (parts.length < 4) continue; // require at least name, quantity, color, cost
-                String name = parts[0];
-                int quantity = Integer.parseInt(parts[1]);
-                String color = parts[2];
-                int cost = Integer.parseInt(parts[3]);
-                String text = (parts.length >= 5) ? parts[4] : ""; 
-
-                for (int i = 0; i < quantity; i++) {
-                    cards.add(new DistrictCard(name, color, cost, text));
-                }
-            }
-            shuffle();
-        } catch (FileNotFoundException e) {
-            System.err.println("Error: cards.tsv not found.");
+        try (InputStream in = new FileInputStream(file)) {
+            loadFromCatalog(DistrictCatalog.load(in));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot read " + file, e);
         }
     }
 
     /**
      * Loads district cards from an input stream (e.g., a resource stream).
-     * Each line should include name, quantity, color, cost, and text.
+     * Each line should include name, quantity, color, cost, and optionally text.
      * @param in the input stream to read the cards from
      */
     public void loadFromStream(InputStream in) {
-        try (Scanner scanner = new Scanner(in)) {
-            if (scanner.hasNextLine()) scanner.nextLine(); // skip header
-            while (scanner.hasNextLine()) {
-                String[] parts = scanner.nextLine().split("\t");
-                if (parts.length < 5) continue;
-
-                String name = parts[0];
-                int quantity = Integer.parseInt(parts[1]);
-                String color = parts[2];
-                int cost = Integer.parseInt(parts[3]);
-                String text = parts[4];
-
-                for (int i = 0; i < quantity; i++) {
-                    cards.add(new DistrictCard(name, color, cost, text));
-                }
-            }
-            shuffle();
+        loadFromCatalog(DistrictCatalog.load(in));
+    }
+
+    /**
+     * Adds every copy of every district in a catalog to the deck and shuffles it.
+     * The deck holds the catalog's shared card instances rather than new copies.
+     * @param catalog the catalog to fill the deck from
+     */
+    public void loadFromCatalog(DistrictCatalog catalog) {
+        int total = catalog.getTotalCards();
+        while (cards.length - size < total) {
+            grow();
         }
+        // The catalog keeps the full deck ready, so it is copied in at most two blocks
+        int bottom = (head + size) & (cards.length - 1);
+        int first = Math.min(total, cards.length - bottom);
+        catalog.copyDeck(0, cards, bottom, first);
+        catalog.copyDeck(first, cards, 0, total - first);
+        size += total;
+        modCount++;
+        shuffle();
     }
 
     /**
@@ -75,10 +87,9 @@ public class Deck {
      */
     public void showAllCards() {
         System.out.println("Cards currently in the deck:");
-        int count = 1;
-        for (DistrictCard card : cards) {
-            System.out.println(count + ". " + card.getName() + " [" + card.getColor() + "] " + "[" + card.getCost() + "]");
-            count++;
+        for (int i = 0; i < size; i++) {
+            DistrictCard card = cards[(head + i) & (cards.length - 1)];
+            System.out.println((i + 1) + ". " + card.getName() + " [" + card.getColor() + "] " + "[" + card.getCost() + "]");
         }
     }
 
@@ -87,14 +98,40 @@ public class Deck {
      * @param card the district card to add
      */
     public void addToBottom(DistrictCard card) {
-        cards.add(card);
+        if (size == cards.length) {
+            grow();
+        }
+        cards[(head + size) & (cards.length - 1)] = card;
+        size++;
+        modCount++;
+    }
+
+    /**
+     * Doubles the capacity of the deck, moving the cards so the top of the deck is at index 0.
+     */
+    private void grow() {
+        DistrictCard[] larger = new DistrictCard[cards.length * 2];
+        for (int i = 0; i < size; i++) {
+            larger[i] = cards[(head + i) & (cards.length - 1)];
+        }
+        cards = larger;
+        head = 0;
     }
 
     /**
-     * Randomly shuffles the cards in the deck.
+     * Randomly shuffles the cards in the deck using the deck's random source.
      */
     public void shuffle() {
-        Collections.shuffle(cards);
+        modCount++;
+        // Fisher-Yates shuffle over the positions from the top of the deck
+        for (int i = size - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int a = (head + i) & (cards.length - 1);
+            int b = (head + j) & (cards.length - 1);
+            DistrictCard swap = cards[a];
+            cards[a] = cards[b];
+            cards[b] = swap;
+        }
     }
 
     /**
@@ -102,7 +139,7 @@ public class Deck {
      * @return true if the deck has no cards, false otherwise
      */
     public boolean isEmpty() {
-        return cards.isEmpty();
+        return size == 0;
     }
 
     /**
@@ -110,10 +147,57 @@ public class Deck {
      * @return the top district card, or null if the deck is empty
      */
     public DistrictCard draw() {
-        if (!cards.isEmpty()) {
-            return cards.remove(0);
+        if (size == 0) {
+            return null;
         }
-        return null;
+        DistrictCard card = cards[head];
+        cards[head] = null;
+        head = (head + 1) & (cards.length - 1);
+        size--;
+        modCount++;
+        return card;
+    }
+
+    /**
+     * Returns a card without drawing it.
+     * @param position the position from the top of the deck, starting at 0
+     * @return the district card at that position
+     */
+    DistrictCard peek(int position) {
+        if (position < 0 || position >= size) {
+            throw new IndexOutOfBoundsException("Position " + position + " in a deck of " + size);
+        }
+        return cards[(head + position) & (cards.length - 1)];
+    }
+
+    /**
+     * Empties the deck and fills it again with every copy of every district in a catalog,
+     * shuffled with a new random source. The deck keeps its storage, so no cards are allocated.
+     * @param catalog the catalog to fill the deck from
+     * @param random  the source used to shuffle from now on
+     */
+    public void reset(DistrictCatalog catalog, SplittableRandom random) {
+        this.random = random;
+        clear();
+        loadFromCatalog(catalog);
+    }
+
+    /**
+     * Removes every card from the deck.
+     */
+    void clear() {
+        Arrays.fill(cards, null);
+        head = 0;
+        size = 0;
+        modCount++;
+    }
+
+    /**
+     * Returns a count that changes whenever a card is added or drawn, or the deck is shuffled.
+     * @return the modification count
+     */
+    int getModCount() {
+        return modCount;
     }
 
     /**
@@ -121,6 +205,6 @@ public class Deck {
      * @return the size of the deck
      */
     public int size() {
-        return cards.size();
+        return size;
     }
 }
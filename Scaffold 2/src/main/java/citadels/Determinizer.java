@@ -0,0 +1,248 @@
+package citadels;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * Samples complete game states that are consistent with what one seat can see. The seat knows
+ * its own hand, every city, the characters already called this round and, when it is keeping a
+ * card, the two cards it drew. Everything else is redrawn: the other hands, any cards another
+ * player is choosing between and the deck are dealt at random from the copies of each district
+ * the seat has not seen. The characters other players hold but have not revealed, the face down
+ * character and, while another seat is picking, the draft pool are dealt from every character
+ * the seat cannot place: all but the face up ones, its own pick, those already called and, while
+ * it is picking, the ones on offer.
+ * <p>
+ * A determinizer keeps its working buffers between samples, so sampling only allocates the new
+ * hands, deck and seats of the returned state. It is not thread safe; use one per thread.
+ */
+public final class Determinizer {
+    private final DistrictCatalog catalog;
+    /** Copies of each district the viewer has not seen, indexed by card id. */
+    private final int[] unseen;
+    /** The unseen cards, dealt from the front after a partial shuffle. */
+    private final int[] pool;
+    private final int[] hiddenSeats = new int[8];
+    /** Whether the viewer knows where each character is, indexed by turn order. */
+    private final boolean[] knownCharacters = new boolean[9];
+    /** The characters the viewer cannot place, dealt from the front after a partial shuffle. */
+    private final int[] unknownCharacters = new int[8];
+    /** The character of every seat in the sample, indexed by seat. */
+    private final int[] seatCharacters = new int[8];
+    /** Whether each seat's character in the sample is assassinated, indexed by seat. */
+    private final boolean[] seatAssassinated = new boolean[8];
+    /** The draft pool of the sample. */
+    private int[] sampledPool;
+    /** The face down character of the sample. */
+    private int sampledHidden;
+
+    /**
+     * Creates a determinizer for games played with a catalog.
+     * @param catalog the catalog the states' card ids refer to
+     */
+    public Determinizer(DistrictCatalog catalog) {
+        this.catalog = catalog;
+        this.unseen = new int[catalog.size()];
+        this.pool = new int[catalog.getTotalCards()];
+    }
+
+    /**
+     * Samples a full game state that looks the same as the given one from a seat.
+     * @param state  the true state
+     * @param viewer the seat whose knowledge the sample must agree with
+     * @param random the source for dealing and shuffling
+     * @return the sampled state, or the given state once the game is over
+     * @throws IllegalStateException if the state holds more copies of a district than the catalog
+     */
+    public GameState sample(GameState state, int viewer, SplittableRandom random) {
+        if (state.isGameOver()) {
+            return state;
+        }
+        int numPlayers = state.getNumPlayers();
+        boolean drawnHidden = state.getPhase() == GameEngine.Phase.KEEP_CARD && state.getCurrentSeat() != viewer;
+
+        // Count the copies of each district the viewer has not seen
+        for (int id = 0; id < unseen.length; id++) {
+            unseen[id] = catalog.getQuantity(id);
+        }
+        markSeen(state.getSeat(viewer).hand);
+        int needed = state.getDeckSize();
+        for (int seat = 0; seat < numPlayers; seat++) {
+            markSeen(state.getSeat(seat).city);
+            if (seat != viewer) {
+                needed += state.getSeat(seat).hand.length;
+            }
+        }
+        if (drawnHidden) {
+            needed += 2;
+        } else if (state.getPhase() == GameEngine.Phase.KEEP_CARD) {
+            markSeen(state.getDrawn(0), state.getDrawn(1));
+        }
+
+        int available = 0;
+        for (int id = 0; id < unseen.length; id++) {
+            for (int copies = unseen[id]; copies > 0; copies--) {
+                pool[available++] = id;
+            }
+        }
+        if (needed > available) {
+            throw new IllegalStateException("State holds " + needed + " unseen cards but only " + available + " are left");
+        }
+        // Partial Fisher-Yates: only the cards that will be dealt are shuffled into place
+        for (int i = 0; i < needed; i++) {
+            int j = i + random.nextInt(available - i);
+            int swap = pool[i];
+            pool[i] = pool[j];
+            pool[j] = swap;
+        }
+
+        int dealt = 0;
+        GameState.Seat[] seats = new GameState.Seat[numPlayers];
+        boolean shuffled = sampleCharacters(state, viewer, random);
+        for (int seat = 0; seat < numPlayers; seat++) {
+            GameState.Seat base = state.getSeat(seat);
+            int[] hand = base.hand;
+            if (seat != viewer) {
+                hand = new int[base.hand.length];
+                System.arraycopy(pool, dealt, hand, 0, hand.length);
+                dealt += hand.length;
+            }
+            int character = shuffled ? seatCharacters[seat] : base.character;
+            boolean assassinated = shuffled ? seatAssassinated[seat] : base.assassinated;
+            seats[seat] = hand == base.hand && character == base.character ? base : new GameState.Seat(base, hand, character, assassinated);
+        }
+        int drawn0 = state.getDrawn(0);
+        int drawn1 = state.getDrawn(1);
+        if (drawnHidden) {
+            drawn0 = pool[dealt++];
+            drawn1 = pool[dealt++];
+        }
+        int[] deck = new int[state.getDeckSize()];
+        System.arraycopy(pool, dealt, deck, 0, deck.length);
+        if (!shuffled) {
+            return new GameState(state, seats, deck, drawn0, drawn1, state.getDraftPool(), state.getHiddenCharacter());
+        }
+        return new GameState(state, seats, deck, drawn0, drawn1, sampledPool, sampledHidden);
+    }
+
+    /**
+     * Removes cards the viewer has seen from the unseen counts.
+     * @param ids the card ids
+     */
+    private void markSeen(int... ids) {
+        for (int id : ids) {
+            if (id == DistrictCatalog.NO_ID) {
+                continue;
+            }
+            if (--unseen[id] < 0) {
+                throw new IllegalStateException("State holds more copies of " + catalog.get(id).getName() + " than the catalog");
+            }
+        }
+    }
+
+    /**
+     * Deals the characters the viewer cannot place to the seats that have not revealed theirs, the
+     * face down card and, if the viewer is not picking, the draft pool. A character is revealed once
+     * its turn is called, and an assassination stays with the character it was aimed at.
+     * @param state  the true state
+     * @param viewer the seat whose knowledge the sample must agree with
+     * @param random the source for shuffling
+     * @return true if characters were dealt into {@code seatCharacters}, {@code seatAssassinated},
+     *         {@code sampledPool} and {@code sampledHidden}, false if there was nothing to deal
+     */
+    private boolean sampleCharacters(GameState state, int viewer, SplittableRandom random) {
+        int numPlayers = state.getNumPlayers();
+        boolean selecting = state.getPhase() == GameEngine.Phase.SELECT_CHARACTER;
+        int called = selecting ? 0 : state.getSeat(state.getCurrentSeat()).character;
+        int[] draftPool = state.getDraftPool();
+        boolean picking = selecting && state.getCurrentSeat() == viewer;
+        // With seven players the last seat to pick is also offered the face down card
+        boolean pickedLast = numPlayers == 7 && (viewer - state.getCrownedSeat() + numPlayers) % numPlayers == numPlayers - 1;
+
+        Arrays.fill(knownCharacters, false);
+        for (int character : state.getFaceUp()) {
+            knownCharacters[character] = true;
+        }
+        knownCharacters[state.getSeat(viewer).character] = true;
+        for (int character = 1; character <= called; character++) {
+            knownCharacters[character] = true;
+        }
+        if (picking) {
+            for (int character : draftPool) {
+                knownCharacters[character] = true;
+            }
+            if (pickedLast) {
+                knownCharacters[state.getHiddenCharacter()] = true;
+            }
+        } else if (!selecting && pickedLast) {
+            // The last seat saw the one character nobody took
+            for (int character = 1; character < knownCharacters.length; character++) {
+                if (!isHeld(state, character)) {
+                    knownCharacters[character] = true;
+                }
+            }
+        }
+
+        int hidden = 0;
+        for (int seat = 0; seat < numPlayers; seat++) {
+            if (seat != viewer && state.getSeat(seat).character > called) {
+                hiddenSeats[hidden++] = seat;
+            }
+        }
+        boolean dealHidden = state.getHiddenCharacter() != 0 && !knownCharacters[state.getHiddenCharacter()];
+        boolean dealPool = selecting && !picking;
+        int needed = hidden + (dealHidden ? 1 : 0) + (dealPool ? draftPool.length : 0);
+        if (needed == 0) {
+            return false;
+        }
+        int available = 0;
+        for (int character = 1; character < knownCharacters.length; character++) {
+            if (!knownCharacters[character]) {
+                unknownCharacters[available++] = character;
+            }
+        }
+        for (int i = 0; i < needed; i++) {
+            int j = i + random.nextInt(available - i);
+            int swap = unknownCharacters[i];
+            unknownCharacters[i] = unknownCharacters[j];
+            unknownCharacters[j] = swap;
+        }
+
+        for (int seat = 0; seat < numPlayers; seat++) {
+            seatCharacters[seat] = state.getSeat(seat).character;
+            seatAssassinated[seat] = state.getSeat(seat).assassinated;
+        }
+        // Assassinations follow the character, so look them up from the seat that really holds it
+        int dealt = 0;
+        for (int i = 0; i < hidden; i++) {
+            int character = unknownCharacters[dealt++];
+            seatCharacters[hiddenSeats[i]] = character;
+            seatAssassinated[hiddenSeats[i]] = isAssassinated(state, character);
+        }
+        sampledHidden = dealHidden ? unknownCharacters[dealt++] : state.getHiddenCharacter();
+        sampledPool = draftPool;
+        if (dealPool) {
+            sampledPool = new int[draftPool.length];
+            System.arraycopy(unknownCharacters, dealt, sampledPool, 0, sampledPool.length);
+        }
+        return true;
+    }
+
+    private static boolean isHeld(GameState state, int character) {
+        for (int seat = 0; seat < state.getNumPlayers(); seat++) {
+            if (state.getSeat(seat).character == character) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean isAssassinated(GameState state, int character) {
+        for (int seat = 0; seat < state.getNumPlayers(); seat++) {
+            if (state.getSeat(seat).character == character) {
+                return state.getSeat(seat).assassinated;
+            }
+        }
+        return false;
+    }
+}
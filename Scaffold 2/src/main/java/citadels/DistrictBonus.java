@@ -0,0 +1,50 @@
+package citadels;
+
+/**
+ * The end of game bonus a purple district gives on top of its cost.
+ */
+public enum DistrictBonus {
+    /** No bonus. */
+    NONE,
+    /** University and Dragon Gate: 2 extra points. */
+    TWO_POINTS,
+    /** Museum: 1 extra point. */
+    ONE_POINT,
+    /** Imperial Treasury: 1 point per gold. */
+    POINT_PER_GOLD,
+    /** Map Room: 1 point per card in hand. */
+    POINT_PER_CARD,
+    /** Wishing Well: 1 point per other purple district. */
+    POINT_PER_PURPLE,
+    /** Poor House: 1 point when the player has no gold. */
+    NO_GOLD,
+    /** Park: 2 points when the player has no cards in hand. */
+    EMPTY_HAND;
+
+    /**
+     * Returns the bonus of the district with the given name.
+     * @param name the district name
+     * @return the district's bonus, {@link #NONE} for districts without one
+     */
+    public static DistrictBonus of(String name) {
+        switch (name) {
+            case "University":
+            case "Dragon Gate":
+                return TWO_POINTS;
+            case "Museum":
+                return ONE_POINT;
+            case "Imperial Treasury":
+                return POINT_PER_GOLD;
+            case "Map Room":
+                return POINT_PER_CARD;
+            case "Wishing Well":
+                return POINT_PER_PURPLE;
+            case "Poor House":
+                return NO_GOLD;
+            case "Park":
+                return EMPTY_HAND;
+            default:
+                return NONE;
+        }
+    }
+}
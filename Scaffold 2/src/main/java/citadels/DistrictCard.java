@@ -1,30 +1,69 @@
 package citadels;
 
-import org.json.simple.JSONObject;
-
 /**
  * Represents a district card in the Citadels game. Each district card has a name,
- * color, cost, and an optional description
+ * color, cost, and an optional description.
+ * Cards from a {@link DistrictCatalog} also carry the catalog id of their district, and every
+ * copy of a district in a deck is the same shared instance.
  */
 public class DistrictCard extends Card {
+    private final int id;
     private final String color;
+    private final DistrictColor colorType;
+    private final DistrictBonus bonus;
     private final int cost;
     private final String description;
 
     /**
-     * Constructs a DistrictCard with the specified properties.
+     * Constructs a DistrictCard with the specified properties that does not belong to a catalog.
      * @param name        the name of the district
      * @param color       the color category of the district
      * @param cost        the cost in gold required to build the district
      * @param description the description of the district's ability 
      */
     public DistrictCard(String name, String color, int cost, String description) {
+        this(DistrictCatalog.NO_ID, name, color, cost, description);
+    }
+
+    /**
+     * Constructs a catalog DistrictCard with the specified id and properties.
+     * @param id          the catalog id of the district
+     * @param name        the name of the district
+     * @param color       the color category of the district
+     * @param cost        the cost in gold required to build the district
+     * @param description the description of the district's ability
+     */
+    DistrictCard(int id, String name, String color, int cost, String description) {
         super(name);
+        this.id = id;
         this.color = color;
+        this.colorType = DistrictColor.of(color);
+        this.bonus = DistrictBonus.of(name);
         this.cost = cost;
         this.description = description;
     }
 
+    /**
+     * Returns the catalog id of the district.
+     * @return the district id, or {@link DistrictCatalog#NO_ID} if the card is not from a catalog
+     */
+    public int getId() {
+        return this.id;
+    }
+
+    /**
+     * Checks whether this card is the same district as another card. Catalog cards compare
+     * their ids; other cards compare names.
+     * @param other the card to compare with
+     * @return true if both cards are the same district
+     */
+    public boolean isSameDistrict(DistrictCard other) {
+        if (this.id != DistrictCatalog.NO_ID && other.id != DistrictCatalog.NO_ID) {
+            return this.id == other.id;
+        }
+        return getName().equals(other.getName());
+    }
+
     /**
      * Returns the color of the district.
      * @return the color of the district
@@ -33,6 +72,22 @@ public class DistrictCard extends Card {
         return this.color;
     }
 
+    /**
+     * Returns the color of the district as a {@link DistrictColor}.
+     * @return the district color, or null if the color is not one of the five district colors
+     */
+    public DistrictColor getColorType() {
+        return this.colorType;
+    }
+
+    /**
+     * Returns the end of game bonus the district gives on top of its cost.
+     * @return the district's bonus
+     */
+    public DistrictBonus getBonus() {
+        return this.bonus;
+    }
+
     /**
      * Returns the cost of the district.
      * @return the cost in gold to build the district
@@ -0,0 +1,226 @@
+package citadels;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * The immutable list of distinct districts in the game and how many copies of each the deck holds.
+ * Each district gets a compact id, its position in the catalog, and a single shared
+ * {@link DistrictCard} instance that every deck, hand and city refers to.
+ */
+public final class DistrictCatalog {
+    /** Id used by district cards that were not created from a catalog. */
+    public static final int NO_ID = -1;
+
+    private final DistrictCard[] districts;
+    private final int[] quantities;
+    private final Map<String, Integer> idsByName;
+    private final int totalCards;
+    /** Every copy of every district in id order: the unshuffled full deck, copied into new decks. */
+    private final DistrictCard[] fullDeck;
+
+    private DistrictCatalog(List<DistrictCard> districts, List<Integer> quantities) {
+        this.districts = districts.toArray(new DistrictCard[0]);
+        this.quantities = new int[quantities.size()];
+        this.idsByName = new HashMap<>();
+        int total = 0;
+        for (int id = 0; id < this.quantities.length; id++) {
+            this.quantities[id] = quantities.get(id);
+            this.idsByName.put(this.districts[id].getName(), id);
+            total += this.quantities[id];
+        }
+        this.totalCards = total;
+        this.fullDeck = new DistrictCard[total];
+        int next = 0;
+        for (int id = 0; id < this.districts.length; id++) {
+            for (int i = 0; i < this.quantities[id]; i++) {
+                fullDeck[next++] = this.districts[id];
+            }
+        }
+    }
+
+    /**
+     * Returns the catalog parsed from the bundled cards.tsv resource. It is parsed on first use
+     * and shared for the lifetime of the JVM.
+     * @return the standard catalog
+     * @throws UncheckedIOException if the resource is missing or cannot be read
+     */
+    public static DistrictCatalog standard() {
+        return Standard.CATALOG;
+    }
+
+    /** Parses the bundled catalog the first time {@link #standard()} is called. */
+    private static final class Standard {
+        static final DistrictCatalog CATALOG = loadResource();
+
+        private static DistrictCatalog loadResource() {
+            try (InputStream in = DistrictCatalog.class.getClassLoader().getResourceAsStream("cards.tsv")) {
+                if (in == null) {
+                    throw new FileNotFoundException("cards.tsv is not on the classpath");
+                }
+                return load(in);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Cannot read cards.tsv", e);
+            }
+        }
+    }
+
+    /**
+     * Parses a catalog from tab-separated UTF-8 text and closes the stream.
+     * The first line is a header, and each following line has name, quantity, color, cost and optionally text.
+     * Lines with fewer than four columns are skipped, and lines may end with either line terminator.
+     * @param in the input stream to read the districts from
+     * @return the parsed catalog
+     * @throws UncheckedIOException if the stream cannot be read
+     * @throws NumberFormatException if a quantity or cost is not a number
+     */
+    public static DistrictCatalog load(InputStream in) {
+        byte[] data;
+        try (in) {
+            data = in.readAllBytes();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return parse(data);
+    }
+
+    /**
+     * Parses a catalog in place from the bytes of the text, one line and one tab at a time.
+     * @param data the whole text
+     * @return the parsed catalog
+     */
+    private static DistrictCatalog parse(byte[] data) {
+        List<DistrictCard> districts = new ArrayList<>();
+        List<Integer> quantities = new ArrayList<>();
+        int pos = lineEnd(data, 0) + 1; // skip header
+        while (pos < data.length) {
+            int end = lineEnd(data, pos);
+            int last = end > pos && data[end - 1] == '\r' ? end - 1 : end;
+            int nameEnd = columnEnd(data, pos, last);
+            int quantityEnd = columnEnd(data, nameEnd + 1, last);
+            int colorEnd = columnEnd(data, quantityEnd + 1, last);
+            if (colorEnd < last) { // require at least name, quantity, color, cost
+                int costEnd = columnEnd(data, colorEnd + 1, last);
+                String name = text(data, pos, nameEnd);
+                int quantity = parseNumber(data, nameEnd + 1, quantityEnd);
+                String color = text(data, quantityEnd + 1, colorEnd);
+                int cost = parseNumber(data, colorEnd + 1, costEnd);
+                String text = costEnd < last ? text(data, costEnd + 1, columnEnd(data, costEnd + 1, last)) : "";
+
+                districts.add(new DistrictCard(districts.size(), name, color, cost, text));
+                quantities.add(quantity);
+            }
+            pos = end + 1;
+        }
+        return new DistrictCatalog(districts, quantities);
+    }
+
+    /** Returns the index of the line feed ending the line at {@code from}, or the length of the data. */
+    private static int lineEnd(byte[] data, int from) {
+        while (from < data.length && data[from] != '\n') {
+            from++;
+        }
+        return from;
+    }
+
+    /**
+     * Returns the index of the tab ending the column at {@code from}, or {@code last} if it is
+     * the last column. A column starting past {@code last} ends where it starts.
+     */
+    private static int columnEnd(byte[] data, int from, int last) {
+        while (from < last && data[from] != '\t') {
+            from++;
+        }
+        return from;
+    }
+
+    private static String text(byte[] data, int from, int to) {
+        return new String(data, from, to - from, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Parses a non-negative decimal number.
+     * @throws NumberFormatException if the bytes are empty or not all digits
+     */
+    private static int parseNumber(byte[] data, int from, int to) {
+        if (from >= to) {
+            throw new NumberFormatException("Missing number");
+        }
+        int value = 0;
+        for (int i = from; i < to; i++) {
+            int digit = data[i] - '0';
+            if (digit < 0 || digit > 9) {
+                throw new NumberFormatException("Not a number: " + text(data, from, to));
+            }
+            value = value * 10 + digit;
+        }
+        return value;
+    }
+
+    /**
+     * Returns the shared card for a district id.
+     * @param id the district id
+     * @return the district card
+     */
+    public DistrictCard get(int id) {
+        return districts[id];
+    }
+
+    /**
+     * Returns how many copies of a district the full deck holds.
+     * @param id the district id
+     * @return the number of copies
+     */
+    public int getQuantity(int id) {
+        return quantities[id];
+    }
+
+    /**
+     * Returns the id of the district with the given name.
+     * @param name the district name
+     * @return the district id, or {@link #NO_ID} if the catalog has no such district
+     */
+    public int idOf(String name) {
+        Integer id = idsByName.get(name);
+        return id == null ? NO_ID : id;
+    }
+
+    /**
+     * Returns the shared card for the district with the given name.
+     * @param name the district name
+     * @return the district card, or null if the catalog has no such district
+     */
+    public DistrictCard byName(String name) {
+        int id = idOf(name);
+        return id == NO_ID ? null : districts[id];
+    }
+
+    /**
+     * Returns the number of distinct districts.
+     * @return the number of district ids
+     */
+    public int size() {
+        return districts.length;
+    }
+
+    /**
+     * Returns the number of cards in a full deck, counting every copy.
+     * @return the total number of cards
+     */
+    public int getTotalCards() {
+        return totalCards;
+    }
+
+    /**
+     * Copies part of the unshuffled full deck, which holds every copy of every district in id
+     * order, into an array.
+     * @param from    the position in the full deck of the first card to copy
+     * @param dest    the array to copy into
+     * @param destPos where the first card goes
+     * @param count   the number of cards to copy
+     */
+    void copyDeck(int from, DistrictCard[] dest, int destPos, int count) {
+        System.arraycopy(fullDeck, from, dest, destPos, count);
+    }
+}
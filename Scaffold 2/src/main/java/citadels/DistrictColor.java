@@ -0,0 +1,39 @@
+package citadels;
+
+/**
+ * The five district colors. Each color has a bit so a set of colors fits in one int.
+ */
+public enum DistrictColor {
+    RED,
+    YELLOW,
+    GREEN,
+    BLUE,
+    PURPLE;
+
+    /** Bit mask with the bit of every color set. */
+    public static final int ALL = (1 << values().length) - 1;
+
+    private static final DistrictColor[] VALUES = values();
+
+    /**
+     * Returns the bit of this color in a color mask.
+     * @return the color bit
+     */
+    public int bit() {
+        return 1 << ordinal();
+    }
+
+    /**
+     * Returns the color with the given name, ignoring case.
+     * @param name the color name, for example "red"
+     * @return the color, or null if the name is not a district color
+     */
+    public static DistrictColor of(String name) {
+        for (DistrictColor color : VALUES) {
+            if (color.name().equalsIgnoreCase(name)) {
+                return color;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,86 @@
+package citadels;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Appends recorded games to a binary log file. Each game is written as its encoded length followed
+ * by its records, so a reader can skip whole games. Games are gathered in a direct buffer and written
+ * to the file channel when it fills, so recording many small games costs few system calls.
+ * Appending is synchronized, so games played on several threads can share one appender.
+ */
+public final class EventLogAppender implements Closeable {
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final FileChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+    private final byte[] header = new byte[5];
+
+    private EventLogAppender(FileChannel channel) {
+        this.channel = channel;
+    }
+
+    /**
+     * Opens a log for appending, creating the file if it does not exist.
+     * @param path the log file
+     * @return the appender
+     * @throws IOException if the file cannot be opened
+     */
+    public static EventLogAppender open(Path path) throws IOException {
+        return new EventLogAppender(FileChannel.open(path, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.APPEND));
+    }
+
+    /**
+     * Appends the records of one game.
+     * @param game the recorded game
+     * @throws IOException if the log cannot be written
+     */
+    public synchronized void append(EventRecorder game) throws IOException {
+        int headerLength = EventRecorder.writeVarint(header, 0, game.length());
+        if (buffer.remaining() < headerLength + game.length()) {
+            flush();
+        }
+        if (buffer.remaining() < headerLength + game.length()) {
+            // Larger than the whole buffer, so it is written straight through
+            write(ByteBuffer.wrap(header, 0, headerLength));
+            write(ByteBuffer.wrap(game.array(), 0, game.length()));
+        } else {
+            buffer.put(header, 0, headerLength);
+            buffer.put(game.array(), 0, game.length());
+        }
+    }
+
+    /**
+     * Writes any buffered games to the file.
+     * @throws IOException if the log cannot be written
+     */
+    public synchronized void flush() throws IOException {
+        buffer.flip();
+        write(buffer);
+        buffer.clear();
+    }
+
+    private void write(ByteBuffer source) throws IOException {
+        while (source.hasRemaining()) {
+            channel.write(source);
+        }
+    }
+
+    /**
+     * Writes any buffered games and closes the file.
+     * @throws IOException if the log cannot be written
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        try {
+            flush();
+        } finally {
+            channel.close();
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package citadels;
+
+import java.util.Arrays;
+
+/**
+ * Collects the events of one game as compact binary records. Each record is the event code,
+ * the seat and a zigzag-encoded value, all written as variable-length integers, so most records
+ * take three bytes. A recorder can be cleared and reused for the next game.
+ * As a {@link GameEventSink} it records a game's events and wants no messages.
+ */
+public final class EventRecorder implements GameEventSink {
+    private byte[] bytes = new byte[1024];
+    private int length;
+
+    /**
+     * Appends a record.
+     * @param event the kind of event
+     * @param seat  the seat the event applies to
+     * @param value the event value, which may be negative
+     */
+    public void record(GameEvent event, int seat, int value) {
+        if (length + 15 > bytes.length) {
+            bytes = Arrays.copyOf(bytes, bytes.length * 2);
+        }
+        length = writeVarint(bytes, length, event.ordinal());
+        length = writeVarint(bytes, length, seat);
+        length = writeVarint(bytes, length, (value << 1) ^ (value >> 31));
+    }
+
+    @Override
+    public void onEvent(GameEvent event, int seat, int value) {
+        record(event, seat, value);
+    }
+
+    /**
+     * Writes an unsigned variable-length integer, seven bits per byte with the high bit set on
+     * every byte but the last.
+     * @param buffer the array to write to, with at least five bytes free
+     * @param offset the position to write at
+     * @param value  the value to write
+     * @return the position after the written bytes
+     */
+    static int writeVarint(byte[] buffer, int offset, int value) {
+        while ((value & ~0x7F) != 0) {
+            buffer[offset++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        buffer[offset++] = (byte) value;
+        return offset;
+    }
+
+    /**
+     * Removes every record so the recorder can be used for another game.
+     */
+    public void clear() {
+        length = 0;
+    }
+
+    /**
+     * Returns the number of bytes recorded.
+     * @return the encoded length
+     */
+    public int length() {
+        return length;
+    }
+
+    /**
+     * Returns the array holding the records. Only the first {@link #length()} bytes are used.
+     * @return the backing array
+     */
+    byte[] array() {
+        return bytes;
+    }
+}
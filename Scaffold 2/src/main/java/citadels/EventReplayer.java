@@ -0,0 +1,213 @@
+package citadels;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Rebuilds games from a binary event log written by {@link EventLogAppender}. Each call to
+ * {@link #nextGame()} applies the records of the next game to fresh players, leaving the state
+ * the game was in when its last record was written: each seat's gold, hand, city and character,
+ * the crown and the round. The deck is not logged, so a replayed game cannot be played on.
+ */
+public final class EventReplayer {
+    private final ByteBuffer log;
+    private final DistrictCatalog catalog;
+    private List<Player> players;
+    private int crownedPlayerIndex;
+    private int round;
+    private int winnerIndex;
+
+    /**
+     * Creates a replayer over encoded games.
+     * @param log     the log contents, read from its position to its limit
+     * @param catalog the catalog the card ids refer to
+     */
+    public EventReplayer(ByteBuffer log, DistrictCatalog catalog) {
+        this.log = log;
+        this.catalog = catalog;
+    }
+
+    /**
+     * Opens a log file for replay, mapping it into memory.
+     * @param path    the log file
+     * @param catalog the catalog the card ids refer to
+     * @return the replayer
+     * @throws IOException if the file cannot be read
+     */
+    public static EventReplayer open(Path path, DistrictCatalog catalog) throws IOException {
+        try (FileChannel channel = FileChannel.open(path)) {
+            return new EventReplayer(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()), catalog);
+        }
+    }
+
+    /**
+     * Replays the next game in the log.
+     * @return true if a game was replayed, false at the end of the log
+     * @throws IllegalStateException if the log is malformed
+     */
+    public boolean nextGame() {
+        if (!log.hasRemaining()) {
+            return false;
+        }
+        int end = readVarint();
+        end += log.position();
+        if (end > log.limit()) {
+            throw new IllegalStateException("Truncated game at " + log.position());
+        }
+        players = null;
+        crownedPlayerIndex = 0;
+        round = 0;
+        winnerIndex = -1;
+        while (log.position() < end) {
+            GameEvent event = GameEvent.of(readVarint());
+            int seat = readVarint();
+            int zigzag = readVarint();
+            apply(event, seat, (zigzag >>> 1) ^ -(zigzag & 1));
+        }
+        if (log.position() != end) {
+            throw new IllegalStateException("Record runs past the end of its game at " + end);
+        }
+        return true;
+    }
+
+    /**
+     * Applies one record to the replayed state.
+     * @param event the kind of event
+     * @param seat  the seat the event applies to
+     * @param value the event value
+     */
+    private void apply(GameEvent event, int seat, int value) {
+        if (event == GameEvent.GAME_START) {
+            if (seat <= 0) {
+                throw new IllegalStateException("Game with " + seat + " players");
+            }
+            players = new ArrayList<>(seat);
+            for (int i = 1; i <= seat; i++) {
+                players.add(new Player("Player " + i));
+            }
+            return;
+        }
+        if (players == null) {
+            throw new IllegalStateException("Event " + event + " before the game started");
+        }
+        switch (event) {
+            case ROUND_START:
+                round = value;
+                for (Player player : players) {
+                    player.assignCharacter(null);
+                }
+                break;
+            case CROWN:
+                player(seat);
+                crownedPlayerIndex = seat;
+                break;
+            case CHARACTER_CHOSEN:
+                if (value < 1 || value > 8) {
+                    throw new IllegalStateException("Unknown character " + value);
+                }
+                player(seat).assignCharacter(CharacterCard.of(CharacterRole.byTurnOrder(value)));
+                break;
+            case CARD_DRAWN:
+                player(seat).drawCard(card(value));
+                break;
+            case CARD_RETURNED:
+                player(seat).getHand().remove(card(value));
+                break;
+            case GOLD:
+                player(seat).addGold(value);
+                break;
+            case DISTRICT_BUILT:
+                player(seat).buildDistrict(card(value));
+                break;
+            case DISTRICT_DESTROYED:
+                player(seat).getBuiltDistricts().remove(card(value));
+                break;
+            case ASSASSINATED:
+                player(seat).setAssassinated(true);
+                break;
+            case GAME_OVER:
+                player(seat);
+                winnerIndex = seat;
+                break;
+            default:
+                break;
+        }
+    }
+
+    /**
+     * Returns the catalog card for an id read from the log.
+     * @param id the card id
+     * @return the district card
+     * @throws IllegalStateException if the catalog has no card with that id
+     */
+    private DistrictCard card(int id) {
+        if (id < 0 || id >= catalog.size()) {
+            throw new IllegalStateException("Unknown card id " + id);
+        }
+        return catalog.get(id);
+    }
+
+    /**
+     * Returns the player in a seat read from the log.
+     * @param seat the seat
+     * @return the replayed player
+     * @throws IllegalStateException if the game has no such seat
+     */
+    private Player player(int seat) {
+        if (seat < 0 || seat >= players.size()) {
+            throw new IllegalStateException("Unknown seat " + seat + " in a game of " + players.size());
+        }
+        return players.get(seat);
+    }
+
+    private int readVarint() {
+        int value = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            if (!log.hasRemaining()) {
+                throw new IllegalStateException("Truncated record at " + log.position());
+            }
+            byte b = log.get();
+            value |= (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+        throw new IllegalStateException("Malformed varint at " + log.position());
+    }
+
+    /**
+     * Returns the players of the last replayed game in seat order.
+     * @return the rebuilt players
+     */
+    public List<Player> getPlayers() {
+        return players;
+    }
+
+    /**
+     * Returns the index of the player holding the crown in the last replayed game.
+     * @return the crowned seat
+     */
+    public int getCrownedPlayerIndex() {
+        return crownedPlayerIndex;
+    }
+
+    /**
+     * Returns the last round reached by the replayed game.
+     * @return the round number
+     */
+    public int getRound() {
+        return round;
+    }
+
+    /**
+     * Returns the winner's seat of the last replayed game.
+     * @return the winning seat, or -1 if the game was not finished
+     */
+    public int getWinnerIndex() {
+        return winnerIndex;
+    }
+}
@@ -0,0 +1,69 @@
+package citadels;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Writes the game messages to a text file through a large buffer, so a long run of games is
+ * written in big blocks instead of a line at a time. Close the sink to write what is left.
+ */
+public final class FileEventSink implements GameEventSink, Closeable {
+    /** Characters buffered before they are written to the file. */
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final BufferedWriter writer;
+
+    private FileEventSink(BufferedWriter writer) {
+        this.writer = writer;
+    }
+
+    /**
+     * Opens a file for writing, replacing anything already in it.
+     * @param path the file
+     * @return the sink
+     * @throws IOException if the file cannot be opened
+     */
+    public static FileEventSink open(Path path) throws IOException {
+        return new FileEventSink(new BufferedWriter(
+            new OutputStreamWriter(Files.newOutputStream(path), StandardCharsets.UTF_8), BUFFER_SIZE));
+    }
+
+    @Override
+    public void onEvent(GameEvent event, int seat, int value) {
+    }
+
+    @Override
+    public boolean wantsMessages() {
+        return true;
+    }
+
+    /**
+     * Writes a message and a line break.
+     * @param message the message
+     * @throws UncheckedIOException if the file cannot be written
+     */
+    @Override
+    public void onMessage(String message) {
+        try {
+            writer.write(message);
+            writer.newLine();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Writes what is left in the buffer and closes the file.
+     * @throws IOException if the file cannot be written
+     */
+    @Override
+    public void close() throws IOException {
+        writer.close();
+    }
+}
@@ -0,0 +1,97 @@
+package citadels;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * The JDK Flight Recorder events of a game, so a recording of a stalled table shows what the
+ * engine was doing next to the GC and thread events of the same moment. Every event carries the
+ * table, round and seat it happened at.
+ * <p>
+ * Only engines with a table id report, so the throwaway engines of the tree search stay out of
+ * recordings. The events are disabled unless a recording enables them, and a disabled event
+ * costs one small allocation and a flag check.
+ */
+final class FlightEvents {
+    private FlightEvents() {
+    }
+
+    /**
+     * The fields every game event carries.
+     */
+    @Category("Citadels")
+    abstract static class TableEvent extends Event {
+        @Label("Table")
+        int tableId;
+
+        @Label("Round")
+        int round;
+
+        @Label("Seat")
+        @Description("The seat of the player the event applies to, or -1 for the whole table")
+        int seat;
+
+        /**
+         * Fills in where the event happened and commits it if the recording wants it.
+         * @param game the game the event happened in
+         * @param seat the seat of the player, or -1 for the whole table
+         */
+        void commit(GameEngine game, int seat) {
+            if (shouldCommit()) {
+                this.tableId = game.getTableId();
+                this.round = game.getRound();
+                this.seat = seat;
+                commit();
+            }
+        }
+    }
+
+    @Name("citadels.RoundStart")
+    @Label("Round Start")
+    static final class RoundStart extends TableEvent {
+    }
+
+    @Name("citadels.Draft")
+    @Label("Character Draft")
+    @Description("From the start of a round until every player has picked a character")
+    static final class Draft extends TableEvent {
+    }
+
+    @Name("citadels.Turn")
+    @Label("Character Turn")
+    static final class Turn extends TableEvent {
+        @Label("Character")
+        String character;
+    }
+
+    @Name("citadels.Ability")
+    @Label("Ability")
+    static final class Ability extends TableEvent {
+        @Label("Character")
+        String character;
+
+        @Label("Target")
+        @Description("The index of the chosen target, or -1 for an ability without one")
+        int target;
+    }
+
+    @Name("citadels.Scoring")
+    @Label("Scoring")
+    static final class Scoring extends TableEvent {
+        @Label("Winning Score")
+        int winningScore;
+    }
+
+    @Name("citadels.Snapshot")
+    @Label("Snapshot")
+    static final class Snapshot extends TableEvent {
+        @Label("Operation")
+        String operation;
+
+        @Label("Path")
+        String path;
+    }
+}
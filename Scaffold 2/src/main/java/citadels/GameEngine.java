@@ -0,0 +1,1320 @@
+package citadels;
+
+import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.util.*;
+
+/**
+ * Runs a game of Citadels without any console input. The engine owns the deck, the players
+ * and the crown, and moves through the game one decision at a time: every decision is an
+ * {@link Action} passed to {@link #step(Action)}. Seats that are not marked as human are
+ * played by the {@link Computer}, so a game of computer players can be run with {@link #runToEnd()}.
+ */
+public final class GameEngine {
+
+    /**
+     * The decision the game is waiting for.
+     */
+    public enum Phase {
+        /** The current player picks a character from the draft choices. */
+        SELECT_CHARACTER,
+        /** The current player (Assassin or Thief) uses their ability before anything else. */
+        START_ABILITY,
+        /** The current player collects 2 gold or draws two cards. */
+        TAKE_RESOURCES,
+        /** The current player keeps one of the two cards they drew. */
+        KEEP_CARD,
+        /** The current player builds, uses their ability or ends their turn. */
+        MAIN,
+        /** The game has finished and the scores are final. */
+        GAME_OVER
+    }
+
+    /** Number of districts that completes a city and ends the game. */
+    public static final int CITY_SIZE = 8;
+
+    /** Rounds after which the game is scored even if no city is complete, so stalled games still finish. */
+    public static final int MAX_ROUNDS = 100;
+
+    /** The most players a game can have. */
+    private static final int MAX_PLAYERS = 7;
+
+    private final Deck deck;
+    private final List<Player> players;
+    private final Computer computer;
+    private SplittableRandom random;
+    private GameEventSink sink;
+    private boolean logging;
+    private GameMetrics metrics;
+    private int tableId = -1;
+    private boolean[] humanSeats;
+    private final CharacterDraft.PickPolicy[] pickPolicies = new CharacterDraft.PickPolicy[MAX_PLAYERS];
+    private int crownedPlayerIndex;
+    private int round;
+    private Phase phase;
+
+    // Selection phase state
+    private long selectionStart;
+    private FlightEvents.Draft draftEvent;
+    private final CharacterDraft draft = new CharacterDraft();
+    private int selectionIndex;
+
+    // Turn phase state
+    private long turnStart;
+    private FlightEvents.Turn turnEvent;
+    private final Player[] playersByTurnOrder = new Player[9];
+    private int turnOrder;
+    private Player currentPlayer;
+    private DistrictCard[] drawnCards = new DistrictCard[2];
+    private int buildsThisTurn;
+    private boolean abilityUsed;
+
+    // End of game state
+    private Player firstToFinish;
+    private int[] scores;
+    private Player winner;
+
+    /**
+     * Creates a game with the given deck and players. Every seat is played by the computer
+     * until marked as human with {@link #setHuman(int, boolean)}.
+     *
+     * @param deck    the district deck, already loaded and shuffled
+     * @param players the players in seat order
+     * @param out     where game messages are printed, or null to run silently
+     * @throws IllegalArgumentException if there are not between 4 and 7 players
+     */
+    public GameEngine(Deck deck, List<Player> players, PrintStream out) {
+        this(deck, players, out, new SplittableRandom());
+    }
+
+    /**
+     * Creates a game that takes every random decision, from the crown to the draft and the
+     * computer players' choices, from the given source. Games created with equal sources and
+     * decks shuffled from the same seed play out the same way.
+     *
+     * @param deck    the district deck, already loaded and shuffled
+     * @param players the players in seat order
+     * @param out     where game messages are printed, or null to run silently
+     * @param random  the game's source of randomness
+     * @throws IllegalArgumentException if there are not between 4 and 7 players
+     */
+    public GameEngine(Deck deck, List<Player> players, PrintStream out, SplittableRandom random) {
+        if (players.size() < 4 || players.size() > 7) {
+            throw new IllegalArgumentException("Number of players must be between 4-7");
+        }
+        this.deck = deck;
+        this.players = players;
+        seatPlayers();
+        setEventSink(out == null ? GameEventSink.NONE : new ConsoleEventSink(out));
+        this.random = random;
+        this.humanSeats = new boolean[players.size()];
+        this.computer = new Computer(this);
+    }
+
+    /**
+     * Marks a seat as controlled by a human, so the engine waits for its decisions
+     * instead of asking the computer.
+     * @param seat  the index of the player
+     * @param human true if the seat is played by a human
+     */
+    public void setHuman(int seat, boolean human) {
+        humanSeats[seat] = human;
+    }
+
+    /**
+     * Returns whether a seat is controlled by a human.
+     * @param seat the index of the player
+     * @return true if the seat is played by a human
+     */
+    public boolean isHuman(int seat) {
+        return seat >= 0 && seat < humanSeats.length && humanSeats[seat];
+    }
+
+    /**
+     * Sends this game's events, and its messages if the sink wants them, to a sink from now on.
+     * The engine's print stream is replaced. Attach an {@link EventRecorder} before
+     * {@link #start()} to record a game that can be replayed.
+     * @param sink the sink, or null to run silently
+     */
+    public void setEventSink(GameEventSink sink) {
+        this.sink = sink == null ? GameEventSink.NONE : sink;
+        this.logging = this.sink.wantsMessages();
+    }
+
+    /**
+     * Returns where this game's events go.
+     * @return the sink
+     */
+    public GameEventSink getEventSink() {
+        return sink;
+    }
+
+    /**
+     * Counts this game's events and times its phases in a registry from now on, or stops.
+     * @param metrics the registry, or null to not report
+     */
+    public void setMetrics(GameMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    /**
+     * Returns the registry this game reports to.
+     * @return the registry, or null if the game does not report
+     */
+    public GameMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Numbers this game for the flight recorder, or stops its flight recorder events.
+     * @param tableId the table number, or -1 to not emit events
+     */
+    public void setTableId(int tableId) {
+        this.tableId = tableId;
+    }
+
+    /**
+     * Returns the number this game is known by in flight recordings.
+     * @return the table number, or -1 if the game emits no events
+     */
+    public int getTableId() {
+        return tableId;
+    }
+
+    /**
+     * Returns whether anyone reads the game messages. Code building a message from parts checks
+     * this first, so silent games skip the formatting.
+     * @return true if messages passed to {@link #log(String)} are used
+     */
+    public boolean isLogging() {
+        return logging;
+    }
+
+    /**
+     * Starts a new game: picks a random crowned player, deals four cards to everyone
+     * and opens the first selection phase.
+     */
+    public void start() {
+        crownedPlayerIndex = random.nextInt(players.size());
+        record(GameEvent.GAME_START, players.size(), 0);
+        record(GameEvent.CROWN, crownedPlayerIndex, 0);
+        if (logging) {
+            log(players.get(crownedPlayerIndex).getName() + " is the crowned player and goes first.");
+        }
+        for (Player player : players) {
+            for (int i = 0; i < 4; i++) {
+                DistrictCard card = deck.draw();
+                if (card != null) {
+                    player.drawCard(card);
+                    record(GameEvent.CARD_DRAWN, player, card.getId());
+                }
+            }
+        }
+        round = 1;
+        beginRound();
+    }
+
+    /**
+     * Puts the game back to before {@link #start()} so the same engine, deck and players can play
+     * another game. The deck is refilled and shuffled with a stream split from the new random
+     * source, as {@link Tournament#playGame(long, int)} shuffles a new deck, so a reset game plays
+     * out exactly like a new game with the same source. The players keep their names and seats,
+     * and the seat controls, event sink and metrics are kept.
+     * @param catalog the catalog to refill the deck from
+     * @param random  the new game's source of randomness
+     */
+    public void reset(DistrictCatalog catalog, SplittableRandom random) {
+        this.random = random;
+        deck.reset(catalog, random.split());
+        for (Player player : players) {
+            player.reset();
+        }
+        crownedPlayerIndex = 0;
+        round = 0;
+        phase = null;
+        draft.clear();
+        selectionIndex = 0;
+        draftEvent = null;
+        Arrays.fill(playersByTurnOrder, null);
+        turnOrder = 0;
+        currentPlayer = null;
+        drawnCards[0] = null;
+        drawnCards[1] = null;
+        buildsThisTurn = 0;
+        abilityUsed = false;
+        turnEvent = null;
+        firstToFinish = null;
+        scores = null;
+        winner = null;
+    }
+
+    /**
+     * Writes the players, deck, draft, turn and end of game state for {@link GameSnapshot}.
+     * @param out the buffer to write to
+     * @throws IllegalStateException if the game has not started
+     */
+    void writeState(ByteBuffer out) {
+        if (phase == null) {
+            throw new IllegalStateException("Cannot save a game that has not started");
+        }
+        out.put((byte) players.size());
+        for (int seat = 0; seat < players.size(); seat++) {
+            GameSnapshot.putPlayer(out, players.get(seat), isHuman(seat));
+        }
+        out.putShort((short) deck.size());
+        for (int i = 0; i < deck.size(); i++) {
+            GameSnapshot.putCard(out, deck.peek(i));
+        }
+        out.put((byte) crownedPlayerIndex);
+        out.putInt(round);
+        out.put((byte) phase.ordinal());
+        out.put((byte) players.indexOf(firstToFinish));
+        if (phase == Phase.SELECT_CHARACTER) {
+            out.put((byte) draft.getPool().size());
+            for (CharacterCard card : draft.getPool()) {
+                out.put((byte) card.getTurnOrder());
+            }
+            out.put((byte) (draft.getHidden() == null ? GameSnapshot.NONE : draft.getHidden().getTurnOrder()));
+            out.put((byte) selectionIndex);
+        } else if (phase == Phase.GAME_OVER) {
+            out.put((byte) players.indexOf(winner));
+            for (int score : scores) {
+                out.putInt(score);
+            }
+        } else {
+            out.put((byte) turnOrder);
+            out.put((byte) players.indexOf(currentPlayer));
+            GameSnapshot.putCard(out, drawnCards[0]);
+            GameSnapshot.putCard(out, drawnCards[1]);
+            out.put((byte) buildsThisTurn);
+            out.put((byte) (abilityUsed ? 1 : 0));
+        }
+    }
+
+    /**
+     * Replaces the whole game state with one written by {@link #writeState(ByteBuffer)}.
+     * The whole snapshot is read and checked before anything is replaced, so a snapshot that
+     * cannot be read leaves the game as it was.
+     * The players list is refilled in place, so callers holding it see the restored players.
+     * @param in      the buffer to read from
+     * @param catalog the catalog the card ids refer to
+     * @throws IllegalStateException if the snapshot holds a value out of range
+     * @throws java.nio.BufferUnderflowException if the snapshot is cut short
+     */
+    void readState(ByteBuffer in, DistrictCatalog catalog) {
+        int numPlayers = in.get();
+        if (numPlayers < 4 || numPlayers > 7) {
+            throw new IllegalStateException("Snapshot has " + numPlayers + " players");
+        }
+        List<Player> restored = new ArrayList<>(numPlayers);
+        boolean[] human = new boolean[numPlayers];
+        for (int seat = 0; seat < numPlayers; seat++) {
+            restored.add(GameSnapshot.getPlayer(in, catalog, seat, human));
+        }
+        int deckSize = in.getShort();
+        List<DistrictCard> cards = new ArrayList<>(Math.max(deckSize, 0));
+        for (int i = 0; i < deckSize; i++) {
+            cards.add(GameSnapshot.getCard(in, catalog));
+        }
+        int crowned = checkSeat(in.get(), numPlayers, false, "crowned seat");
+        int savedRound = in.getInt();
+        int phaseCode = in.get();
+        if (phaseCode < 0 || phaseCode >= Phase.values().length) {
+            throw new IllegalStateException("Snapshot has unknown phase " + phaseCode);
+        }
+        Phase savedPhase = Phase.values()[phaseCode];
+        int finished = checkSeat(in.get(), numPlayers, true, "first seat to finish");
+
+        List<CharacterCard> pool = new ArrayList<>();
+        CharacterCard hidden = null;
+        int savedSelection = 0;
+        int winnerSeat = GameSnapshot.NONE;
+        int[] savedScores = null;
+        int savedTurnOrder = 0;
+        int current = GameSnapshot.NONE;
+        DistrictCard drawn0 = null;
+        DistrictCard drawn1 = null;
+        int builds = 0;
+        boolean used = false;
+        if (savedPhase == Phase.SELECT_CHARACTER) {
+            int poolSize = in.get();
+            for (int i = 0; i < poolSize; i++) {
+                pool.add(GameSnapshot.getCharacter(in));
+            }
+            hidden = GameSnapshot.getCharacter(in);
+            savedSelection = checkSeat(in.get(), numPlayers, false, "pick");
+            current = (crowned + savedSelection) % numPlayers;
+        } else if (savedPhase == Phase.GAME_OVER) {
+            winnerSeat = checkSeat(in.get(), numPlayers, true, "winner");
+            savedScores = new int[numPlayers];
+            for (int i = 0; i < numPlayers; i++) {
+                savedScores[i] = in.getInt();
+            }
+        } else {
+            CharacterCard turn = GameSnapshot.getCharacter(in);
+            savedTurnOrder = turn == null ? 0 : turn.getTurnOrder();
+            current = checkSeat(in.get(), numPlayers, true, "current seat");
+            drawn0 = GameSnapshot.getCard(in, catalog);
+            drawn1 = GameSnapshot.getCard(in, catalog);
+            builds = in.get();
+            used = in.get() != 0;
+        }
+
+        // Everything is read, so the game can be replaced
+        deck.clear();
+        for (DistrictCard card : cards) {
+            deck.addToBottom(card);
+        }
+        players.clear();
+        players.addAll(restored);
+        seatPlayers();
+        humanSeats = human;
+        crownedPlayerIndex = crowned;
+        round = savedRound;
+        phase = savedPhase;
+        firstToFinish = seatOrNull(finished);
+        draft.restore(numPlayers);
+        for (CharacterCard card : pool) {
+            draft.add(card);
+        }
+        draft.setHidden(hidden);
+        selectionIndex = savedSelection;
+        winner = seatOrNull(winnerSeat);
+        scores = savedScores;
+        turnOrder = savedTurnOrder;
+        currentPlayer = seatOrNull(current);
+        drawnCards[0] = drawn0;
+        drawnCards[1] = drawn1;
+        buildsThisTurn = builds;
+        abilityUsed = used;
+        indexCharacters();
+    }
+
+    /**
+     * Checks a seat index read from a snapshot.
+     * @param seat       the seat index
+     * @param numPlayers the number of players in the snapshot
+     * @param optional   whether {@link GameSnapshot#NONE} is allowed
+     * @param what       what the seat is, for the error message
+     * @return the seat index
+     * @throws IllegalStateException if the seat is out of range
+     */
+    private static int checkSeat(int seat, int numPlayers, boolean optional, String what) {
+        if ((seat < 0 || seat >= numPlayers) && !(optional && seat == GameSnapshot.NONE)) {
+            throw new IllegalStateException("Snapshot has " + what + " " + seat + " for " + numPlayers + " players");
+        }
+        return seat;
+    }
+
+    /**
+     * Replaces the whole game state with a {@link GameState}. Existing players are updated in place
+     * and the deck is refilled, so loading a state allocates little.
+     * @param state the state to load
+     */
+    void loadState(GameState state) {
+        loadState(state, null);
+    }
+
+    /**
+     * Replaces the game state with a {@link GameState}, keeping the seats and the deck that it
+     * shares with the state the engine already holds.
+     * @param state  the state to load
+     * @param loaded the state the engine holds, unchanged since it was loaded or captured,
+     *               or null to load everything
+     */
+    void loadState(GameState state, GameState loaded) {
+        int numPlayers = state.getNumPlayers();
+        if (loaded != null && loaded.getNumPlayers() != numPlayers) {
+            loaded = null;
+        }
+        while (players.size() > numPlayers) {
+            players.remove(players.size() - 1);
+        }
+        if (humanSeats.length != numPlayers) {
+            humanSeats = new boolean[numPlayers];
+        }
+        for (int i = 0; i < numPlayers; i++) {
+            GameState.Seat seat = state.getSeat(i);
+            if (loaded != null && loaded.getSeat(i) == seat) {
+                continue;
+            }
+            Player player;
+            if (i < players.size()) {
+                player = players.get(i);
+            } else {
+                player = new Player(seat.name);
+                players.add(player);
+            }
+            player.restore(seat.name, seat.gold, GameState.character(seat.character), seat.assassinated, seat.receiveCrown);
+            player.setSeat(i);
+            for (int id : seat.hand) {
+                player.getHand().add(state.card(id));
+            }
+            for (int id : seat.city) {
+                player.getBuiltDistricts().add(state.card(id));
+            }
+            humanSeats[i] = seat.human;
+        }
+        if (loaded == null || loaded.getDeck() != state.getDeck()) {
+            deck.clear();
+            for (int id : state.getDeck()) {
+                deck.addToBottom(state.card(id));
+            }
+        }
+
+        crownedPlayerIndex = state.getCrownedSeat();
+        round = state.getRound();
+        phase = state.getPhase();
+        firstToFinish = seatOrNull(state.getFirstToFinish());
+        currentPlayer = seatOrNull(state.getCurrentSeat());
+        int[] pool = state.getDraftPool();
+        draft.restore(numPlayers);
+        if (pool != null) {
+            for (int turnOrder : pool) {
+                draft.add(GameState.character(turnOrder));
+            }
+        }
+        draft.setHidden(GameState.character(state.getHiddenCharacter()));
+        for (int turnOrder : state.getFaceUp()) {
+            draft.addFaceUp(GameState.character(turnOrder));
+        }
+        selectionIndex = 0;
+        turnOrder = 0;
+        if (phase == Phase.SELECT_CHARACTER) {
+            selectionIndex = (state.getCurrentSeat() - crownedPlayerIndex + numPlayers) % numPlayers;
+        } else if (currentPlayer != null) {
+            turnOrder = currentPlayer.getCharacter().getTurnOrder();
+        }
+        drawnCards[0] = state.card(state.getDrawn(0));
+        drawnCards[1] = state.card(state.getDrawn(1));
+        buildsThisTurn = state.getBuildsThisTurn();
+        abilityUsed = state.isAbilityUsed();
+        scores = state.getScores();
+        winner = seatOrNull(state.getWinner());
+        indexCharacters();
+    }
+
+    /**
+     * Tells every player their seat, which their Zobrist hashes depend on.
+     */
+    private void seatPlayers() {
+        for (int i = 0; i < players.size(); i++) {
+            players.get(i).setSeat(i);
+        }
+    }
+
+    /**
+     * Returns the Zobrist hash of the position: every city, each player's gold and character,
+     * the crown holder, the phase, whose decision it is and whether they have used their ability.
+     * Hands and the deck are not part of it. The players keep their parts up to date, so this
+     * only combines one value per seat.
+     * @return the hash
+     */
+    public long getHash() {
+        long hash = Zobrist.crown(crownedPlayerIndex) ^ Zobrist.abilityUsed(abilityUsed);
+        if (phase != null) {
+            hash ^= Zobrist.turn(phase, players.indexOf(currentPlayer));
+        }
+        for (Player player : players) {
+            hash ^= player.getHash();
+        }
+        return hash;
+    }
+
+    /**
+     * Rebuilds the turn order table from the players' characters after the state has been restored.
+     */
+    private void indexCharacters() {
+        Arrays.fill(playersByTurnOrder, null);
+        for (Player player : players) {
+            if (player.getCharacter() != null) {
+                playersByTurnOrder[player.getCharacter().getTurnOrder()] = player;
+            }
+        }
+    }
+
+    /**
+     * Returns the player in a seat read from a snapshot.
+     * @param seat the seat, or a negative number for none
+     * @return the player, or null
+     */
+    private Player seatOrNull(int seat) {
+        return seat < 0 ? null : players.get(seat);
+    }
+
+    /**
+     * Plays computer decisions until a human seat has to decide, the current round ends
+     * or the game is over.
+     */
+    public void advance() {
+        int startRound = round;
+        while (phase != Phase.GAME_OVER && round == startRound && !needsHumanInput()) {
+            if (phase == Phase.SELECT_CHARACTER) {
+                step(Action.selectCharacter(pickPolicy(currentPlayer).pick(currentPlayer, getDraftChoices())));
+            } else {
+                computer.takeTurn(currentPlayer);
+            }
+        }
+    }
+
+    /**
+     * Plays the game until it is over. Every seat must be played by the computer.
+     * @throws IllegalStateException if a human seat has to make a decision
+     */
+    public void runToEnd() {
+        while (phase != Phase.GAME_OVER) {
+            if (needsHumanInput()) {
+                throw new IllegalStateException("Waiting for a decision from " + currentPlayer.getName());
+            }
+            advance();
+        }
+    }
+
+    /**
+     * Applies a decision of the current player.
+     * @param action the decision to apply
+     * @return true if the action was legal and applied, false if it was rejected
+     */
+    public boolean step(Action action) {
+        if (!isLegal(action)) {
+            return false;
+        }
+        int index = action.getIndex();
+        switch (action.getType()) {
+            case SELECT_CHARACTER:
+                selectCharacter(index);
+                break;
+            case TAKE_GOLD:
+                currentPlayer.addGold(2);
+                record(GameEvent.GOLD, currentPlayer, 2);
+                if (logging) {
+                    log(currentPlayer.getName() + " takes 2 gold.");
+                }
+                phase = Phase.MAIN;
+                break;
+            case DRAW_CARDS:
+                drawCards();
+                break;
+            case KEEP_CARD:
+                DistrictCard kept = drawnCards[index];
+                DistrictCard discarded = drawnCards[1 - index];
+                currentPlayer.drawCard(kept);
+                record(GameEvent.CARD_DRAWN, currentPlayer, kept.getId());
+                deck.addToBottom(discarded);
+                if (logging) {
+                    log(currentPlayer, "You keep " + kept.getName() + ".", currentPlayer.getName() + " keeps a card.");
+                }
+                drawnCards[0] = null;
+                drawnCards[1] = null;
+                phase = Phase.MAIN;
+                break;
+            case BUILD:
+                DistrictCard card = currentPlayer.getHand().get(index);
+                currentPlayer.buildDistrict(card);
+                record(GameEvent.DISTRICT_BUILT, currentPlayer, card.getId());
+                buildsThisTurn++;
+                if (logging) {
+                    log(currentPlayer.getName() + " builds: " + card.getName() + " [" + card.getColor() + "] [" + card.getCost() + "]");
+                }
+                if (firstToFinish == null && currentPlayer.getBuiltDistricts().size() >= CITY_SIZE) {
+                    firstToFinish = currentPlayer;
+                    if (logging) {
+                        log(currentPlayer.getName() + " has completed their city.");
+                    }
+                }
+                break;
+            case USE_ABILITY:
+                abilityUsed = true;
+                if (metrics != null) {
+                    metrics.abilityUsed(currentPlayer.getCharacter().getRole());
+                }
+                currentPlayer.getCharacter().useAbility(this, currentPlayer, index);
+                if (phase == Phase.START_ABILITY) {
+                    phase = Phase.TAKE_RESOURCES;
+                }
+                break;
+            case END_TURN:
+                if (logging) {
+                    log(currentPlayer.getName() + " ends their turn.");
+                }
+                if (metrics != null) {
+                    metrics.getTurnLatency().record(System.nanoTime() - turnStart);
+                }
+                if (turnEvent != null) {
+                    turnEvent.commit(this, currentPlayer.getSeat());
+                    turnEvent = null;
+                }
+                nextTurn();
+                break;
+        }
+        return true;
+    }
+
+    /**
+     * Returns every decision the current player can make.
+     * @return the legal actions, empty once the game is over
+     */
+    public List<Action> getLegalActions() {
+        List<Action> actions = new ArrayList<>();
+        switch (phase) {
+            case SELECT_CHARACTER:
+                for (int i = 0; i < getDraftChoices().size(); i++) {
+                    actions.add(Action.selectCharacter(i));
+                }
+                break;
+            case START_ABILITY:
+                addAbilityActions(actions);
+                break;
+            case TAKE_RESOURCES:
+                actions.add(Action.takeGold());
+                actions.add(Action.drawCards());
+                break;
+            case KEEP_CARD:
+                actions.add(Action.keepCard(0));
+                actions.add(Action.keepCard(1));
+                break;
+            case MAIN:
+                for (int i = 0; i < currentPlayer.getHand().size(); i++) {
+                    if (canBuild(i)) {
+                        actions.add(Action.build(i));
+                    }
+                }
+                if (!abilityUsed) {
+                    addAbilityActions(actions);
+                }
+                actions.add(Action.endTurn());
+                break;
+            default:
+                break;
+        }
+        return actions;
+    }
+
+    /**
+     * Adds one ability action per target of the current character, or a single untargeted one.
+     * @param actions receives the actions
+     */
+    private void addAbilityActions(List<Action> actions) {
+        int targets = getAbilityTargetCount();
+        if (targets == 0) {
+            actions.add(Action.useAbility(-1));
+        }
+        for (int i = 0; i < targets; i++) {
+            actions.add(Action.useAbility(i));
+        }
+    }
+
+    /**
+     * Checks whether an action can be applied in the current state.
+     * @param action the decision to check
+     * @return true if {@link #step(Action)} would accept the action
+     */
+    public boolean isLegal(Action action) {
+        int index = action.getIndex();
+        switch (action.getType()) {
+            case SELECT_CHARACTER:
+                return phase == Phase.SELECT_CHARACTER && index >= 0 && index < getDraftChoices().size();
+            case TAKE_GOLD:
+            case DRAW_CARDS:
+                return phase == Phase.TAKE_RESOURCES;
+            case KEEP_CARD:
+                return phase == Phase.KEEP_CARD && (index == 0 || index == 1);
+            case BUILD:
+                return phase == Phase.MAIN && canBuild(index);
+            case USE_ABILITY:
+                if ((phase != Phase.START_ABILITY && phase != Phase.MAIN) || abilityUsed) {
+                    return false;
+                }
+                // Abilities without a target ignore the index
+                int targets = getAbilityTargetCount();
+                return targets == 0 || (index >= 0 && index < targets);
+            case END_TURN:
+                return phase == Phase.MAIN;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Checks whether the current player may build the card at the given hand position:
+     * they have not reached their build limit, can afford it, and have not built one with the same name.
+     * @param handIndex the position of the card in the hand
+     * @return true if the card can be built this turn
+     */
+    public boolean canBuild(int handIndex) {
+        List<DistrictCard> hand = currentPlayer.getHand();
+        if (handIndex < 0 || handIndex >= hand.size() || buildsThisTurn >= getBuildLimit()) {
+            return false;
+        }
+        DistrictCard card = hand.get(handIndex);
+        return currentPlayer.getGold() >= card.getCost() && !currentPlayer.hasBuilt(card);
+    }
+
+    /**
+     * Returns how many districts the current player may build this turn. The Architect may build three.
+     * @return the build limit
+     */
+    public int getBuildLimit() {
+        return currentPlayer.getCharacter().getRole().getBuildLimit();
+    }
+
+    /**
+     * Returns whether the game is waiting for a decision from a human seat.
+     * @return true if the next action has to come from a human
+     */
+    public boolean needsHumanInput() {
+        if (phase == Phase.GAME_OVER) {
+            return false;
+        }
+        int seat = players.indexOf(currentPlayer);
+        return isHuman(seat) && (phase != Phase.SELECT_CHARACTER || pickPolicies[seat] == null);
+    }
+
+    /**
+     * Makes a seat pick its characters with a policy, which the engine asks whenever the seat
+     * picks, even a human seat. The human's answers for the rest of the turn are still awaited.
+     * @param seat   the index of the player
+     * @param policy the policy, or null to let the computer pick, or the human through {@link Action}s
+     */
+    public void setPickPolicy(int seat, CharacterDraft.PickPolicy policy) {
+        pickPolicies[seat] = policy;
+    }
+
+    /**
+     * Returns the policy picking characters for a player, the computer unless one was set.
+     */
+    private CharacterDraft.PickPolicy pickPolicy(Player player) {
+        CharacterDraft.PickPolicy policy = pickPolicies[players.indexOf(player)];
+        return policy == null ? computer : policy;
+    }
+
+    /**
+     * Sets up the character draft for a new round: deals the hidden card and the face up
+     * cards, and starts the selection with the crowned player.
+     */
+    private void beginRound() {
+        log("================================");
+        log("SELECTION PHASE");
+        log("================================");
+        record(GameEvent.ROUND_START, 0, round);
+        if (metrics != null) {
+            selectionStart = System.nanoTime();
+        }
+        if (tableId >= 0) {
+            new FlightEvents.RoundStart().commit(this, -1);
+            draftEvent = new FlightEvents.Draft();
+            draftEvent.begin();
+        }
+
+        int numPlayers = players.size();
+        draft.deal(numPlayers, random);
+        if (numPlayers == 7) {
+            log("A mystery character will be offered to the last player.");
+        }
+        else {
+            log("A mystery character was removed.");
+            // Loop telling players what face up characters were removed
+            if (logging) {
+                for (CharacterCard removed : draft.getFaceUp()) {
+                    log(removed.getName() + " was removed.");
+                }
+            }
+        }
+
+        // Selection starts with the crowned player and goes around the table
+        Arrays.fill(playersByTurnOrder, null);
+        for (Player player : players) {
+            player.assignCharacter(null);
+        }
+        selectionIndex = 0;
+        currentPlayer = players.get(crownedPlayerIndex);
+        phase = Phase.SELECT_CHARACTER;
+    }
+
+    /**
+     * Returns the characters the current player can pick from. With seven players the last
+     * player chooses between the one remaining character and the hidden card.
+     * @return the current draft choices
+     */
+    public List<CharacterCard> getDraftChoices() {
+        if (phase != Phase.SELECT_CHARACTER) {
+            return Collections.emptyList();
+        }
+        return draft.getChoices(selectionIndex);
+    }
+
+    /**
+     * Assigns the chosen draft card to the current player and moves on to the next one.
+     * @param choice the index into the draft choices
+     */
+    private void selectCharacter(int choice) {
+        CharacterCard chosen = draft.take(selectionIndex, choice);
+        currentPlayer.assignCharacter(chosen);
+        record(GameEvent.CHARACTER_CHOSEN, currentPlayer, chosen.getTurnOrder());
+        playersByTurnOrder[chosen.getTurnOrder()] = currentPlayer;
+        if (logging) {
+            log(currentPlayer, "You chose: " + chosen.getName(), currentPlayer.getName() + " chose a character.");
+        }
+
+        selectionIndex++;
+        if (selectionIndex < players.size()) {
+            currentPlayer = players.get((crownedPlayerIndex + selectionIndex) % players.size());
+        } else {
+            draft.endPicks();
+            if (metrics != null) {
+                metrics.getSelectionLatency().record(System.nanoTime() - selectionStart);
+            }
+            if (draftEvent != null) {
+                draftEvent.commit(this, -1);
+                draftEvent = null;
+            }
+            log("");
+            log("================================");
+            log("TURN PHASE");
+            log("================================");
+            turnOrder = 0;
+            nextTurn();
+        }
+    }
+
+    /**
+     * Moves to the next character in turn order, skipping characters that were not picked
+     * and players that were assassinated. Ends the round after the last character.
+     */
+    private void nextTurn() {
+        while (++turnOrder <= 8) {
+            Player player = playersByTurnOrder[turnOrder];
+            if (player == null) {
+                continue;
+            }
+            CharacterCard character = player.getCharacter();
+            if (logging) {
+                log(turnOrder + ": " + character.getName());
+            }
+            if (player.isAssassinated()) {
+                if (logging) {
+                    log(player.getName() + " was assassinated and skips their turn.");
+                }
+                continue;
+            }
+            if (logging) {
+                log(player.getName() + " is the " + character.getName());
+            }
+            currentPlayer = player;
+            buildsThisTurn = 0;
+            abilityUsed = false;
+            if (metrics != null) {
+                metrics.turnStarted();
+                turnStart = System.nanoTime();
+            }
+            if (tableId >= 0) {
+                turnEvent = new FlightEvents.Turn();
+                turnEvent.character = character.getName();
+                turnEvent.begin();
+            }
+            phase = character.usesAbilityFirst() ? Phase.START_ABILITY : Phase.TAKE_RESOURCES;
+            return;
+        }
+        endRound();
+    }
+
+    /**
+     * Draws two cards for the current player. If only one card is left it is kept automatically,
+     * and if the deck is empty the player receives 2 gold instead.
+     */
+    private void drawCards() {
+        DistrictCard card1 = deck.draw();
+        DistrictCard card2 = deck.draw();
+        if (card1 == null && card2 == null) {
+            if (logging) {
+                log("The deck is empty. " + currentPlayer.getName() + " receives 2 gold instead.");
+            }
+            currentPlayer.addGold(2);
+            record(GameEvent.GOLD, currentPlayer, 2);
+            phase = Phase.MAIN;
+        }
+        else if (card1 == null || card2 == null) {
+            DistrictCard onlyCard = (card1 != null) ? card1 : card2;
+            if (logging) {
+                log(currentPlayer, "Only one card available. You receive: " + onlyCard.getName(),
+                    "Only one card available. " + currentPlayer.getName() + " receives it.");
+            }
+            currentPlayer.drawCard(onlyCard);
+            record(GameEvent.CARD_DRAWN, currentPlayer, onlyCard.getId());
+            phase = Phase.MAIN;
+        }
+        else {
+            if (logging) {
+                log(currentPlayer.getName() + " draws two cards.");
+            }
+            drawnCards[0] = card1;
+            drawnCards[1] = card2;
+            phase = Phase.KEEP_CARD;
+        }
+    }
+
+    /**
+     * Passes the crown to whoever played the King, then either ends the game or starts the next round.
+     */
+    private void endRound() {
+        for (int i = 0; i < players.size(); i++) {
+            Player player = players.get(i);
+            if (player.receiveCrown()) {
+                crownedPlayerIndex = i;
+                record(GameEvent.CROWN, i, 0);
+                if (logging) {
+                    log(player.getName() + " receives the crown for the next round.");
+                }
+            }
+            player.setReceiveCrown(false);
+        }
+        currentPlayer = null;
+
+        if (checkGameEnd() || round >= MAX_ROUNDS) {
+            gameEnd();
+        } else {
+            round++;
+            beginRound();
+        }
+    }
+
+    /**
+     * Checks if the game end condition has been met (a player built 8 districts).
+     * @return true if the game should end, false otherwise
+     */
+    private boolean checkGameEnd() {
+        for (Player player : players) {
+            if (player.getBuiltDistricts().size() >= CITY_SIZE) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Calculates final scores and declares the winner.
+     */
+    private void gameEnd() {
+        phase = Phase.GAME_OVER;
+        log("Game over! Final scores:");
+        if (metrics != null) {
+            metrics.gameFinished();
+        }
+        FlightEvents.Scoring scoring = tableId >= 0 ? new FlightEvents.Scoring() : null;
+        if (scoring != null) {
+            scoring.begin();
+        }
+
+        if (firstToFinish == null) {
+            for (Player player : players) {
+                if (player.getBuiltDistricts().size() >= CITY_SIZE) {
+                    firstToFinish = player;
+                    break;
+                }
+            }
+        }
+
+        // Sets to -1 because players are unable to get this score therefore no confusion when calculating
+        int highestScore = -1;
+        int highestRank = -1;
+        scores = new int[players.size()];
+        for (int i = 0; i < players.size(); i++) {
+            Player player = players.get(i);
+            int score = calculateScore(players, player, player == firstToFinish);
+            scores[i] = score;
+
+            int rank = -1;
+            if (player.getCharacter() != null) {
+                rank = player.getCharacter().getTurnOrder();
+            }
+
+            if (logging) {
+                String characterName = player.getCharacter() == null ? "" : " - " + player.getCharacter().getName();
+                log(player.getName() + characterName + " scored " + score + " points.");
+            }
+
+            if (score > highestScore || (score == highestScore && rank > highestRank)) {
+                highestScore = score;
+                highestRank = rank;
+                winner = player;
+            }
+        }
+
+        if (scoring != null) {
+            scoring.winningScore = highestScore;
+            scoring.commit(this, winner == null ? -1 : winner.getSeat());
+        }
+
+        if (winner != null) {
+            record(GameEvent.GAME_OVER, winner, 0);
+            if (logging) {
+                log("The winner is: " + winner.getName() + " with " + highestScore + " points!");
+            }
+        }
+    }
+
+    /**
+     * Calculates the score for a specific player.
+     * The score is the sum of the running totals {@link Player} keeps as districts are built and destroyed.
+     * @param players All players in the game
+     * @param player The player to score
+     * @param isFirstToFinish Whether this player was the first to finish
+     * @return The calculated score
+     */
+    public static int calculateScore(List<Player> players, Player player, boolean isFirstToFinish) {
+        return player.getScore(isFirstToFinish);
+    }
+
+    /**
+     * Returns a player's score as it stands, counting the completion bonus if their city is complete.
+     * @param player the player to score
+     * @return the current score
+     */
+    public int getLiveScore(Player player) {
+        return player.getScore(player == firstToFinish);
+    }
+
+    /**
+     * Sends a game message to the sink, unless nobody reads them.
+     * @param message the message
+     * @see #isLogging()
+     */
+    public void log(String message) {
+        if (logging) {
+            sink.onMessage(message);
+        }
+    }
+
+    /**
+     * Sends a message only a human player may see, telling everyone else something else. The
+     * computer's seats have nobody to tell, so they only get the public message.
+     * @param player  the player the message is for
+     * @param message the message for that player
+     * @param others  the message for everyone else
+     */
+    private void log(Player player, String message, String others) {
+        if (!logging) {
+            return;
+        }
+        int seat = players.indexOf(player);
+        if (isHuman(seat)) {
+            sink.onPrivateMessage(seat, message, others);
+        } else {
+            sink.onMessage(others);
+        }
+    }
+
+    /**
+     * Sends an event to the sink and counts it in the metrics.
+     * @param event  the kind of event
+     * @param player the player the event applies to
+     * @param value  the event value
+     */
+    void record(GameEvent event, Player player, int value) {
+        if (metrics != null) {
+            metrics.count(event);
+        }
+        if (sink != GameEventSink.NONE) {
+            sink.onEvent(event, players.indexOf(player), value);
+        }
+    }
+
+    /**
+     * Sends an event to the sink and counts it in the metrics.
+     * @param event the kind of event
+     * @param seat  the seat the event applies to
+     * @param value the event value
+     */
+    private void record(GameEvent event, int seat, int value) {
+        if (metrics != null) {
+            metrics.count(event);
+        }
+        if (sink != GameEventSink.NONE) {
+            sink.onEvent(event, seat, value);
+        }
+    }
+
+    /**
+     * Returns the ability targets available to the current player.
+     * @return the target descriptions, indexed as accepted by {@link Action#useAbility(int)}
+     */
+    public List<String> getAbilityTargets() {
+        return currentPlayer.getCharacter().getAbilityTargets(this, currentPlayer);
+    }
+
+    /**
+     * Returns a key for what a legal action does. Actions that do the same thing in two games
+     * differing only in what the current player cannot see get the same key, so an ability
+     * target is keyed by {@link CharacterRole#getAbilityTargetKey} rather than by its index.
+     * @param action a legal action of the current player
+     * @return the key
+     */
+    long getActionKey(Action action) {
+        int value = action.getIndex();
+        if (action.getType() == Action.Type.USE_ABILITY && getAbilityTargetCount() > 0) {
+            value = currentPlayer.getCharacter().getRole().getAbilityTargetKey(this, currentPlayer, value);
+        }
+        return ((long) action.getType().ordinal() << 32) | (value & 0xFFFFFFFFL);
+    }
+
+    /**
+     * Returns how many ability targets the current player has, without building their descriptions.
+     * @return the size of {@link #getAbilityTargets()}
+     */
+    public int getAbilityTargetCount() {
+        return currentPlayer.getCharacter().getAbilityTargetCount(this, currentPlayer);
+    }
+
+    /**
+     * Returns the two cards drawn this turn while waiting for the player to keep one.
+     * @return the drawn cards, or nulls outside of the {@link Phase#KEEP_CARD} phase
+     */
+    public DistrictCard[] getDrawnCards() {
+        return drawnCards.clone();
+    }
+
+    /**
+     * Returns the game's source of randomness. It is not thread safe and must only be used
+     * by the thread running the game.
+     * @return the random source
+     */
+    public SplittableRandom getRandom() {
+        return random;
+    }
+
+    /**
+     * Replaces the game's source of randomness, leaving the deck's alone.
+     * @param random the new random source
+     */
+    void setRandom(SplittableRandom random) {
+        this.random = random;
+    }
+
+    /**
+     * Returns the player who completed their city first.
+     * @return the player, or null if no city is complete
+     */
+    Player getFirstToFinish() {
+        return firstToFinish;
+    }
+
+    /**
+     * Returns every character still in the draft, including those only offered on the last pick.
+     * @return the draft pool, or null outside of the selection phase
+     */
+    List<CharacterCard> getDraftPool() {
+        return phase == Phase.SELECT_CHARACTER ? draft.getPool() : null;
+    }
+
+    /**
+     * Returns the character removed face down for this round's draft.
+     * @return the hidden character, or null outside of the selection phase
+     */
+    CharacterCard getHiddenCard() {
+        return phase == Phase.SELECT_CHARACTER ? draft.getHidden() : null;
+    }
+
+    /**
+     * Returns the characters removed face up for this round's draft, which stay known all round.
+     * @return the face up characters, empty before the first draft or after loading a snapshot
+     */
+    List<CharacterCard> getFaceUpCards() {
+        return draft.getFaceUp();
+    }
+
+    /**
+     * Returns how many districts the current player has built this turn.
+     * @return the number of builds
+     */
+    int getBuildsThisTurn() {
+        return buildsThisTurn;
+    }
+
+    /**
+     * Returns the computer that makes the decisions of every seat not played by a human.
+     * @return the computer
+     */
+    public Computer getComputer() {
+        return computer;
+    }
+
+    /**
+     * Returns the district deck.
+     * @return the deck
+     */
+    public Deck getDeck() {
+        return deck;
+    }
+
+    /**
+     * Returns the players in seat order.
+     * @return the list of players
+     */
+    public List<Player> getPlayers() {
+        return players;
+    }
+
+    /**
+     * Returns the player whose decision the game is waiting for.
+     * @return the current player, or null once the game is over
+     */
+    public Player getCurrentPlayer() {
+        return currentPlayer;
+    }
+
+    /**
+     * Returns the decision the game is waiting for.
+     * @return the current phase
+     */
+    public Phase getPhase() {
+        return phase;
+    }
+
+    /**
+     * Returns the index of the crowned player.
+     * @return the crowned player's seat
+     */
+    public int getCrownedPlayerIndex() {
+        return crownedPlayerIndex;
+    }
+
+    /**
+     * Returns the current round, starting at 1.
+     * @return the round number
+     */
+    public int getRound() {
+        return round;
+    }
+
+    /**
+     * Returns whether the current player has used their ability this turn.
+     * @return true if the ability has been used
+     */
+    public boolean isAbilityUsed() {
+        return abilityUsed;
+    }
+
+    /**
+     * Returns whether the game has finished.
+     * @return true if the game is over
+     */
+    public boolean isGameOver() {
+        return phase == Phase.GAME_OVER;
+    }
+
+    /**
+     * Returns the final scores in seat order.
+     * @return the scores, or null if the game is not over
+     */
+    public int[] getScores() {
+        return scores;
+    }
+
+    /**
+     * Returns the winner of the game.
+     * @return the winning player, or null if the game is not over
+     */
+    public Player getWinner() {
+        return winner;
+    }
+}
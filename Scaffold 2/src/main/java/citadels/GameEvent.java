@@ -0,0 +1,46 @@
+package citadels;
+
+/**
+ * The kinds of record in a game event log. Every record is a seat and a value, and together the
+ * records of a game are enough to rebuild each player's gold, hand, city, character and the crown.
+ * Cards are stored by catalog id.
+ */
+public enum GameEvent {
+    /** A new game begins. The seat holds the number of players. */
+    GAME_START,
+    /** A new round begins and every character is cleared. The value is the round number. */
+    ROUND_START,
+    /** The seat receives the crown. */
+    CROWN,
+    /** The seat picks a character. The value is the character's turn order. */
+    CHARACTER_CHOSEN,
+    /** A card goes into the seat's hand. The value is the card id. */
+    CARD_DRAWN,
+    /** A card leaves the seat's hand and goes back to the deck. The value is the card id. */
+    CARD_RETURNED,
+    /** The seat's gold changes. The value is the signed amount. */
+    GOLD,
+    /** The seat builds a card from their hand and pays its cost. The value is the card id. */
+    DISTRICT_BUILT,
+    /** A district is removed from the seat's city. The value is the card id. */
+    DISTRICT_DESTROYED,
+    /** The seat's character is assassinated. */
+    ASSASSINATED,
+    /** The game is over. The seat is the winner. */
+    GAME_OVER;
+
+    private static final GameEvent[] VALUES = values();
+
+    /**
+     * Returns the event with the given code.
+     * @param code the ordinal written to the log
+     * @return the event
+     * @throws IllegalStateException if no event has that code
+     */
+    static GameEvent of(int code) {
+        if (code < 0 || code >= VALUES.length) {
+            throw new IllegalStateException("Unknown event code " + code);
+        }
+        return VALUES[code];
+    }
+}
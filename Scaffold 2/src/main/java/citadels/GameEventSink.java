@@ -0,0 +1,50 @@
+package citadels;
+
+/**
+ * Receives what happens in a game. Every sink is sent the structured {@link GameEvent}s as the
+ * players change; a sink that also wants the readable game messages says so with
+ * {@link #wantsMessages()}. The engine and the characters only build a message when their sink
+ * wants it, so a game without a listener formats no text at all.
+ * <p>
+ * A sink is used by one game at a time, from the thread playing it.
+ */
+public interface GameEventSink {
+    /** A sink that ignores everything, for silent games. */
+    GameEventSink NONE = (event, seat, value) -> { };
+
+    /**
+     * Receives an event.
+     * @param event the kind of event
+     * @param seat  the seat the event applies to
+     * @param value the event value, which may be negative
+     */
+    void onEvent(GameEvent event, int seat, int value);
+
+    /**
+     * Returns whether the sink wants the readable game messages. This must not change while a
+     * game uses the sink.
+     * @return true to receive {@link #onMessage(String)}
+     */
+    default boolean wantsMessages() {
+        return false;
+    }
+
+    /**
+     * Receives a readable game message. Only called if {@link #wantsMessages()} is true.
+     * @param message the message, without a line terminator
+     */
+    default void onMessage(String message) {
+    }
+
+    /**
+     * Receives a message only one human player may see, such as the character they picked, with
+     * what everyone else is told instead. Only called if {@link #wantsMessages()} is true. The
+     * default shows the private message, as a sink for a single player's view should.
+     * @param seat    the seat the message is for
+     * @param message the message for that seat
+     * @param others  the message for everyone else
+     */
+    default void onPrivateMessage(int seat, String message, String others) {
+        onMessage(message);
+    }
+}
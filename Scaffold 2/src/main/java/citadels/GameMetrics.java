@@ -0,0 +1,203 @@
+package citadels;
+
+import java.lang.management.ManagementFactory;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * Counters and latency histograms for the games played in this JVM. Every count is a
+ * {@link LongAdder}, which stripes updates from different threads over separate cells, so a
+ * tournament or a server with many tables can count into one registry without contention.
+ * <p>
+ * Engines only report to a registry that was given to them with
+ * {@link GameEngine#setMetrics(GameMetrics)}, so look-ahead games of the tree search are not
+ * counted. The shared registry from {@link #global()} is published over JMX.
+ */
+public final class GameMetrics implements GameMetricsMXBean {
+    /** The name the shared registry is published under. */
+    public static final String OBJECT_NAME = "citadels:type=GameMetrics";
+
+    private final long createdNanos = System.nanoTime();
+    private final LongAdder games = new LongAdder();
+    private final LongAdder rounds = new LongAdder();
+    private final LongAdder turns = new LongAdder();
+    private final LongAdder draws = new LongAdder();
+    private final LongAdder builds = new LongAdder();
+    private final LongAdder assassinations = new LongAdder();
+    private final LongAdder destructions = new LongAdder();
+    private final LongAdder[] abilityUses = new LongAdder[CharacterRole.values().length];
+    private final LatencyHistogram selectionLatency = new LatencyHistogram();
+    private final LatencyHistogram turnLatency = new LatencyHistogram();
+    private final LatencyHistogram computerTurnLatency = new LatencyHistogram();
+    private final LatencyHistogram saveLatency = new LatencyHistogram();
+    private final LatencyHistogram loadLatency = new LatencyHistogram();
+
+    /**
+     * Creates an empty registry that is not published.
+     */
+    public GameMetrics() {
+        for (int i = 0; i < abilityUses.length; i++) {
+            abilityUses[i] = new LongAdder();
+        }
+    }
+
+    /**
+     * Returns the registry shared by the application, the servers and tournaments, publishing it
+     * over JMX the first time.
+     * @return the shared registry
+     */
+    public static GameMetrics global() {
+        return Global.METRICS;
+    }
+
+    /** Creates and publishes the shared registry on first use. */
+    private static final class Global {
+        static final GameMetrics METRICS = register(new GameMetrics());
+
+        private static GameMetrics register(GameMetrics metrics) {
+            try {
+                ManagementFactory.getPlatformMBeanServer().registerMBean(metrics, new ObjectName(OBJECT_NAME));
+            } catch (InstanceAlreadyExistsException e) {
+                // Another copy of the classes published first; this registry still counts
+            } catch (JMException e) {
+                throw new IllegalStateException("Cannot publish game metrics", e);
+            }
+            return metrics;
+        }
+    }
+
+    /**
+     * Counts an event an engine reported.
+     * @param event the kind of event
+     */
+    void count(GameEvent event) {
+        switch (event) {
+            case ROUND_START:
+                rounds.increment();
+                break;
+            case CARD_DRAWN:
+                draws.increment();
+                break;
+            case DISTRICT_BUILT:
+                builds.increment();
+                break;
+            case ASSASSINATED:
+                assassinations.increment();
+                break;
+            case DISTRICT_DESTROYED:
+                destructions.increment();
+                break;
+            default:
+                break;
+        }
+    }
+
+    /**
+     * Counts a finished game.
+     */
+    void gameFinished() {
+        games.increment();
+    }
+
+    /**
+     * Counts the start of a character's turn.
+     */
+    void turnStarted() {
+        turns.increment();
+    }
+
+    /**
+     * Counts a use of a character's ability.
+     * @param role the character
+     */
+    void abilityUsed(CharacterRole role) {
+        abilityUses[role.ordinal()].increment();
+    }
+
+    @Override
+    public long getGames() {
+        return games.sum();
+    }
+
+    @Override
+    public long getRounds() {
+        return rounds.sum();
+    }
+
+    @Override
+    public long getTurns() {
+        return turns.sum();
+    }
+
+    @Override
+    public long getDraws() {
+        return draws.sum();
+    }
+
+    @Override
+    public long getBuilds() {
+        return builds.sum();
+    }
+
+    @Override
+    public long getAssassinations() {
+        return assassinations.sum();
+    }
+
+    @Override
+    public long getWarlordDestructions() {
+        return destructions.sum();
+    }
+
+    @Override
+    public Map<String, Long> getAbilityUses() {
+        Map<String, Long> uses = new LinkedHashMap<>();
+        for (CharacterRole role : CharacterRole.values()) {
+            uses.put(role.getDisplayName(), abilityUses[role.ordinal()].sum());
+        }
+        return uses;
+    }
+
+    @Override
+    public double getGamesPerSecond() {
+        return games.sum() / elapsedSeconds();
+    }
+
+    @Override
+    public double getTurnsPerSecond() {
+        return turns.sum() / elapsedSeconds();
+    }
+
+    private double elapsedSeconds() {
+        return Math.max(System.nanoTime() - createdNanos, 1) / 1e9;
+    }
+
+    @Override
+    public LatencyHistogram getSelectionLatency() {
+        return selectionLatency;
+    }
+
+    @Override
+    public LatencyHistogram getTurnLatency() {
+        return turnLatency;
+    }
+
+    @Override
+    public LatencyHistogram getComputerTurnLatency() {
+        return computerTurnLatency;
+    }
+
+    @Override
+    public LatencyHistogram getSaveLatency() {
+        return saveLatency;
+    }
+
+    @Override
+    public LatencyHistogram getLoadLatency() {
+        return loadLatency;
+    }
+}
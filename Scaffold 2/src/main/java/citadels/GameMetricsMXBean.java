@@ -0,0 +1,55 @@
+package citadels;
+
+import java.util.Map;
+
+/**
+ * The management interface of {@link GameMetrics}, published over JMX as
+ * {@code citadels:type=GameMetrics}. Counts are totals since the metrics were created, and
+ * latencies are histograms of nanoseconds.
+ */
+public interface GameMetricsMXBean {
+    /** @return the number of finished games */
+    long getGames();
+
+    /** @return the number of rounds started */
+    long getRounds();
+
+    /** @return the number of character turns started */
+    long getTurns();
+
+    /** @return the number of district cards drawn into hands */
+    long getDraws();
+
+    /** @return the number of districts built */
+    long getBuilds();
+
+    /** @return the number of characters assassinated */
+    long getAssassinations();
+
+    /** @return the number of districts destroyed by the Warlord */
+    long getWarlordDestructions();
+
+    /** @return the number of ability uses of each character, by character name */
+    Map<String, Long> getAbilityUses();
+
+    /** @return the average number of finished games per second since the metrics were created */
+    double getGamesPerSecond();
+
+    /** @return the average number of character turns per second since the metrics were created */
+    double getTurnsPerSecond();
+
+    /** @return the time from the start of a round's draft until every character is chosen */
+    LatencyHistogram getSelectionLatency();
+
+    /** @return the time from the start of a character's turn until it ends */
+    LatencyHistogram getTurnLatency();
+
+    /** @return the time the computer takes to play one turn */
+    LatencyHistogram getComputerTurnLatency();
+
+    /** @return the time to save a snapshot */
+    LatencyHistogram getSaveLatency();
+
+    /** @return the time to load a snapshot */
+    LatencyHistogram getLoadLatency();
+}
@@ -0,0 +1,224 @@
+package citadels;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Hosts many games at once for players connecting over TCP. Players wait in a lobby until
+ * enough have joined to fill the human seats of a table, and the table then plays on its own
+ * virtual thread, filling the remaining seats with computer players.
+ * <p>
+ * Every connected player also has a virtual thread reading their socket, so a line typed out
+ * of turn is answered at once and a dropped connection is noticed as soon as it ends. A table
+ * spends nearly all its time with these readers blocked on their sockets, which parks their
+ * virtual threads without holding a platform thread, so thousands of waiting tables cost little
+ * more than their game state and connection buffers.
+ * <p>
+ * Table {@code i} is seeded with {@code seed + i}, like the games of a {@link Tournament}.
+ */
+public final class GameServer implements Closeable {
+    private final ServerSocket server;
+    private final int numPlayers;
+    private final int humansPerTable;
+    private final long seed;
+    private final ThreadFactory tableThreads = Thread.ofVirtual().name("table-", 0).factory();
+    private final ThreadFactory readerThreads = Thread.ofVirtual().name("seat-", 0).factory();
+    private final List<SeatSession> lobby = new ArrayList<>();
+    private final AtomicInteger openTables = new AtomicInteger();
+    private int tablesStarted;
+
+    /**
+     * Creates a server listening on a port.
+     * @param port           the port, or 0 for any free port
+     * @param numPlayers     the number of players at each table, between 4 and 7
+     * @param humansPerTable the number of connected players seated at each table
+     * @param seed           the seed of the first table
+     * @throws IOException if the port cannot be opened
+     * @throws IllegalArgumentException if the player counts are out of range
+     */
+    public GameServer(int port, int numPlayers, int humansPerTable, long seed) throws IOException {
+        if (numPlayers < 4 || numPlayers > 7) {
+            throw new IllegalArgumentException("Number of players must be between 4-7");
+        }
+        if (humansPerTable < 1 || humansPerTable > numPlayers) {
+            throw new IllegalArgumentException("Humans per table must be between 1 and " + numPlayers);
+        }
+        this.server = new ServerSocket(port);
+        this.numPlayers = numPlayers;
+        this.humansPerTable = humansPerTable;
+        this.seed = seed;
+    }
+
+    /**
+     * Returns the port the server listens on.
+     * @return the local port
+     */
+    public int getPort() {
+        return server.getLocalPort();
+    }
+
+    /**
+     * Returns the number of tables whose game is still being played.
+     * @return the number of open tables
+     */
+    public int getOpenTables() {
+        return openTables.get();
+    }
+
+    /**
+     * Accepts players until the server is closed. Connections are accepted on the calling thread.
+     * @throws IOException if accepting a connection fails
+     */
+    public void serve() throws IOException {
+        while (!server.isClosed()) {
+            Socket socket;
+            try {
+                socket = server.accept();
+            } catch (SocketException e) {
+                if (server.isClosed()) {
+                    return;
+                }
+                throw e;
+            }
+            join(new SeatSession(socket));
+        }
+    }
+
+    /**
+     * Adds a player to the lobby and opens a table once it has enough players.
+     * @param session the new player
+     */
+    private synchronized void join(SeatSession session) {
+        lobby.add(session);
+        if (lobby.size() < humansPerTable) {
+            session.getOut().println("Waiting for " + (humansPerTable - lobby.size()) + " more player(s)...");
+            session.getOut().flush();
+            return;
+        }
+        List<SeatSession> seated = new ArrayList<>(lobby);
+        int id = tablesStarted++;
+        lobby.clear();
+        openTables.incrementAndGet();
+        tableThreads.newThread(() -> {
+            try {
+                play(new GameTable(id, seed + id, numPlayers, outs(seated)), seated);
+            } finally {
+                openTables.decrementAndGet();
+            }
+        }).start();
+    }
+
+    /**
+     * Plays a table to the end, starting a reader for every connected player and waiting on the
+     * calling thread until the game is over. The table is only touched while holding its lock,
+     * which a {@link ReentrantLock} keeps from pinning the virtual threads to their carriers.
+     * @param table    the table
+     * @param sessions the connected players, in seat order
+     */
+    private void play(GameTable table, List<SeatSession> sessions) {
+        ReentrantLock lock = new ReentrantLock();
+        Condition over = lock.newCondition();
+        lock.lock();
+        try {
+            table.start();
+            for (int i = 0; i < sessions.size(); i++) {
+                int seat = i;
+                readerThreads.newThread(() -> read(table, seat, sessions.get(seat), lock, over)).start();
+            }
+            while (table.isGameOver() == false) {
+                over.awaitUninterruptibly();
+            }
+        } finally {
+            lock.unlock();
+            for (SeatSession session : sessions) {
+                session.close();
+            }
+        }
+    }
+
+    /**
+     * Passes a player's lines to their table until the game ends. Lines typed out of turn are
+     * turned away by the table, and a player whose connection ends is handed to the computer.
+     * Closing the sessions once the game is over ends the input, which stops the reader.
+     * @param table   the table
+     * @param seat    the player's seat
+     * @param session the player's connection
+     * @param lock    the lock guarding the table
+     * @param over    signalled whenever a line may have ended the game
+     */
+    private static void read(GameTable table, int seat, SeatSession session, ReentrantLock lock, Condition over) {
+        while (true) {
+            String line = session.getInput().readLine();
+            lock.lock();
+            try {
+                if (table.isGameOver()) {
+                    return;
+                }
+                if (line == null) {
+                    session.close();
+                    table.leave(seat);
+                } else {
+                    table.onLine(seat, line);
+                }
+                if (table.isGameOver()) {
+                    over.signal();
+                }
+            } finally {
+                lock.unlock();
+            }
+            if (line == null) {
+                return;
+            }
+        }
+    }
+
+    private static List<PrintStream> outs(List<SeatSession> sessions) {
+        List<PrintStream> outs = new ArrayList<>(sessions.size());
+        for (SeatSession session : sessions) {
+            outs.add(session.getOut());
+        }
+        return outs;
+    }
+
+    /**
+     * Stops accepting players and disconnects the lobby. Tables already playing finish their games.
+     * @throws IOException if the server socket cannot be closed
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        server.close();
+        for (SeatSession session : lobby) {
+            session.close();
+        }
+    }
+
+    /**
+     * Runs a game server from the command line.
+     * @param args the port (default 7070), number of players per table (default 4), connected
+     *             players per table (default 1) and seed (default random)
+     * @throws IOException if the port cannot be opened
+     */
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : 7070;
+        int numPlayers = args.length > 1 ? Integer.parseInt(args[1]) : 4;
+        int humans = args.length > 2 ? Integer.parseInt(args[2]) : 1;
+        long seed = args.length > 3 ? Long.parseLong(args[3]) : new SplittableRandom().nextLong();
+
+        try (GameServer server = new GameServer(port, numPlayers, humans, seed)) {
+            System.out.println("Serving " + numPlayers + "-player tables with " + humans
+                + " connected player(s) each on port " + server.getPort() + " (seed " + seed + ")");
+            server.serve();
+        }
+    }
+}
@@ -0,0 +1,232 @@
+package citadels;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+/**
+ * Saves and loads the complete state of a game in a compact versioned binary format.
+ * Cards are written as their catalog ids and characters as their turn order, so a snapshot
+ * of a full game is a few hundred bytes. Snapshots hold the players, the deck order, the
+ * character draft, the current turn and the final scores of a finished game.
+ * <p>
+ * A snapshot starts with {@link #MAGIC} and {@link #VERSION}. Loading maps the file into memory
+ * and reads it in place.
+ */
+public final class GameSnapshot {
+    /** The first four bytes of every snapshot, "CTDL". */
+    public static final int MAGIC = 0x4354444C;
+
+    /** The format version written by this class. */
+    public static final int VERSION = 1;
+
+    /** Written in place of a card, seat or character that is not there. */
+    static final int NONE = -1;
+
+    /** Large enough for any game of up to seven players with the standard catalog. */
+    private static final int BUFFER_SIZE = 1 << 14;
+
+    private GameSnapshot() {
+    }
+
+    /**
+     * Writes a snapshot of a game to a buffer, starting at its position.
+     * @param engine the game to save
+     * @param out    the buffer to write to
+     * @throws IllegalStateException if the game has not started
+     * @throws IllegalArgumentException if a card in the game has no catalog id
+     * @throws java.nio.BufferOverflowException if the buffer is too small
+     */
+    public static void write(GameEngine engine, ByteBuffer out) {
+        out.putInt(MAGIC);
+        out.putShort((short) VERSION);
+        engine.writeState(out);
+    }
+
+    /**
+     * Replaces the state of a game with a snapshot read from a buffer, starting at its position.
+     * @param engine  the game to restore into
+     * @param in      the buffer to read from
+     * @param catalog the catalog the card ids refer to
+     * @throws IllegalStateException if the buffer does not hold a snapshot this version can read
+     * @throws java.nio.BufferUnderflowException if the snapshot is cut short
+     */
+    public static void read(GameEngine engine, ByteBuffer in, DistrictCatalog catalog) {
+        if (in.remaining() < 6 || in.getInt() != MAGIC) {
+            throw new IllegalStateException("Not a game snapshot");
+        }
+        int version = in.getShort();
+        if (version != VERSION) {
+            throw new IllegalStateException("Unsupported snapshot version " + version);
+        }
+        engine.readState(in, catalog);
+    }
+
+    /**
+     * Saves a snapshot of a game to a file, replacing the file if it exists.
+     * @param engine the game to save
+     * @param path   the file to write
+     * @throws IOException if the file cannot be written
+     * @throws IllegalStateException if the game has not started
+     */
+    public static void save(GameEngine engine, Path path) throws IOException {
+        long start = System.nanoTime();
+        FlightEvents.Snapshot event = new FlightEvents.Snapshot();
+        event.begin();
+        ByteBuffer out = ByteBuffer.allocate(BUFFER_SIZE);
+        write(engine, out);
+        out.flip();
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (out.hasRemaining()) {
+                channel.write(out);
+            }
+        }
+        if (engine.getMetrics() != null) {
+            engine.getMetrics().getSaveLatency().record(System.nanoTime() - start);
+        }
+        event.operation = "save";
+        event.path = path.toString();
+        event.commit(engine, -1);
+    }
+
+    /**
+     * Loads a snapshot from a file into a game that uses the standard catalog.
+     * @param engine the game to restore into
+     * @param path   the file to read
+     * @throws IOException if the file cannot be read
+     * @throws IllegalStateException if the file does not hold a snapshot this version can read
+     */
+    public static void load(GameEngine engine, Path path) throws IOException {
+        long start = System.nanoTime();
+        FlightEvents.Snapshot event = new FlightEvents.Snapshot();
+        event.begin();
+        try (FileChannel channel = FileChannel.open(path)) {
+            read(engine, channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()), DistrictCatalog.standard());
+        }
+        if (engine.getMetrics() != null) {
+            engine.getMetrics().getLoadLatency().record(System.nanoTime() - start);
+        }
+        event.operation = "load";
+        event.path = path.toString();
+        event.commit(engine, -1);
+    }
+
+    /**
+     * Writes a player's name, gold, character, flags, hand and city.
+     * @param out    the buffer to write to
+     * @param player the player
+     * @param human  whether the seat is played by a human
+     */
+    static void putPlayer(ByteBuffer out, Player player, boolean human) {
+        byte[] name = player.getName().getBytes(StandardCharsets.UTF_8);
+        out.putShort((short) name.length);
+        out.put(name);
+        out.putInt(player.getGold());
+        out.put((byte) (player.getCharacter() == null ? 0 : player.getCharacter().getTurnOrder()));
+        int flags = (player.isAssassinated() ? 1 : 0) | (player.receiveCrown() ? 2 : 0) | (human ? 4 : 0);
+        out.put((byte) flags);
+        putCards(out, player.getHand());
+        putCards(out, player.getBuiltDistricts());
+    }
+
+    /**
+     * Reads a player written by {@link #putPlayer}.
+     * @param in      the buffer to read from
+     * @param catalog the catalog the card ids refer to
+     * @param seat    the player's seat, used to record the human flag
+     * @param human   receives the human flag of the seat
+     * @return the player
+     */
+    static Player getPlayer(ByteBuffer in, DistrictCatalog catalog, int seat, boolean[] human) {
+        int nameLength = in.getShort();
+        if (nameLength < 0) {
+            throw new IllegalStateException("Snapshot has a player name of " + nameLength + " bytes");
+        }
+        byte[] name = new byte[nameLength];
+        in.get(name);
+        Player player = new Player(new String(name, StandardCharsets.UTF_8));
+        player.addGold(in.getInt() - player.getGold());
+        player.assignCharacter(getCharacter(in));
+        int flags = in.get();
+        player.setAssassinated((flags & 1) != 0);
+        player.setReceiveCrown((flags & 2) != 0);
+        human[seat] = (flags & 4) != 0;
+        int handSize = in.getShort();
+        for (int i = 0; i < handSize; i++) {
+            player.drawCard(getCard(in, catalog));
+        }
+        int citySize = in.getShort();
+        for (int i = 0; i < citySize; i++) {
+            player.getBuiltDistricts().add(getCard(in, catalog));
+        }
+        return player;
+    }
+
+    /**
+     * Reads a character written as its turn order, with 0 or {@link #NONE} for none.
+     * @param in the buffer to read from
+     * @return the character, or null
+     * @throws IllegalStateException if no character has the turn order
+     */
+    static CharacterCard getCharacter(ByteBuffer in) {
+        int turnOrder = in.get();
+        if (turnOrder == 0 || turnOrder == NONE) {
+            return null;
+        }
+        if (turnOrder < 0 || turnOrder > CharacterRole.values().length) {
+            throw new IllegalStateException("Unknown character " + turnOrder);
+        }
+        return CharacterCard.of(CharacterRole.byTurnOrder(turnOrder));
+    }
+
+    /**
+     * Writes a count followed by the id of each card.
+     * @param out   the buffer to write to
+     * @param cards the cards
+     */
+    private static void putCards(ByteBuffer out, List<DistrictCard> cards) {
+        out.putShort((short) cards.size());
+        for (int i = 0; i < cards.size(); i++) {
+            putCard(out, cards.get(i));
+        }
+    }
+
+    /**
+     * Writes the id of a card.
+     * @param out  the buffer to write to
+     * @param card the card, or null
+     * @throws IllegalArgumentException if the card has no catalog id
+     */
+    static void putCard(ByteBuffer out, DistrictCard card) {
+        if (card == null) {
+            out.putShort((short) NONE);
+        } else if (card.getId() == DistrictCatalog.NO_ID) {
+            throw new IllegalArgumentException("Cannot save " + card.getName() + ", it is not from a catalog");
+        } else {
+            out.putShort((short) card.getId());
+        }
+    }
+
+    /**
+     * Reads a card id written by {@link #putCard}.
+     * @param in      the buffer to read from
+     * @param catalog the catalog the card ids refer to
+     * @return the catalog card, or null
+     * @throws IllegalStateException if the catalog has no card with the id
+     */
+    static DistrictCard getCard(ByteBuffer in, DistrictCatalog catalog) {
+        int id = in.getShort();
+        if (id == NONE) {
+            return null;
+        }
+        if (id < 0 || id >= catalog.size()) {
+            throw new IllegalStateException("Unknown card id " + id);
+        }
+        return catalog.get(id);
+    }
+}
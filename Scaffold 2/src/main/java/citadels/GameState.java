@@ -0,0 +1,510 @@
+package citadels;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * An immutable copy of everything needed to continue a game: each seat's gold, character, hand
+ * and city, the deck order, the character draft, the current turn and the final scores.
+ * Cards are held as catalog ids and characters as turn orders.
+ * <p>
+ * {@link #apply(Action)} returns the state after one decision and leaves this state untouched.
+ * The new state shares every part that the decision did not change, such as the seats of the
+ * other players and usually the deck, so a search can branch many futures from one state
+ * without copying whole games. The rules themselves are those of {@link GameEngine}: each
+ * thread keeps a silent scratch engine that the state is loaded into, stepped, and read back from.
+ * Loading only replaces the seats and deck that differ from the state the engine already holds,
+ * and reading back only copies the seats named by the engine's {@link GameEvent}s and the deck
+ * if it was touched, so a decision costs the parts it changes rather than the whole game.
+ */
+public final class GameState {
+    /** One player as it was when the state was captured. Never modified after construction. */
+    static final class Seat {
+        final String name;
+        final int gold;
+        final int character;
+        final boolean assassinated;
+        final boolean receiveCrown;
+        final boolean human;
+        final int[] hand;
+        final int[] city;
+
+        private Seat(Player player, boolean human) {
+            this.name = player.getName();
+            this.gold = player.getGold();
+            this.character = player.getCharacter() == null ? 0 : player.getCharacter().getTurnOrder();
+            this.assassinated = player.isAssassinated();
+            this.receiveCrown = player.receiveCrown();
+            this.human = human;
+            this.hand = ids(player.getHand());
+            this.city = ids(player.getBuiltDistricts());
+        }
+
+        /**
+         * Creates a copy of a seat with a different hand and character.
+         * @param base         the seat to copy
+         * @param hand         the card ids of the new hand
+         * @param character    the turn order of the new character, or 0
+         * @param assassinated whether the new character is assassinated
+         */
+        Seat(Seat base, int[] hand, int character, boolean assassinated) {
+            this.name = base.name;
+            this.gold = base.gold;
+            this.character = character;
+            this.assassinated = assassinated;
+            this.receiveCrown = base.receiveCrown;
+            this.human = base.human;
+            this.hand = hand;
+            this.city = base.city;
+        }
+    }
+
+    private static final ThreadLocal<Scratch> SCRATCH = ThreadLocal.withInitial(Scratch::new);
+
+    private final DistrictCatalog catalog;
+    private final Seat[] seats;
+    private final int[] deck;
+    private final int crownedSeat;
+    private final int round;
+    private final GameEngine.Phase phase;
+    private final int firstToFinish;
+    private final int[] draftPool;
+    private final int hiddenCharacter;
+    private final int[] faceUp;
+    private final int currentSeat;
+    private final int drawn0;
+    private final int drawn1;
+    private final int buildsThisTurn;
+    private final boolean abilityUsed;
+    private final int[] scores;
+    private final int winner;
+    private final long hash;
+
+    /**
+     * Captures the state of an engine.
+     * @param engine       the engine to read
+     * @param previous     the state the engine was loaded from, whose unchanged parts are shared, or null
+     * @param changedSeats a bit for every seat that may have changed since the engine held the previous state
+     * @param deckChanged  whether the deck may have changed since the engine held the previous state
+     * @param catalog      the catalog the cards come from
+     */
+    private GameState(GameEngine engine, GameState previous, int changedSeats, boolean deckChanged, DistrictCatalog catalog) {
+        List<Player> players = engine.getPlayers();
+        this.catalog = catalog;
+        this.seats = new Seat[players.size()];
+        for (int i = 0; i < seats.length; i++) {
+            Player player = players.get(i);
+            Seat old = previous != null ? previous.seats[i] : null;
+            // The crown and assassination flags change without an event of their own
+            if (old == null || (changedSeats & (1 << i)) != 0
+                    || old.receiveCrown != player.receiveCrown() || old.assassinated != player.isAssassinated()) {
+                seats[i] = new Seat(player, engine.isHuman(i));
+            } else {
+                seats[i] = old;
+            }
+        }
+        Deck engineDeck = engine.getDeck();
+        if (previous != null && !deckChanged) {
+            this.deck = previous.deck;
+        } else {
+            this.deck = new int[engineDeck.size()];
+            for (int i = 0; i < deck.length; i++) {
+                deck[i] = id(engineDeck.peek(i));
+            }
+        }
+        this.crownedSeat = engine.getCrownedPlayerIndex();
+        this.round = engine.getRound();
+        this.phase = engine.getPhase();
+        this.firstToFinish = players.indexOf(engine.getFirstToFinish());
+        List<CharacterCard> pool = engine.getDraftPool();
+        if (pool == null) {
+            this.draftPool = null;
+        } else {
+            this.draftPool = new int[pool.size()];
+            for (int i = 0; i < draftPool.length; i++) {
+                draftPool[i] = pool.get(i).getTurnOrder();
+            }
+        }
+        CharacterCard hidden = engine.getHiddenCard();
+        this.hiddenCharacter = hidden == null ? 0 : hidden.getTurnOrder();
+        // The face up characters are only dealt when a round starts
+        if (previous != null && previous.round == round) {
+            this.faceUp = previous.faceUp;
+        } else {
+            List<CharacterCard> removed = engine.getFaceUpCards();
+            this.faceUp = new int[removed.size()];
+            for (int i = 0; i < faceUp.length; i++) {
+                faceUp[i] = removed.get(i).getTurnOrder();
+            }
+        }
+        this.currentSeat = players.indexOf(engine.getCurrentPlayer());
+        DistrictCard[] drawn = engine.getDrawnCards();
+        this.drawn0 = drawn[0] == null ? DistrictCatalog.NO_ID : id(drawn[0]);
+        this.drawn1 = drawn[1] == null ? DistrictCatalog.NO_ID : id(drawn[1]);
+        this.buildsThisTurn = engine.getBuildsThisTurn();
+        this.abilityUsed = engine.isAbilityUsed();
+        this.scores = engine.getScores() == null ? null : engine.getScores().clone();
+        this.winner = players.indexOf(engine.getWinner());
+        this.hash = engine.getHash();
+    }
+
+    /**
+     * Creates a copy of a state with different seats, deck, drawn cards and draft, sharing everything else.
+     * @param base            the state to copy
+     * @param seats           the new seats, which the state takes ownership of
+     * @param deck            the card ids of the new deck, top first
+     * @param drawn0          the id of the first drawn card, or {@link DistrictCatalog#NO_ID}
+     * @param drawn1          the id of the second drawn card, or {@link DistrictCatalog#NO_ID}
+     * @param draftPool       the turn orders of the characters left in the draft, or null outside of the selection phase
+     * @param hiddenCharacter the turn order of the face down character, or 0
+     */
+    GameState(GameState base, Seat[] seats, int[] deck, int drawn0, int drawn1, int[] draftPool, int hiddenCharacter) {
+        this.catalog = base.catalog;
+        this.seats = seats;
+        this.deck = deck;
+        this.crownedSeat = base.crownedSeat;
+        this.round = base.round;
+        this.phase = base.phase;
+        this.firstToFinish = base.firstToFinish;
+        this.draftPool = draftPool;
+        this.hiddenCharacter = hiddenCharacter;
+        this.faceUp = base.faceUp;
+        this.currentSeat = base.currentSeat;
+        this.drawn0 = drawn0;
+        this.drawn1 = drawn1;
+        this.buildsThisTurn = base.buildsThisTurn;
+        this.abilityUsed = base.abilityUsed;
+        this.scores = base.scores;
+        this.winner = base.winner;
+        // Only characters can differ from the base in ways the hash covers
+        long rehashed = base.hash;
+        for (int i = 0; i < seats.length; i++) {
+            if (seats[i].character != base.seats[i].character) {
+                rehashed ^= Zobrist.character(i, base.seats[i].character) ^ Zobrist.character(i, seats[i].character);
+            }
+        }
+        this.hash = rehashed;
+    }
+
+    /**
+     * Captures the current state of a game that uses the standard catalog.
+     * @param engine the game
+     * @return the state
+     * @throws IllegalArgumentException if a card in the game has no catalog id
+     */
+    public static GameState of(GameEngine engine) {
+        return of(engine, DistrictCatalog.standard());
+    }
+
+    /**
+     * Captures the current state of a game.
+     * @param engine  the game
+     * @param catalog the catalog the game's cards come from
+     * @return the state
+     * @throws IllegalArgumentException if a card in the game has no catalog id
+     */
+    public static GameState of(GameEngine engine, DistrictCatalog catalog) {
+        return new GameState(engine, null, -1, true, catalog);
+    }
+
+    /**
+     * Returns the state after the current player makes a decision. This state is not changed.
+     * A decision that ends a round deals the next draft from a random source seeded with this
+     * state's hash, so the same state and decision always lead to the same state.
+     * @param action the decision
+     * @return the new state
+     * @throws IllegalArgumentException if the action is not legal in this state
+     */
+    public GameState apply(Action action) {
+        return apply(action, new SplittableRandom(hash));
+    }
+
+    /**
+     * Returns the state after the current player makes a decision. This state is not changed.
+     * @param action the decision
+     * @param random the source that deals the next draft if the decision ends a round
+     * @return the new state
+     * @throws IllegalArgumentException if the action is not legal in this state
+     */
+    public GameState apply(Action action, SplittableRandom random) {
+        Scratch scratch = SCRATCH.get();
+        GameEngine engine = scratch.load(this);
+        if (!engine.isLegal(action)) {
+            throw new IllegalArgumentException("Illegal action " + action + " in phase " + phase);
+        }
+        // Forget the loaded state until the step is read back, in case it fails halfway
+        scratch.loaded = null;
+        scratch.changedSeats = 0;
+        int deckCount = engine.getDeck().getModCount();
+        engine.setRandom(random);
+        engine.step(action);
+        GameState next = new GameState(engine, this, scratch.changedSeats, engine.getDeck().getModCount() != deckCount, catalog);
+        scratch.loaded = next;
+        return next;
+    }
+
+    /**
+     * Returns every decision the current player can make in this state.
+     * @return the legal actions, empty once the game is over
+     */
+    public List<Action> getLegalActions() {
+        return SCRATCH.get().load(this).getLegalActions();
+    }
+
+    /**
+     * Returns a key for what a legal action does, as {@link GameEngine#getActionKey} computes it.
+     * @param action a legal action in this state
+     * @return the key
+     */
+    long getActionKey(Action action) {
+        return SCRATCH.get().load(this).getActionKey(action);
+    }
+
+    /**
+     * Replaces the state of a game with this state.
+     * @param engine the game to restore into
+     */
+    public void restore(GameEngine engine) {
+        engine.loadState(this);
+    }
+
+    /**
+     * Keeps a silent engine per thread for {@link #apply(Action)}, remembering which state it holds
+     * so that a chain of decisions does not reload the engine each time, and a branch from a
+     * related state only reloads what differs. The engine's events name the seats a step changes.
+     */
+    private static final class Scratch implements GameEventSink {
+        final GameEngine engine = new GameEngine(new Deck(), new ArrayList<>(Arrays.asList(
+                new Player("Player 1"), new Player("Player 2"), new Player("Player 3"), new Player("Player 4"))), null);
+        GameState loaded;
+        int changedSeats;
+
+        Scratch() {
+            engine.setEventSink(this);
+        }
+
+        GameEngine load(GameState state) {
+            if (loaded != state) {
+                engine.loadState(state, loaded);
+                loaded = state;
+            }
+            return engine;
+        }
+
+        @Override
+        public void onEvent(GameEvent event, int seat, int value) {
+            switch (event) {
+                case ROUND_START:
+                    // Every character is cleared
+                    changedSeats = -1;
+                    break;
+                case CHARACTER_CHOSEN:
+                case CARD_DRAWN:
+                case CARD_RETURNED:
+                case GOLD:
+                case DISTRICT_BUILT:
+                case DISTRICT_DESTROYED:
+                case ASSASSINATED:
+                    changedSeats |= 1 << seat;
+                    break;
+                default:
+                    break;
+            }
+        }
+    }
+
+    private static int id(DistrictCard card) {
+        if (card.getId() == DistrictCatalog.NO_ID) {
+            throw new IllegalArgumentException(card.getName() + " is not from a catalog");
+        }
+        return card.getId();
+    }
+
+    private static int[] ids(List<DistrictCard> cards) {
+        int[] ids = new int[cards.size()];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = id(cards.get(i));
+        }
+        return ids;
+    }
+
+    /**
+     * Returns the catalog card for an id held by this state.
+     * @param id the card id, or {@link DistrictCatalog#NO_ID}
+     * @return the card, or null for {@link DistrictCatalog#NO_ID}
+     */
+    DistrictCard card(int id) {
+        return id == DistrictCatalog.NO_ID ? null : catalog.get(id);
+    }
+
+    /**
+     * Returns the character card for a turn order held by this state.
+     * @param turnOrder the turn order, or 0
+     * @return the character card, or null for 0
+     */
+    static CharacterCard character(int turnOrder) {
+        return turnOrder == 0 ? null : CharacterCard.of(CharacterRole.byTurnOrder(turnOrder));
+    }
+
+    Seat getSeat(int seat) {
+        return seats[seat];
+    }
+
+    int[] getDeck() {
+        return deck;
+    }
+
+    int[] getDraftPool() {
+        return draftPool;
+    }
+
+    int getHiddenCharacter() {
+        return hiddenCharacter;
+    }
+
+    int[] getFaceUp() {
+        return faceUp;
+    }
+
+    int getFirstToFinish() {
+        return firstToFinish;
+    }
+
+    int getDrawn(int index) {
+        return index == 0 ? drawn0 : drawn1;
+    }
+
+    int getBuildsThisTurn() {
+        return buildsThisTurn;
+    }
+
+    boolean isAbilityUsed() {
+        return abilityUsed;
+    }
+
+    /**
+     * Returns the Zobrist hash of the state, as {@link GameEngine#getHash()} computes it.
+     * @return the hash
+     */
+    public long getHash() {
+        return hash;
+    }
+
+    /**
+     * Returns the catalog the state's card ids refer to.
+     * @return the catalog
+     */
+    public DistrictCatalog getCatalog() {
+        return catalog;
+    }
+
+    /**
+     * Returns the number of players.
+     * @return the number of seats
+     */
+    public int getNumPlayers() {
+        return seats.length;
+    }
+
+    /**
+     * Returns the decision the game is waiting for.
+     * @return the phase
+     */
+    public GameEngine.Phase getPhase() {
+        return phase;
+    }
+
+    /**
+     * Returns the current round, starting at 1.
+     * @return the round number
+     */
+    public int getRound() {
+        return round;
+    }
+
+    /**
+     * Returns the seat holding the crown.
+     * @return the crowned seat
+     */
+    public int getCrownedSeat() {
+        return crownedSeat;
+    }
+
+    /**
+     * Returns the seat whose decision the game is waiting for.
+     * @return the current seat, or -1 if the game is over
+     */
+    public int getCurrentSeat() {
+        return currentSeat;
+    }
+
+    /**
+     * Returns a seat's gold.
+     * @param seat the seat
+     * @return the amount of gold
+     */
+    public int getGold(int seat) {
+        return seats[seat].gold;
+    }
+
+    /**
+     * Returns a seat's character this round.
+     * @param seat the seat
+     * @return the character card, or null if the seat has not picked one
+     */
+    public CharacterCard getCharacter(int seat) {
+        return character(seats[seat].character);
+    }
+
+    /**
+     * Returns the number of cards in a seat's hand.
+     * @param seat the seat
+     * @return the hand size
+     */
+    public int getHandSize(int seat) {
+        return seats[seat].hand.length;
+    }
+
+    /**
+     * Returns the number of districts in a seat's city.
+     * @param seat the seat
+     * @return the city size
+     */
+    public int getCitySize(int seat) {
+        return seats[seat].city.length;
+    }
+
+    /**
+     * Returns the number of cards left in the deck.
+     * @return the deck size
+     */
+    public int getDeckSize() {
+        return deck.length;
+    }
+
+    /**
+     * Returns whether the game has finished.
+     * @return true if the game is over
+     */
+    public boolean isGameOver() {
+        return phase == GameEngine.Phase.GAME_OVER;
+    }
+
+    /**
+     * Returns the final scores in seat order.
+     * @return a copy of the scores, or null if the game is not over
+     */
+    public int[] getScores() {
+        return scores == null ? null : scores.clone();
+    }
+
+    /**
+     * Returns the winning seat.
+     * @return the winner, or -1 if the game is not over
+     */
+    public int getWinner() {
+        return winner;
+    }
+}
@@ -0,0 +1,181 @@
+package citadels;
+
+import java.io.PrintStream;
+import java.util.*;
+
+/**
+ * One game on a server. The first seats are played by connected players, each through a
+ * {@link HumanSeat} writing to that player's stream, and the rest by the computer. Each connected
+ * player has their own {@link ConsoleEventSink}: the game's public messages go to every player
+ * still at the table, and a private one, such as a pick or a kept card, only to its player.
+ * <p>
+ * The table never reads from its players. It plays until a player has to decide, then waits for
+ * the server to pass that player's lines to {@link #onLine}, so the same table runs on a thread
+ * blocked on one socket or on a selector serving many.
+ */
+final class GameTable {
+    private final int id;
+    private final long seed;
+    private final List<PrintStream> outs;
+    private final GameEngine engine;
+    private final HumanSeat[] seats;
+    private final boolean[] left;
+    private final ConsoleEventSink[] sinks;
+    private int waitingSeat = -1;
+
+    /**
+     * Creates a table and deals its game.
+     * @param id         the table number, shown to the players
+     * @param seed       the seed of the game
+     * @param numPlayers the number of players, between 4 and 7
+     * @param outs       the streams of the connected players, who take the first seats
+     */
+    GameTable(int id, long seed, int numPlayers, List<PrintStream> outs) {
+        this.id = id;
+        this.seed = seed;
+        this.outs = outs;
+        SplittableRandom random = new SplittableRandom(seed);
+        Deck deck = new Deck(random.split());
+        deck.loadFromCatalog(DistrictCatalog.standard());
+        List<Player> players = new ArrayList<>(numPlayers);
+        for (int i = 1; i <= numPlayers; i++) {
+            players.add(new Player("Player " + i));
+        }
+        this.left = new boolean[outs.size()];
+        this.sinks = new ConsoleEventSink[outs.size()];
+        for (int i = 0; i < sinks.length; i++) {
+            sinks[i] = new ConsoleEventSink(outs.get(i));
+        }
+        this.engine = new GameEngine(deck, players, null, random);
+        engine.setEventSink(new TableSink());
+        engine.setMetrics(GameMetrics.global());
+        engine.setTableId(id);
+        this.seats = new HumanSeat[outs.size()];
+        for (int i = 0; i < seats.length; i++) {
+            engine.setHuman(i, true);
+            seats[i] = new HumanSeat(engine, i, null, outs.get(i), null);
+        }
+    }
+
+    /**
+     * Tells every player their seat and plays until the first human decision.
+     */
+    void start() {
+        for (int i = 0; i < outs.size(); i++) {
+            outs.get(i).println("Table " + id + " (seed " + seed + "): you are player " + (i + 1));
+        }
+        engine.start();
+        play();
+    }
+
+    /**
+     * Returns the seat the table is waiting on.
+     * @return the seat index, or -1 if the game is over
+     */
+    int getWaitingSeat() {
+        return waitingSeat;
+    }
+
+    /**
+     * Returns whether the game has finished.
+     * @return true if the game is over
+     */
+    boolean isGameOver() {
+        return engine.isGameOver();
+    }
+
+    /**
+     * Handles a line typed by a player. Lines from a player the table is not waiting on are turned away.
+     * @param seat the player's seat
+     * @param line the line, without its line terminator
+     */
+    void onLine(int seat, CharSequence line) {
+        if (seat != waitingSeat) {
+            outs.get(seat).println("It is not your turn.");
+            outs.get(seat).flush();
+            return;
+        }
+        if (seats[seat].handle(line)) {
+            waitingSeat = -1;
+            play();
+        } else {
+            flush();
+        }
+    }
+
+    /**
+     * Hands the seat of a player who disconnected to the computer and carries on without them.
+     * @param seat the player's seat
+     */
+    void leave(int seat) {
+        if (left[seat]) {
+            return;
+        }
+        left[seat] = true;
+        engine.setHuman(seat, false);
+        engine.log(engine.getPlayers().get(seat).getName() + " left the table. The computer plays for them.");
+        if (waitingSeat == seat) {
+            waitingSeat = -1;
+            play();
+        } else {
+            flush();
+        }
+    }
+
+    /**
+     * Plays until a player has to decide or the game ends, then sends everything written.
+     */
+    private void play() {
+        while (engine.isGameOver() == false) {
+            engine.advance();
+            if (engine.needsHumanInput()) {
+                int seat = engine.getPlayers().indexOf(engine.getCurrentPlayer());
+                if (seats[seat].prompt()) {
+                    waitingSeat = seat;
+                    break;
+                }
+            }
+        }
+        flush();
+    }
+
+    private void flush() {
+        for (int i = 0; i < outs.size(); i++) {
+            if (!left[i]) {
+                outs.get(i).flush();
+            }
+        }
+    }
+
+    /**
+     * Sends the table's messages to the sinks of the players still at the table.
+     */
+    private final class TableSink implements GameEventSink {
+        @Override
+        public void onEvent(GameEvent event, int seat, int value) {
+        }
+
+        @Override
+        public boolean wantsMessages() {
+            return true;
+        }
+
+        @Override
+        public void onMessage(String message) {
+            for (int i = 0; i < sinks.length; i++) {
+                if (!left[i]) {
+                    sinks[i].onMessage(message);
+                }
+            }
+        }
+
+        @Override
+        public void onPrivateMessage(int seat, String message, String others) {
+            for (int i = 0; i < sinks.length; i++) {
+                if (!left[i]) {
+                    sinks[i].onMessage(i == seat ? message : others);
+                }
+            }
+        }
+    }
+}
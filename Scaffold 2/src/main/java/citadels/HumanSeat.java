@@ -0,0 +1,308 @@
+package citadels;
+
+import java.io.PrintStream;
+import java.util.*;
+
+/**
+ * Plays the decisions of one human seat, prompting on an output stream and taking the answers
+ * one line at a time. The console game has one such seat on {@code System.in}; a server table has
+ * one per connected player.
+ * <p>
+ * The seat is driven by lines rather than reading them itself: {@link #prompt()} asks for the
+ * decision the game is waiting on, and each line passed to {@link #handle(CharSequence)} answers
+ * it or asks again. A table served by a selector can therefore feed lines as they arrive, while
+ * {@link #decide()} reads them from the seat's {@link InputSource} for the console.
+ */
+public final class HumanSeat implements CharacterDraft.PickPolicy {
+    /** What the last prompt asked for. */
+    private enum Prompt { NONE, CHARACTER, TARGET, RESOURCES, KEEP_CARD, COMMAND }
+
+    private final GameEngine engine;
+    private final int seat;
+    private final InputSource input;
+    private final PrintStream out;
+    private final App app;
+    private final UserCommands commands;
+    private Prompt awaiting = Prompt.NONE;
+
+    /**
+     * Creates a human seat.
+     * @param engine the game the seat plays in
+     * @param seat   the index of the seat's player
+     * @param input  the source of the player's answers for {@link #decide()}, or null if lines are fed to {@link #handle}
+     * @param out    where prompts and command output are written
+     * @param app    the console application, or null if saving, loading and debug mode are not available
+     */
+    public HumanSeat(GameEngine engine, int seat, InputSource input, PrintStream out, App app) {
+        this.engine = engine;
+        this.seat = seat;
+        this.input = input;
+        this.out = out;
+        this.app = app;
+        this.commands = new UserCommands(engine, this);
+    }
+
+    /**
+     * Returns the index of the seat's player.
+     * @return the seat index
+     */
+    public int getSeat() {
+        return seat;
+    }
+
+    /**
+     * Returns the seat's player. Loading a game replaces the players, so this is looked up every time.
+     * @return the player
+     */
+    public Player getPlayer() {
+        return engine.getPlayers().get(seat);
+    }
+
+    /**
+     * Returns where the seat's output is written.
+     * @return the output stream
+     */
+    public PrintStream getOut() {
+        return out;
+    }
+
+    /**
+     * Returns the console application the seat belongs to.
+     * @return the application, or null on a server table
+     */
+    public App getApp() {
+        return app;
+    }
+
+    /**
+     * Prompts for the decision the game is waiting on and reads lines from the seat's input
+     * until it is made. The game must be waiting on this seat.
+     * @throws NoSuchElementException if the input ends before the decision is made
+     */
+    public void decide() {
+        if (prompt()) {
+            while (!handle(readLine())) {
+                // Every line either answers the prompt or has asked again
+            }
+        }
+    }
+
+    /**
+     * Reads the next line of input, first flushing everything written so far so the player sees the prompt.
+     * @return the line, without its line terminator
+     * @throws NoSuchElementException if the input has ended
+     */
+    private String readLine() {
+        out.flush();
+        String line = input.readLine();
+        if (line == null) {
+            throw new NoSuchElementException("The input ended before the decision was made");
+        }
+        return line;
+    }
+
+    /**
+     * Prompts for the decision the game is waiting on. The game must be waiting on this seat.
+     * A decision with nothing to choose, such as an ability without targets, is made at once.
+     * @return true if the seat now waits for a line, false if the decision is already made
+     */
+    public boolean prompt() {
+        switch (engine.getPhase()) {
+            case SELECT_CHARACTER:
+                printChoices(engine.getDraftChoices());
+                awaiting = Prompt.CHARACTER;
+                return true;
+            case START_ABILITY:
+                out.println("Your turn.");
+                return useAbility();
+            case TAKE_RESOURCES:
+                if (engine.isAbilityUsed() == false) {
+                    out.println("Your turn.");
+                }
+                out.println("Collect 2 gold or draw two cards and pick one [gold/cards]:");
+                out.print("> ");
+                awaiting = Prompt.RESOURCES;
+                return true;
+            case KEEP_CARD:
+                DistrictCard[] drawn = engine.getDrawnCards();
+                DistrictCard card1 = drawn[0];
+                DistrictCard card2 = drawn[1];
+                out.println("Choose a card to keep: [a] " + card1.getName() + " [" + card1.getColor() + "] " + "[" + card1.getCost()
+                + "]" + " or [b] " + card2.getName() + " [" + card2.getColor() + "] " + "[" + card2.getCost() + "]");
+                awaiting = Prompt.KEEP_CARD;
+                return true;
+            case MAIN:
+                out.print("> ");
+                awaiting = Prompt.COMMAND;
+                return true;
+            default:
+                awaiting = Prompt.NONE;
+                return false;
+        }
+    }
+
+    /**
+     * Picks a character by prompting for it and reading lines from the seat's input until one is
+     * valid, so the console seat can be the game's pick policy for its draft.
+     * @param player  the player picking
+     * @param choices the characters the player can pick from
+     * @return the index of the chosen character
+     * @throws NoSuchElementException if the input ends before a character is picked
+     */
+    @Override
+    public int pick(Player player, List<CharacterCard> choices) {
+        printChoices(choices);
+        while (true) {
+            int choice = parseChoice(readLine(), choices.size());
+            if (choice >= 0) {
+                return choice;
+            }
+        }
+    }
+
+    private void printChoices(List<CharacterCard> choices) {
+        out.println("Available characters:");
+        for (int j = 0; j < choices.size(); j++) {
+            CharacterCard card = choices.get(j);
+            out.println("[" + j + "] " + card.getName() + " - " + card.getAbility());
+        }
+        out.print("Choose your character by number: ");
+    }
+
+    /**
+     * Handles one line answering the last prompt. Invalid answers are reported and asked for again.
+     * @param line the line, without its line terminator
+     * @return true if the decision is made and the game has moved on, false if the seat waits for another line
+     */
+    public boolean handle(CharSequence line) {
+        switch (awaiting) {
+            case CHARACTER:
+                int character = parseChoice(line, engine.getDraftChoices().size());
+                if (character < 0) {
+                    return false;
+                }
+                engine.step(Action.selectCharacter(character));
+                return done();
+            case TARGET:
+                int target = parseChoice(line, engine.getAbilityTargetCount());
+                if (target < 0) {
+                    return false;
+                }
+                engine.step(Action.useAbility(target));
+                return afterCommand();
+            case RESOURCES:
+                if (is(line, "gold")) {
+                    engine.step(Action.takeGold());
+                    return done();
+                } else if (is(line, "cards")) {
+                    engine.step(Action.drawCards());
+                    return done();
+                }
+                out.println("Invalid choice. Please type [gold/cards]:");
+                out.print("> ");
+                return false;
+            case KEEP_CARD:
+                if (is(line, "a")) {
+                    engine.step(Action.keepCard(0));
+                    return done();
+                } else if (is(line, "b")) {
+                    engine.step(Action.keepCard(1));
+                    return done();
+                }
+                out.println("Invalid choice. Please enter 'a' or 'b'.");
+                return false;
+            case COMMAND:
+                if (UserCommands.commandIs(line, "end")) {
+                    out.println("You ended your turn.");
+                    engine.step(Action.endTurn());
+                    return done();
+                }
+                if (commands.process(getPlayer(), line, engine.getPlayers())) {
+                    // The command asked for an ability target, which the next line answers
+                    return false;
+                }
+                return afterCommand();
+            default:
+                return true;
+        }
+    }
+
+    /**
+     * Uses the current character's ability. An ability with targets prompts for one, which the
+     * next line passed to {@link #handle} chooses.
+     * @return true if the seat now waits for a target, false if the ability has been used
+     */
+    public boolean useAbility() {
+        List<String> targets = engine.getAbilityTargets();
+        if (targets.isEmpty()) {
+            engine.step(Action.useAbility(-1));
+            awaiting = Prompt.NONE;
+            return false;
+        }
+        out.println("Choose a target:");
+        for (int i = 0; i < targets.size(); i++) {
+            out.println("[" + i + "] " + targets.get(i));
+        }
+        out.print("Enter choice: ");
+        awaiting = Prompt.TARGET;
+        return true;
+    }
+
+    /**
+     * Finishes a command of the main turn, prompting for the next one while the turn goes on.
+     * @return true if the turn is over, false if the seat waits for the next command
+     */
+    private boolean afterCommand() {
+        out.println();
+        if (engine.getPhase() == GameEngine.Phase.MAIN && engine.getCurrentPlayer() == getPlayer()) {
+            out.print("> ");
+            awaiting = Prompt.COMMAND;
+            return false;
+        }
+        return done();
+    }
+
+    /**
+     * Ends the current prompt. If the game rejected the answer it is still waiting on this seat,
+     * and whoever drives the seat prompts again.
+     * @return true
+     */
+    private boolean done() {
+        awaiting = Prompt.NONE;
+        return true;
+    }
+
+    /**
+     * Parses a number between 0 (inclusive) and the given bound (exclusive), reporting invalid input.
+     * @param line  the line holding the number
+     * @param bound the number of options
+     * @return the chosen option, or -1 if the line is not a valid option
+     */
+    private int parseChoice(CharSequence line, int bound) {
+        int start = UserCommands.skipSpaces(line, 0);
+        int end = line.length();
+        while (end > start && line.charAt(end - 1) == ' ') {
+            end--;
+        }
+        try {
+            int choice = Integer.parseInt(line, start, end, 10);
+            if (choice < 0 || choice >= bound) {
+                out.println("Invalid selection. Try again:");
+                return -1;
+            }
+            return choice;
+        } catch (NumberFormatException e) {
+            out.println("Invalid input. Enter a number.");
+            return -1;
+        }
+    }
+
+    /**
+     * Returns whether a line is a word, ignoring case and surrounding spaces.
+     */
+    private static boolean is(CharSequence line, String word) {
+        int start = UserCommands.skipSpaces(line, 0);
+        int end = UserCommands.tokenEnd(line, start);
+        return UserCommands.regionIs(line, start, end, word) && UserCommands.skipSpaces(line, end) == line.length();
+    }
+}
@@ -0,0 +1,16 @@
+package citadels;
+
+/**
+ * Where the lines typed by a human player come from. The console game reads them from standard
+ * input through a {@link ConsoleInput}; a {@link ScriptInput} replays a recorded session at full
+ * speed, for regression runs and load tests.
+ * <p>
+ * A source is read by one thread at a time.
+ */
+public interface InputSource {
+    /**
+     * Returns the next line.
+     * @return the line without its line terminator, or null once the input has ended
+     */
+    String readLine();
+}
@@ -0,0 +1,105 @@
+package citadels;
+
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A histogram of durations in power-of-two buckets of nanoseconds. Recording is a bucket lookup
+ * and two {@link LongAdder} increments, which spread contended updates over per-thread cells, so
+ * many game threads can record into one histogram without fighting over a shared counter.
+ * Percentiles are reported as the upper bound of the bucket they fall in, so they are accurate
+ * to within a factor of two.
+ */
+public final class LatencyHistogram {
+    private static final int BUCKETS = 64;
+
+    private final LongAdder[] buckets = new LongAdder[BUCKETS];
+    private final LongAdder totalNanos = new LongAdder();
+    private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+
+    /**
+     * Creates an empty histogram.
+     */
+    public LatencyHistogram() {
+        for (int i = 0; i < BUCKETS; i++) {
+            buckets[i] = new LongAdder();
+        }
+    }
+
+    /**
+     * Adds a duration.
+     * @param nanos the duration in nanoseconds; negative durations count as 0
+     */
+    public void record(long nanos) {
+        if (nanos < 0) {
+            nanos = 0;
+        }
+        buckets[BUCKETS - Long.numberOfLeadingZeros(nanos)].increment();
+        totalNanos.add(nanos);
+        maxNanos.accumulate(nanos);
+    }
+
+    /**
+     * Returns the number of durations recorded.
+     * @return the count
+     */
+    public long getCount() {
+        long count = 0;
+        for (LongAdder bucket : buckets) {
+            count += bucket.sum();
+        }
+        return count;
+    }
+
+    /**
+     * Returns the mean duration.
+     * @return the mean in nanoseconds, or 0 if nothing was recorded
+     */
+    public long getMeanNanos() {
+        long count = getCount();
+        return count == 0 ? 0 : totalNanos.sum() / count;
+    }
+
+    /**
+     * Returns the median duration.
+     * @return the upper bound of the median's bucket in nanoseconds
+     */
+    public long getP50Nanos() {
+        return percentile(0.50);
+    }
+
+    /**
+     * Returns the 99th percentile duration.
+     * @return the upper bound of the 99th percentile's bucket in nanoseconds
+     */
+    public long getP99Nanos() {
+        return percentile(0.99);
+    }
+
+    /**
+     * Returns the longest duration recorded.
+     * @return the maximum in nanoseconds
+     */
+    public long getMaxNanos() {
+        return maxNanos.get();
+    }
+
+    private long percentile(double fraction) {
+        long[] counts = new long[BUCKETS];
+        long count = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            counts[i] = buckets[i].sum();
+            count += counts[i];
+        }
+        long rank = (long) Math.ceil(count * fraction);
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts[i];
+            if (seen >= rank && counts[i] > 0) {
+                // Bucket 0 holds 0 ns, bucket i holds [2^(i-1), 2^i)
+                return i == 0 ? 0 : Math.min((1L << i) - 1, getMaxNanos());
+            }
+        }
+        return 0;
+    }
+}
@@ -0,0 +1,358 @@
+package citadels;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * Chooses decisions for computer players with Monte Carlo Tree Search. Each decision is searched
+ * for a fixed time budget by independent workers, one per thread, whose root visit counts are
+ * added up at the end (root parallelisation). The most visited action is played. The calling
+ * thread runs one worker itself and the others run on a pool the search owns, so a search gets
+ * every thread it asks for and never waits on threads shared with the rest of the program.
+ * Close the search when it is no longer needed to stop the pool's threads.
+ * <p>
+ * Trees are built from {@link GameState}s, so expanding a node shares everything the action did
+ * not change. Each playout loads the leaf into a silent engine of the worker and finishes the game
+ * with the greedy {@link Computer} rules, and the winner of the playout scores one point for every
+ * node on the path. Nodes pick children by UCT using the score of the player to move, so every
+ * seat plays for itself.
+ * <p>
+ * The searching player cannot see the other hands, the deck order or the characters not yet
+ * called, so each tree is built in a world sampled by a {@link Determinizer} from what the player
+ * knows. Every worker searches a run of such worlds, a fixed number of playouts each, and adds up
+ * the root visits of all of them. Root actions are matched across worlds by what they do, as
+ * {@code GameEngine.getActionKey} keys them, not by their index: the same ability target can sit
+ * at another index when the hidden characters differ, and a target a world does not offer gets
+ * no votes from it. A round that ends inside a tree deals its next draft once, when the node is
+ * expanded.
+ * <p>
+ * All workers of a search share a {@link TranspositionTable} keyed by the Zobrist hash of each
+ * position and the seat whose decision led to it. Positions are reached by different orders of
+ * moves and in different sampled worlds, and since hands and the deck are not part of the hash,
+ * the same position in two worlds shares one entry. Selection uses the table's results for a
+ * child whenever they cover at least as many playouts as the child's own. The table is kept from
+ * one decision to the next of the same game, so later decisions start from what earlier ones
+ * learned, and is only cleared when the search is asked about another game or a game that
+ * started over.
+ */
+public final class MctsSearch implements AutoCloseable {
+    /** Exploration constant of the UCT formula. */
+    private static final double EXPLORATION = Math.sqrt(2);
+
+    /** Playouts run in one sampled world before the next one is drawn. */
+    private static final int WORLD_ITERATIONS = 64;
+
+    /** Entries in the transposition table of each search. */
+    private static final int TABLE_SIZE = 1 << 18;
+
+    private final long budgetNanos;
+    private final int threads;
+    private final int maxIterations;
+    private final TranspositionTable table = new TranspositionTable(TABLE_SIZE);
+    /** Runs every worker but the caller's, or null for a single-threaded search. */
+    private final ForkJoinPool pool;
+    /** The game the table holds results for, and the round of its last decision. */
+    private GameEngine lastGame;
+    private int lastRound;
+
+    /**
+     * Creates a search that thinks for a fixed time on each decision.
+     * @param budgetMillis the time to search each decision, in milliseconds
+     * @param threads      the number of workers searching in parallel
+     * @throws IllegalArgumentException if the budget or thread count is not positive
+     */
+    public MctsSearch(long budgetMillis, int threads) {
+        this(budgetMillis, threads, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Creates a search that stops at the time budget or after a number of playouts per worker,
+     * whichever comes first.
+     * @param budgetMillis  the time to search each decision, in milliseconds
+     * @param threads       the number of workers searching in parallel
+     * @param maxIterations the most playouts each worker runs per decision
+     * @throws IllegalArgumentException if any argument is not positive
+     */
+    public MctsSearch(long budgetMillis, int threads, int maxIterations) {
+        if (budgetMillis <= 0 || threads <= 0 || maxIterations <= 0) {
+            throw new IllegalArgumentException("Search budget, threads and iterations must be positive");
+        }
+        this.budgetNanos = budgetMillis * 1_000_000L;
+        this.threads = threads;
+        this.maxIterations = maxIterations;
+        this.pool = threads > 1 ? new ForkJoinPool(threads - 1) : null;
+    }
+
+    /**
+     * Searches the current decision of a game and returns the best action found.
+     * The seeds of the workers are drawn from the game's random source.
+     * @param game the game, waiting on a decision
+     * @return a legal action for the current player
+     * @throws IllegalStateException if the game is over
+     * @throws java.util.concurrent.RejectedExecutionException if the search was closed
+     */
+    public Action choose(GameEngine game) {
+        GameState root = GameState.of(game);
+        List<Action> actions = root.getLegalActions();
+        if (actions.isEmpty()) {
+            throw new IllegalStateException("No decision to search");
+        }
+        if (actions.size() == 1) {
+            return actions.get(0);
+        }
+        if (game != lastGame || game.getRound() < lastRound) {
+            table.clear();
+            lastGame = game;
+        }
+        lastRound = game.getRound();
+        long deadline = System.nanoTime() + budgetNanos;
+        int viewer = root.getCurrentSeat();
+        long[] keys = new long[actions.size()];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = root.getActionKey(actions.get(i));
+        }
+        int[] visits = new int[actions.size()];
+        Worker own = new Worker(game.getRandom().split(), root.getCatalog());
+        List<Future<int[]>> workers = new ArrayList<>(threads - 1);
+        for (int i = 1; i < threads; i++) {
+            Worker worker = new Worker(game.getRandom().split(), root.getCatalog());
+            workers.add(pool.submit(() -> worker.search(root, keys, viewer, deadline)));
+        }
+        add(visits, own.search(root, keys, viewer, deadline));
+        try {
+            for (Future<int[]> worker : workers) {
+                add(visits, worker.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Search interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Search failed", e.getCause());
+        }
+        int best = 0;
+        for (int i = 1; i < visits.length; i++) {
+            if (visits[i] > visits[best]) {
+                best = i;
+            }
+        }
+        return actions.get(best);
+    }
+
+    /**
+     * Stops the threads of the search's pool. The search cannot be used with more than one thread afterwards.
+     */
+    @Override
+    public void close() {
+        if (pool != null) {
+            pool.shutdown();
+        }
+    }
+
+    private static void add(int[] total, int[] visits) {
+        for (int i = 0; i < total.length; i++) {
+            total[i] += visits[i];
+        }
+    }
+
+    /**
+     * Searches sampled worlds on a single thread with its own random source, sampler and playout engine.
+     */
+    private final class Worker {
+        private final SplittableRandom random;
+        private final Determinizer determinizer;
+        private final GameEngine playout;
+        private final List<Node> path = new ArrayList<>();
+        private int[] childVisits = new int[16];
+        private int[] childWins = new int[16];
+        /** The root action each action of the current world does the same as, or -1. */
+        private int[] toRoot = new int[16];
+
+        Worker(SplittableRandom random, DistrictCatalog catalog) {
+            this.random = random;
+            this.determinizer = new Determinizer(catalog);
+            List<Player> players = new ArrayList<>();
+            for (int i = 1; i <= 4; i++) {
+                players.add(new Player("Player " + i));
+            }
+            this.playout = new GameEngine(new Deck(), players, null, random);
+        }
+
+        /**
+         * Builds trees in sampled worlds until the deadline or the iteration limit.
+         * @param root     the true state of the game
+         * @param keys     the action keys of the legal actions at the root
+         * @param viewer   the seat making the decision
+         * @param deadline the {@link System#nanoTime()} at which to stop
+         * @return the number of visits of each root action, in the order of the root actions
+         */
+        int[] search(GameState root, long[] keys, int viewer, long deadline) {
+            int[] visits = new int[keys.length];
+            int iterations = 0;
+            while (iterations < maxIterations && System.nanoTime() < deadline) {
+                GameState world = determinizer.sample(root, viewer, random);
+                List<Action> worldActions = world.getLegalActions();
+                matchRootActions(world, worldActions, keys);
+                Node tree = new Node(world, worldActions, 0, random);
+                for (int i = 0; i < WORLD_ITERATIONS && iterations < maxIterations && System.nanoTime() < deadline; i++) {
+                    iterate(tree);
+                    iterations++;
+                }
+                for (int i = 0; i < worldActions.size(); i++) {
+                    if (toRoot[i] >= 0 && tree.children[i] != null) {
+                        visits[toRoot[i]] += tree.children[i].visits;
+                    }
+                }
+            }
+            return visits;
+        }
+
+        /**
+         * Finds the root action each action of a sampled world does the same as, into {@code toRoot}.
+         * @param world   the sampled world
+         * @param actions the legal actions in the world
+         * @param keys    the action keys of the legal actions at the root
+         */
+        private void matchRootActions(GameState world, List<Action> actions, long[] keys) {
+            if (toRoot.length < actions.size()) {
+                toRoot = new int[actions.size()];
+            }
+            for (int i = 0; i < actions.size(); i++) {
+                long key = world.getActionKey(actions.get(i));
+                toRoot[i] = -1;
+                for (int j = 0; j < keys.length; j++) {
+                    if (keys[j] == key) {
+                        toRoot[i] = j;
+                        break;
+                    }
+                }
+            }
+        }
+
+        /**
+         * Selects a path to a leaf, expands one child, plays the game out and records the winner.
+         * @param root the root of the tree
+         */
+        private void iterate(Node root) {
+            path.clear();
+            Node node = root;
+            path.add(node);
+            while (!node.state.isGameOver()) {
+                if (node.expanded < node.children.length) {
+                    int index = node.order[node.expanded++];
+                    GameState next = node.state.apply(node.actions.get(index), random);
+                    Node child = new Node(next, next.isGameOver() ? Collections.emptyList() : next.getLegalActions(),
+                            next.getHash() ^ Zobrist.mover(node.state.getCurrentSeat()), random);
+                    node.children[index] = child;
+                    path.add(child);
+                    break;
+                }
+                node = select(node);
+                path.add(node);
+            }
+            int winner = playOut(path.get(path.size() - 1).state);
+            for (int i = 0; i < path.size(); i++) {
+                Node visited = path.get(i);
+                visited.visits++;
+                if (winner >= 0) {
+                    visited.wins[winner]++;
+                }
+                if (i > 0) {
+                    table.record(visited.key, winner == path.get(i - 1).state.getCurrentSeat());
+                }
+            }
+        }
+
+        /**
+         * Picks the child with the highest UCT value for the player to move, counting the
+         * transposition table's results for a child when they cover more playouts than its own.
+         * @param node a fully expanded node
+         * @return the selected child
+         */
+        private Node select(Node node) {
+            int mover = node.state.getCurrentSeat();
+            Node[] children = node.children;
+            if (childVisits.length < children.length) {
+                childVisits = new int[children.length];
+                childWins = new int[children.length];
+            }
+            int total = 0;
+            for (int i = 0; i < children.length; i++) {
+                Node child = children[i];
+                long entry = table.probe(child.key);
+                if (TranspositionTable.visits(entry) >= child.visits) {
+                    childVisits[i] = TranspositionTable.visits(entry);
+                    childWins[i] = TranspositionTable.wins(entry);
+                } else {
+                    childVisits[i] = child.visits;
+                    childWins[i] = child.wins[mover];
+                }
+                total += childVisits[i];
+            }
+            double logVisits = Math.log(total);
+            Node best = null;
+            double bestValue = Double.NEGATIVE_INFINITY;
+            for (int i = 0; i < children.length; i++) {
+                double value = (double) childWins[i] / childVisits[i]
+                        + EXPLORATION * Math.sqrt(logVisits / childVisits[i]);
+                if (value > bestValue) {
+                    bestValue = value;
+                    best = children[i];
+                }
+            }
+            return best;
+        }
+
+        /**
+         * Finishes a game from a state with the greedy computer rules.
+         * @param state the state to play from
+         * @return the winning seat, or -1 if there was none
+         */
+        private int playOut(GameState state) {
+            if (state.isGameOver()) {
+                return state.getWinner();
+            }
+            state.restore(playout);
+            for (int seat = 0; seat < state.getNumPlayers(); seat++) {
+                playout.setHuman(seat, false);
+            }
+            playout.runToEnd();
+            return playout.getPlayers().indexOf(playout.getWinner());
+        }
+    }
+
+    /**
+     * A state in a search tree with the win counts of every seat over the playouts through it.
+     * Children are indexed like the actions and expanded in a random order, so that a short
+     * search does not favour the first actions. The key is the state's entry in the
+     * transposition table.
+     */
+    private static final class Node {
+        final GameState state;
+        final List<Action> actions;
+        final Node[] children;
+        final int[] order;
+        final int[] wins;
+        final long key;
+        int expanded;
+        int visits;
+
+        Node(GameState state, List<Action> actions, long key, SplittableRandom random) {
+            this.state = state;
+            this.key = key;
+            this.actions = actions;
+            this.children = new Node[actions.size()];
+            this.order = new int[actions.size()];
+            for (int i = 0; i < order.length; i++) {
+                int j = random.nextInt(i + 1);
+                order[i] = order[j];
+                order[j] = i;
+            }
+            this.wins = new int[state.getNumPlayers()];
+        }
+    }
+}
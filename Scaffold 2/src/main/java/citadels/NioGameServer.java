@@ -0,0 +1,415 @@
+package citadels;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * Hosts many games at once on a single thread, serving every connection from one selector.
+ * Players speak the line protocol of the console game: each line answers a prompt or is one of
+ * the {@link UserCommands}. What a player sends is decoded as UTF-8 by one reusable decoder into
+ * a shared character buffer, collected into a reusable builder and handed to the player's
+ * {@link GameTable} line by line, so nothing is split or copied per command. Bytes that are not
+ * UTF-8 become replacement characters, and a character split between two reads waits in its
+ * connection for the rest of its bytes.
+ * <p>
+ * Connections do not own buffers. Reads borrow a direct buffer from a shared {@link BufferPool}
+ * for the duration of one read, and output is queued in pooled buffers only until the socket
+ * accepts it, so an idle connection holds no buffer at all.
+ * <p>
+ * Computer turns run on the selector thread, so tables should use the fixed computer rules
+ * rather than a time-limited search. Table {@code i} is seeded with {@code seed + i}, like the
+ * tables of a {@link GameServer}.
+ */
+public final class NioGameServer implements Closeable {
+    /** Size of each pooled buffer. */
+    private static final int BUFFER_SIZE = 4096;
+    /** Idle buffers kept for reuse. */
+    private static final int MAX_POOLED = 256;
+    /** Characters kept of a line; the rest of a longer line is dropped. */
+    private static final int MAX_LINE = 256;
+    /** Buffers of unsent output after which a player who is not reading is disconnected. */
+    private static final int MAX_PENDING = 16;
+
+    private final Selector selector;
+    private final ServerSocketChannel server;
+    private final int port;
+    private final int numPlayers;
+    private final int humansPerTable;
+    private final long seed;
+    private final BufferPool pool = new BufferPool(BUFFER_SIZE, MAX_POOLED);
+    private final CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder()
+        .onMalformedInput(CodingErrorAction.REPLACE)
+        .onUnmappableCharacter(CodingErrorAction.REPLACE);
+    /** Decoded characters of one read; UTF-8 never decodes to more chars than it has bytes. */
+    private final CharBuffer chars = CharBuffer.allocate(BUFFER_SIZE);
+    private final List<Connection> lobby = new ArrayList<>();
+    private final ArrayDeque<Connection> dropped = new ArrayDeque<>();
+    private volatile boolean closed;
+    private volatile int openTables;
+    private int tablesStarted;
+
+    /**
+     * Creates a server listening on a port.
+     * @param port           the port, or 0 for any free port
+     * @param numPlayers     the number of players at each table, between 4 and 7
+     * @param humansPerTable the number of connected players seated at each table
+     * @param seed           the seed of the first table
+     * @throws IOException if the port cannot be opened
+     * @throws IllegalArgumentException if the player counts are out of range
+     */
+    public NioGameServer(int port, int numPlayers, int humansPerTable, long seed) throws IOException {
+        if (numPlayers < 4 || numPlayers > 7) {
+            throw new IllegalArgumentException("Number of players must be between 4-7");
+        }
+        if (humansPerTable < 1 || humansPerTable > numPlayers) {
+            throw new IllegalArgumentException("Humans per table must be between 1 and " + numPlayers);
+        }
+        this.selector = Selector.open();
+        this.server = ServerSocketChannel.open();
+        server.bind(new InetSocketAddress(port));
+        server.configureBlocking(false);
+        server.register(selector, SelectionKey.OP_ACCEPT);
+        this.port = ((InetSocketAddress) server.getLocalAddress()).getPort();
+        this.numPlayers = numPlayers;
+        this.humansPerTable = humansPerTable;
+        this.seed = seed;
+    }
+
+    /**
+     * Returns the port the server listens on.
+     * @return the local port
+     */
+    public int getPort() {
+        return port;
+    }
+
+    /**
+     * Returns the number of tables whose game is still being played.
+     * @return the number of open tables
+     */
+    public int getOpenTables() {
+        return openTables;
+    }
+
+    /**
+     * Serves every connection on the calling thread until the server is closed, then disconnects everyone.
+     * @throws IOException if the selector fails
+     */
+    public void serve() throws IOException {
+        try {
+            while (!closed) {
+                selector.select(this::ready);
+            }
+        } finally {
+            for (SelectionKey key : selector.keys()) {
+                key.channel().close();
+            }
+            selector.close();
+        }
+    }
+
+    /**
+     * Handles one ready channel, then hands the seats of anyone it disconnected to the computer.
+     */
+    private void ready(SelectionKey key) {
+        if (!key.isValid()) {
+            // Closed while an earlier key of the same selection was handled
+        } else if (key.isAcceptable()) {
+            accept();
+        } else {
+            Connection connection = (Connection) key.attachment();
+            if (key.isReadable()) {
+                connection.read();
+            }
+            if (key.isValid() && key.isWritable()) {
+                connection.flush();
+            }
+        }
+        while (!dropped.isEmpty()) {
+            dropped.pollFirst().leave();
+        }
+    }
+
+    private void accept() {
+        try {
+            SocketChannel channel = server.accept();
+            if (channel == null) {
+                return;
+            }
+            channel.configureBlocking(false);
+            Connection connection = new Connection(channel);
+            connection.key = channel.register(selector, SelectionKey.OP_READ, connection);
+            join(connection);
+        } catch (IOException e) {
+            // The player gave up before being seated
+        }
+    }
+
+    /**
+     * Adds a player to the lobby and opens a table once it has enough players.
+     * @param connection the new player
+     */
+    private void join(Connection connection) {
+        lobby.add(connection);
+        if (lobby.size() < humansPerTable) {
+            connection.out.println("Waiting for " + (humansPerTable - lobby.size()) + " more player(s)...");
+            connection.out.flush();
+            return;
+        }
+        Connection[] seated = lobby.toArray(new Connection[0]);
+        lobby.clear();
+        List<PrintStream> outs = new ArrayList<>(seated.length);
+        for (Connection player : seated) {
+            outs.add(player.out);
+        }
+        int id = tablesStarted++;
+        GameTable table = new GameTable(id, seed + id, numPlayers, outs);
+        for (int i = 0; i < seated.length; i++) {
+            seated[i].table = table;
+            seated[i].seat = i;
+            seated[i].tablemates = seated;
+        }
+        openTables++;
+        table.start();
+        seated[0].checkGameOver();
+    }
+
+    /**
+     * Stops the server. The thread in {@link #serve()} disconnects everyone and returns.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        selector.wakeup();
+    }
+
+    /**
+     * A connected player: the bytes of the line being typed, the output not yet sent, and the
+     * player's seat once they are at a table. Used only by the selector thread.
+     */
+    private final class Connection {
+        final SocketChannel channel;
+        final StringBuilder line = new StringBuilder();
+        /** The first bytes of a character the last read ended in the middle of. */
+        final byte[] partial = new byte[3];
+        int partialLength;
+        final ArrayDeque<ByteBuffer> pending = new ArrayDeque<>();
+        final PrintStream out = new PrintStream(new ChannelOutput(), false, StandardCharsets.UTF_8);
+        SelectionKey key;
+        GameTable table;
+        Connection[] tablemates;
+        int seat;
+        boolean closeWhenFlushed;
+
+        Connection(SocketChannel channel) {
+            this.channel = channel;
+        }
+
+        /**
+         * Reads what the player has sent and handles every complete line.
+         */
+        void read() {
+            ByteBuffer buffer = pool.acquire();
+            try {
+                buffer.put(partial, 0, partialLength);
+                if (channel.read(buffer) < 0) {
+                    drop();
+                    return;
+                }
+                buffer.flip();
+                decoder.reset();
+                chars.clear();
+                decoder.decode(buffer, chars, false);
+                partialLength = buffer.remaining();
+                buffer.get(partial, 0, partialLength);
+                chars.flip();
+                while (chars.hasRemaining() && channel.isOpen()) {
+                    char c = chars.get();
+                    if (c == '\n') {
+                        onLine();
+                        line.setLength(0);
+                    } else if (c != '\r' && line.length() < MAX_LINE) {
+                        line.append(c);
+                    }
+                }
+            } catch (IOException e) {
+                drop();
+            } finally {
+                pool.release(buffer);
+            }
+        }
+
+        private void onLine() {
+            if (table == null) {
+                out.println("Waiting for " + (humansPerTable - lobby.size()) + " more player(s)...");
+                out.flush();
+                return;
+            }
+            table.onLine(seat, line);
+            checkGameOver();
+        }
+
+        /**
+         * Sends as much queued output as the socket accepts, and waits to be writable for the rest.
+         */
+        void flush() {
+            if (!channel.isOpen()) {
+                return;
+            }
+            try {
+                while (!pending.isEmpty()) {
+                    ByteBuffer buffer = pending.peekFirst();
+                    buffer.flip();
+                    channel.write(buffer);
+                    if (buffer.hasRemaining()) {
+                        buffer.compact();
+                        key.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+                        return;
+                    }
+                    pool.release(pending.pollFirst());
+                }
+                if (closeWhenFlushed) {
+                    close();
+                } else {
+                    key.interestOps(SelectionKey.OP_READ);
+                }
+            } catch (IOException e) {
+                drop();
+            }
+        }
+
+        /**
+         * Closes the connection now and leaves the table once the current event is handled,
+         * so a table is never re-entered while it is writing.
+         */
+        void drop() {
+            if (channel.isOpen()) {
+                close();
+                dropped.addLast(this);
+            }
+        }
+
+        /**
+         * Takes a dropped player out of the lobby or hands their seat to the computer.
+         */
+        void leave() {
+            if (table == null) {
+                lobby.remove(this);
+            } else if (!table.isGameOver()) {
+                table.leave(seat);
+                checkGameOver();
+            }
+        }
+
+        /**
+         * Sends the rest of the game to everyone at a finished table and then disconnects them.
+         */
+        void checkGameOver() {
+            if (table.isGameOver() && !closeWhenFlushed) {
+                openTables--;
+                for (Connection player : tablemates) {
+                    player.closeWhenFlushed = true;
+                    player.flush();
+                }
+            }
+        }
+
+        private void close() {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                // The player is gone either way
+            }
+            while (!pending.isEmpty()) {
+                pool.release(pending.pollFirst());
+            }
+        }
+
+        /**
+         * Queues output in pooled buffers until {@link #flush()}.
+         */
+        private final class ChannelOutput extends OutputStream {
+            @Override
+            public void write(int b) {
+                ByteBuffer buffer = writable();
+                if (buffer != null) {
+                    buffer.put((byte) b);
+                }
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) {
+                while (len > 0) {
+                    ByteBuffer buffer = writable();
+                    if (buffer == null) {
+                        return;
+                    }
+                    int n = Math.min(len, buffer.remaining());
+                    buffer.put(b, off, n);
+                    off += n;
+                    len -= n;
+                }
+            }
+
+            @Override
+            public void flush() {
+                Connection.this.flush();
+            }
+
+            /**
+             * Returns the buffer to append to, or null if the output should be discarded.
+             */
+            private ByteBuffer writable() {
+                if (!channel.isOpen()) {
+                    return null;
+                }
+                ByteBuffer last = pending.peekLast();
+                if (last != null && last.hasRemaining()) {
+                    return last;
+                }
+                if (pending.size() >= MAX_PENDING) {
+                    drop();
+                    return null;
+                }
+                ByteBuffer buffer = pool.acquire();
+                pending.addLast(buffer);
+                return buffer;
+            }
+        }
+    }
+
+    /**
+     * Runs a selector game server from the command line.
+     * @param args the port (default 7070), number of players per table (default 4), connected
+     *             players per table (default 1) and seed (default random)
+     * @throws IOException if the port cannot be opened
+     */
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : 7070;
+        int numPlayers = args.length > 1 ? Integer.parseInt(args[1]) : 4;
+        int humans = args.length > 2 ? Integer.parseInt(args[2]) : 1;
+        long seed = args.length > 3 ? Long.parseLong(args[3]) : new SplittableRandom().nextLong();
+
+        try (NioGameServer server = new NioGameServer(port, numPlayers, humans, seed)) {
+            System.out.println("Serving " + numPlayers + "-player tables with " + humans
+                + " connected player(s) each on port " + server.getPort() + " (seed " + seed + ")");
+            server.serve();
+        }
+    }
+}
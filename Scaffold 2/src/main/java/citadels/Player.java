@@ -9,10 +9,14 @@ public class Player {
     private String name;
     private int gold;
     private List<DistrictCard> hand;
-    private List<DistrictCard> builtDistricts;
+    private City builtDistricts;
     private CharacterCard character;
     private boolean isAssassinated = false;
     private boolean crown;
+    /** The player's seat in the game, which the Zobrist keys depend on. */
+    private int seat;
+    /** XOR of the Zobrist keys of the player's gold and character. The city keeps its own part. */
+    private long hash;
 
     /**
      * Constructs a new Player with the given name and initializes
@@ -23,7 +27,8 @@ public class Player {
         this.name = name;
         this.gold = 2;
         this.hand = new ArrayList<>();
-        this.builtDistricts = new ArrayList<>();
+        this.builtDistricts = new City();
+        this.hash = Zobrist.gold(seat, gold) ^ Zobrist.character(seat, null);
     }
 
     /**
@@ -31,7 +36,9 @@ public class Player {
      * @param amount the amount of gold to add
      */
     public void addGold(int amount){
+        hash ^= Zobrist.gold(seat, gold);
         this.gold += amount;
+        hash ^= Zobrist.gold(seat, gold);
     }
 
     /**pts to spend the specified amount of gold.
@@ -41,7 +48,9 @@ public class Player {
      */
     public boolean spendGold(int amount){
         if(this.gold >= amount){
+            hash ^= Zobrist.gold(seat, gold);
             this.gold -= amount;
+            hash ^= Zobrist.gold(seat, gold);
             return true;
         }
         return false;
@@ -74,12 +83,90 @@ public class Player {
      * @return true if the district has been built; false otherwise
      */
     public boolean hasBuilt(String name){
-        for (DistrictCard card : builtDistricts) {
-            if (card.getName().equals(name)) {
-                return true;
-            }
+        return builtDistricts.containsName(name);
+    }
+
+    /**
+     * Checks whether the player has built the same district as the given card.
+     * Catalog cards are looked up by id in constant time.
+     * @param card the district card to check
+     * @return true if the district has been built; false otherwise
+     */
+    public boolean hasBuilt(DistrictCard card){
+        return builtDistricts.containsDistrict(card);
+    }
+
+    /**
+     * Returns how many districts of a color the player has built. The count is kept up to date
+     * as districts are built and destroyed.
+     * @param color the district color
+     * @return the number of built districts of that color
+     */
+    public int countColor(DistrictColor color){
+        return builtDistricts.countColor(color);
+    }
+
+    /**
+     * Returns the colors of the player's built districts as a bit mask of {@link DistrictColor#bit()}.
+     * @return the color mask
+     */
+    public int getColorMask(){
+        return builtDistricts.getColorMask();
+    }
+
+    /**
+     * Checks whether the player has built a district of every color.
+     * @return true if all five colors are in the player's city
+     */
+    public boolean hasAllColors(){
+        return builtDistricts.getColorMask() == DistrictColor.ALL;
+    }
+
+    /**
+     * Returns the sum of the costs of the player's built districts.
+     * @return the base score
+     */
+    public int getBaseScore(){
+        return builtDistricts.getBaseScore();
+    }
+
+    /**
+     * Returns the bonus for having a district of every color.
+     * @return 3 if all five colors are built, otherwise 0
+     */
+    public int getColorBonus(){
+        return hasAllColors() ? 3 : 0;
+    }
+
+    /**
+     * Returns the bonus for a completed city.
+     * @param isFirstToFinish whether this player was the first to complete their city
+     * @return 4 for the first completed city, 2 for other completed cities, otherwise 0
+     */
+    public int getCompletionBonus(boolean isFirstToFinish){
+        if (builtDistricts.size() < GameEngine.CITY_SIZE) {
+            return 0;
         }
-        return false;
+        return isFirstToFinish ? 4 : 2;
+    }
+
+    /**
+     * Returns the extra points from special purple districts, which can depend on
+     * the player's current gold and hand.
+     * @return the purple district bonus
+     */
+    public int getPurpleBonus(){
+        return builtDistricts.getPurpleBonus(gold, hand.size());
+    }
+
+    /**
+     * Returns the player's score as it stands. Every part of the score is kept up to date as
+     * districts are built and destroyed, so this does not scan the city.
+     * @param isFirstToFinish whether this player was the first to complete their city
+     * @return the current score
+     */
+    public int getScore(boolean isFirstToFinish){
+        return getBaseScore() + getColorBonus() + getCompletionBonus(isFirstToFinish) + getPurpleBonus();
     }
 
     /**
@@ -87,10 +174,68 @@ public class Player {
      * @param character the character card to assign
      */
     public void assignCharacter(CharacterCard character) {
+        hash ^= Zobrist.character(seat, this.character) ^ Zobrist.character(seat, character);
         this.character = character;
         this.isAssassinated = false; 
     }
 
+    /**
+     * Puts the player back to the start of a game: 2 gold, an empty hand and city, and no
+     * character. The player keeps their name and seat, and the hand and city keep their
+     * storage, so a player can sit through game after game without allocating.
+     */
+    public void reset() {
+        restore(name, 2, null, false, false);
+    }
+
+    /**
+     * Resets the player to a restored state with an empty hand and city, ready to be refilled.
+     * @param name          the player's name
+     * @param gold          the player's gold
+     * @param character     the player's character, or null
+     * @param assassinated  whether the player is assassinated this round
+     * @param receiveCrown  whether the player receives the crown at the end of the round
+     */
+    void restore(String name, int gold, CharacterCard character, boolean assassinated, boolean receiveCrown) {
+        this.name = name;
+        this.gold = gold;
+        this.character = character;
+        this.isAssassinated = assassinated;
+        this.crown = receiveCrown;
+        this.hash = Zobrist.gold(seat, gold) ^ Zobrist.character(seat, character);
+        hand.clear();
+        builtDistricts.clear();
+    }
+
+    /**
+     * Returns the player's seat in the game.
+     * @return the seat index
+     */
+    int getSeat() {
+        return seat;
+    }
+
+    /**
+     * Sets the player's seat in the game and rehashes the player with that seat's keys.
+     * @param seat the seat index
+     */
+    void setSeat(int seat) {
+        if (seat != this.seat) {
+            this.seat = seat;
+            this.hash = Zobrist.gold(seat, gold) ^ Zobrist.character(seat, character);
+            builtDistricts.setSeat(seat);
+        }
+    }
+
+    /**
+     * Returns the Zobrist hash of the player's city, gold and character. It is updated whenever
+     * one of them changes, so reading it is constant time.
+     * @return the hash
+     */
+    public long getHash() {
+        return hash ^ builtDistricts.getHash();
+    }
+
     /**
      * Returns the name of the player.
      * @return the player's name
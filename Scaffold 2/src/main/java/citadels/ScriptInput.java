@@ -0,0 +1,55 @@
+package citadels;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * Replays a recorded session: one line of input per line of the script, read into memory up
+ * front so a replay never waits on a file. Lines starting with {@code #} are comments and are
+ * skipped; every other line, including an empty one, is given to the game as typed.
+ */
+public final class ScriptInput implements InputSource {
+    private final String[] lines;
+    private int next;
+
+    /**
+     * Creates a source replaying the given lines.
+     * @param lines the lines of the script
+     */
+    public ScriptInput(List<String> lines) {
+        this.lines = lines.toArray(new String[0]);
+    }
+
+    /**
+     * Reads a script from a UTF-8 text file.
+     * @param path the file
+     * @return the source
+     * @throws IOException if the file cannot be read
+     */
+    public static ScriptInput open(Path path) throws IOException {
+        return new ScriptInput(Files.readAllLines(path, StandardCharsets.UTF_8));
+    }
+
+    @Override
+    public String readLine() {
+        while (next < lines.length) {
+            String line = lines[next++];
+            if (!line.startsWith("#")) {
+                return line;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns the number of script lines read so far, comments included, so a replay that
+     * goes wrong can be traced to its line.
+     * @return the line number of the last line read
+     */
+    public int getLineNumber() {
+        return next;
+    }
+}
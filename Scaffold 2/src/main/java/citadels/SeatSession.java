@@ -0,0 +1,72 @@
+package citadels;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * A player connected to the game server. Lines typed by the player are read through a buffered
+ * {@link ConsoleInput} on the socket and everything written to the player is buffered until the next prompt, so an idle
+ * session holds only its socket and two small buffers.
+ */
+final class SeatSession implements Closeable {
+    /** Size of the output buffer. Table messages between two prompts are a few hundred bytes. */
+    private static final int BUFFER_SIZE = 1024;
+
+    private final Socket socket;
+    private final InputSource input;
+    private final PrintStream out;
+
+    /**
+     * Creates a session on a connected socket.
+     * @param socket the player's connection
+     * @throws IOException if the socket's streams cannot be opened
+     */
+    SeatSession(Socket socket) throws IOException {
+        this.socket = socket;
+        this.input = new ConsoleInput(socket.getInputStream());
+        this.out = new PrintStream(new BufferedOutputStream(socket.getOutputStream(), BUFFER_SIZE), false, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Returns the lines typed by the player. A closed or failed connection is the end of the input.
+     * @return the player's input
+     */
+    InputSource getInput() {
+        return input;
+    }
+
+    /**
+     * Returns the stream written to the player.
+     * @return the output stream
+     */
+    PrintStream getOut() {
+        return out;
+    }
+
+    /**
+     * Returns whether the session has been closed.
+     * @return true if closed
+     */
+    boolean isClosed() {
+        return socket.isClosed();
+    }
+
+    /**
+     * Sends anything still buffered and closes the connection.
+     */
+    @Override
+    public void close() {
+        if (!socket.isClosed()) {
+            out.flush();
+            try {
+                socket.close();
+            } catch (IOException e) {
+                // The player is gone either way
+            }
+        }
+    }
+}
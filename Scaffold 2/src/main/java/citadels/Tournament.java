@@ -0,0 +1,326 @@
+package citadels;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Paths;
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Plays many games between computer players in parallel and reports how often each seat
+ * and each character wins. Games are split across a ForkJoinPool in batches, each batch plays
+ * its games one after another in a single engine that is reset between them, and the results
+ * of each batch are merged once the batches finish.
+ * <p>
+ * Game {@code i} of a tournament is seeded with {@code seed + i}, so any single game can be
+ * replayed with {@link #playGame(long, int)} regardless of which thread first played it.
+ */
+public class Tournament {
+    /** Number of games a single task plays before it stops splitting the work further. */
+    private static final int BATCH_SIZE = 64;
+
+    private final int games;
+    private final int numPlayers;
+    private final ForkJoinPool pool;
+    private final long seed;
+    private EventLogAppender eventLog;
+
+    /**
+     * Creates a tournament that runs one worker thread per available core.
+     * @param games      the number of games to play
+     * @param numPlayers the number of players in each game, between 4 and 7
+     */
+    public Tournament(int games, int numPlayers) {
+        this(games, numPlayers, new ForkJoinPool(Runtime.getRuntime().availableProcessors()), new SplittableRandom().nextLong());
+    }
+
+    /**
+     * Creates a tournament that runs on the given pool.
+     * @param games      the number of games to play
+     * @param numPlayers the number of players in each game, between 4 and 7
+     * @param pool       the pool the games are played on
+     * @param seed       the seed of the first game
+     */
+    public Tournament(int games, int numPlayers, ForkJoinPool pool, long seed) {
+        if (numPlayers < 4 || numPlayers > 7) {
+            throw new IllegalArgumentException("Number of players must be between 4-7");
+        }
+        this.games = games;
+        this.numPlayers = numPlayers;
+        this.pool = pool;
+        this.seed = seed;
+    }
+
+    /**
+     * Returns the seed of the first game. Each following game's seed is one higher.
+     * @return the tournament seed
+     */
+    public long getSeed() {
+        return seed;
+    }
+
+    /**
+     * Records every game played from now on to a binary event log.
+     * @param eventLog the log to append games to, or null to stop recording
+     */
+    public void setEventLog(EventLogAppender eventLog) {
+        this.eventLog = eventLog;
+    }
+
+    /**
+     * Plays all games and returns the combined results.
+     * @return the results of the tournament
+     */
+    public Result run() {
+        return pool.invoke(new Batch(0, games));
+    }
+
+    /**
+     * Plays a single game of computer players from start to finish. The deck is shuffled with a
+     * stream split from the game's random source, so the same seed always gives the same game.
+     * @param seed       the seed of the game
+     * @param numPlayers the number of players, between 4 and 7
+     * @return the finished game
+     */
+    public static GameEngine playGame(long seed, int numPlayers) {
+        return playGame(seed, numPlayers, null);
+    }
+
+    /**
+     * Plays a single game of computer players from start to finish, recording its events.
+     * @param seed       the seed of the game
+     * @param numPlayers the number of players, between 4 and 7
+     * @param events     receives the game's events, or null to not record them
+     * @return the finished game
+     */
+    public static GameEngine playGame(long seed, int numPlayers, EventRecorder events) {
+        SplittableRandom random = new SplittableRandom(seed);
+        Deck deck = new Deck(random.split());
+        deck.loadFromCatalog(DistrictCatalog.standard());
+        List<Player> players = new ArrayList<>(numPlayers);
+        for (int i = 1; i <= numPlayers; i++) {
+            players.add(new Player("Player " + i));
+        }
+
+        return play(new GameEngine(deck, players, null, random), events);
+    }
+
+    /**
+     * Plays another game in a finished game's engine, reusing its deck and players. The game
+     * is the same as {@link #playGame(long, int, EventRecorder)} plays with the same seed.
+     * @param engine the engine to reset
+     * @param seed   the seed of the game
+     * @param events receives the game's events, or null to not record them
+     * @return the finished game, which is the given engine
+     */
+    static GameEngine playGame(GameEngine engine, long seed, EventRecorder events) {
+        engine.reset(DistrictCatalog.standard(), new SplittableRandom(seed));
+        return play(engine, events);
+    }
+
+    private static GameEngine play(GameEngine engine, EventRecorder events) {
+        engine.setEventSink(events);
+        engine.setMetrics(GameMetrics.global());
+        engine.start();
+        engine.runToEnd();
+        return engine;
+    }
+
+    /**
+     * Plays a range of games, splitting it in half until it is small enough to play directly.
+     */
+    private class Batch extends RecursiveTask<Result> {
+        private static final long serialVersionUID = 1L;
+
+        private final int from;
+        private final int to;
+
+        Batch(int from, int to) {
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected Result compute() {
+            if (to - from <= BATCH_SIZE) {
+                Result result = new Result(numPlayers);
+                EventRecorder events = eventLog == null ? null : new EventRecorder();
+                // The batch's games are played one after another in the same engine
+                GameEngine engine = null;
+                for (int i = from; i < to; i++) {
+                    if (events != null) {
+                        events.clear();
+                    }
+                    engine = engine == null ? playGame(seed + i, numPlayers, events) : playGame(engine, seed + i, events);
+                    result.record(engine);
+                    if (events != null) {
+                        try {
+                            eventLog.append(events);
+                        } catch (IOException e) {
+                            throw new UncheckedIOException(e);
+                        }
+                    }
+                }
+                return result;
+            }
+            int middle = (from + to) >>> 1;
+            Batch left = new Batch(from, middle);
+            left.fork();
+            Result right = new Batch(middle, to).compute();
+            return left.join().merge(right);
+        }
+    }
+
+    /**
+     * Win counts per seat and per character. Each batch fills its own result, which are then merged,
+     * so no counter is shared between threads.
+     */
+    public static class Result {
+        private final int[] seatWins;
+        private final long[] seatScores;
+        private final int[] characterGames = new int[9];
+        private final int[] characterWins = new int[9];
+        private int games;
+        private int rounds;
+
+        /**
+         * Creates an empty result.
+         * @param numPlayers the number of seats in each game
+         */
+        public Result(int numPlayers) {
+            this.seatWins = new int[numPlayers];
+            this.seatScores = new long[numPlayers];
+        }
+
+        /**
+         * Adds the outcome of a finished game.
+         * @param engine the finished game
+         */
+        void record(GameEngine engine) {
+            List<Player> players = engine.getPlayers();
+            int[] scores = engine.getScores();
+            Player winner = engine.getWinner();
+            games++;
+            rounds += engine.getRound();
+            for (int seat = 0; seat < players.size(); seat++) {
+                Player player = players.get(seat);
+                seatScores[seat] += scores[seat];
+                CharacterCard character = player.getCharacter();
+                if (character != null) {
+                    characterGames[character.getTurnOrder()]++;
+                }
+                if (player == winner) {
+                    seatWins[seat]++;
+                    if (character != null) {
+                        characterWins[character.getTurnOrder()]++;
+                    }
+                }
+            }
+        }
+
+        /**
+         * Adds the counts of another result to this one.
+         * @param other the result to add
+         * @return this result
+         */
+        Result merge(Result other) {
+            games += other.games;
+            rounds += other.rounds;
+            for (int i = 0; i < seatWins.length; i++) {
+                seatWins[i] += other.seatWins[i];
+                seatScores[i] += other.seatScores[i];
+            }
+            for (int i = 0; i < characterWins.length; i++) {
+                characterGames[i] += other.characterGames[i];
+                characterWins[i] += other.characterWins[i];
+            }
+            return this;
+        }
+
+        /**
+         * Returns the number of games played.
+         * @return the number of games
+         */
+        public int getGames() {
+            return games;
+        }
+
+        /**
+         * Returns how many games the player in the given seat won.
+         * @param seat the seat index
+         * @return the number of wins
+         */
+        public int getSeatWins(int seat) {
+            return seatWins[seat];
+        }
+
+        /**
+         * Returns how many games were won by the player holding the character with the given turn order
+         * in the final round.
+         * @param turnOrder the character's turn order, from 1 to 8
+         * @return the number of wins
+         */
+        public int getCharacterWins(int turnOrder) {
+            return characterWins[turnOrder];
+        }
+
+        /**
+         * Prints the win rate tables per seat and per character.
+         * @param out where the tables are printed
+         */
+        public void print(PrintStream out) {
+            out.println("Games played: " + games + " (average " + String.format("%.1f", games == 0 ? 0.0 : (double) rounds / games) + " rounds)");
+            out.println("");
+            out.println("Seat       Wins   Win rate   Avg score");
+            for (int seat = 0; seat < seatWins.length; seat++) {
+                out.println(String.format("Player %-3d %6d %9.1f%% %11.1f", seat + 1, seatWins[seat],
+                    percent(seatWins[seat], games), games == 0 ? 0.0 : (double) seatScores[seat] / games));
+            }
+            out.println("");
+            out.println("Character   Played   Wins   Win rate");
+            for (CharacterCard character : CharacterCard.getCharacters()) {
+                int order = character.getTurnOrder();
+                out.println(String.format("%-10s %7d %6d %9.1f%%", character.getName(), characterGames[order],
+                    characterWins[order], percent(characterWins[order], characterGames[order])));
+            }
+        }
+
+        private static double percent(int part, int total) {
+            return total == 0 ? 0.0 : 100.0 * part / total;
+        }
+    }
+
+    /**
+     * Runs a tournament from the command line.
+     * @param args optional number of games (default 10000), number of players (default 4), seed (default random)
+     *             and a file to append the binary event log of every game to
+     * @throws IOException if the event log cannot be written
+     */
+    public static void main(String[] args) throws IOException {
+        int games = args.length > 0 ? Integer.parseInt(args[0]) : 10000;
+        int numPlayers = args.length > 1 ? Integer.parseInt(args[1]) : 4;
+        long seed = args.length > 2 ? Long.parseLong(args[2]) : new SplittableRandom().nextLong();
+        int threads = Runtime.getRuntime().availableProcessors();
+
+        System.out.println("Playing " + games + " games with " + numPlayers + " computer players on "
+            + threads + " threads (seed " + seed + ")...");
+        long start = System.nanoTime();
+        Tournament tournament = new Tournament(games, numPlayers, new ForkJoinPool(threads), seed);
+        Result result;
+        if (args.length > 3) {
+            try (EventLogAppender eventLog = EventLogAppender.open(Paths.get(args[3]))) {
+                tournament.setEventLog(eventLog);
+                result = tournament.run();
+            }
+        } else {
+            result = tournament.run();
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        result.print(System.out);
+        System.out.println("");
+        System.out.println(String.format("Finished in %.2f s (%.0f games/s)", seconds, games / seconds));
+    }
+}
@@ -0,0 +1,105 @@
+package citadels;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A fixed-size table of playout results keyed by position hash, shared by search threads
+ * without locks. Each entry is a single 64-bit word holding the top 24 bits of the hash as a
+ * tag, a visit count and a win count, so an entry is always read and replaced whole with a
+ * compare-and-set. A position whose slot holds a different tag takes the slot over.
+ */
+public final class TranspositionTable {
+    private static final int COUNT_BITS = 20;
+    private static final long COUNT_MASK = (1L << COUNT_BITS) - 1;
+    private static final int TAG_SHIFT = 2 * COUNT_BITS;
+
+    private final AtomicLongArray entries;
+    private final int mask;
+
+    /**
+     * Creates a table.
+     * @param capacity the number of entries, rounded up to a power of two
+     * @throws IllegalArgumentException if the capacity is not positive or larger than 2^30
+     */
+    public TranspositionTable(int capacity) {
+        if (capacity <= 0 || capacity > 1 << 30) {
+            throw new IllegalArgumentException("Capacity must be between 1 and 2^30");
+        }
+        int size = Integer.highestOneBit(capacity - 1) << 1;
+        if (capacity == 1) {
+            size = 1;
+        }
+        this.entries = new AtomicLongArray(size);
+        this.mask = size - 1;
+    }
+
+    /**
+     * Adds the result of one playout through a position.
+     * @param hash the position hash
+     * @param win  whether the playout was a win for the player the entry is kept for
+     */
+    public void record(long hash, boolean win) {
+        int index = (int) hash & mask;
+        long tag = hash >>> TAG_SHIFT;
+        while (true) {
+            long old = entries.get(index);
+            long visits = 0;
+            long wins = 0;
+            if (old >>> TAG_SHIFT == tag) {
+                visits = (old >>> COUNT_BITS) & COUNT_MASK;
+                wins = old & COUNT_MASK;
+            }
+            visits++;
+            if (win) {
+                wins++;
+            }
+            if (visits > COUNT_MASK) {
+                // Halving both keeps the win rate while making room for new results
+                visits >>= 1;
+                wins >>= 1;
+            }
+            long updated = (tag << TAG_SHIFT) | (visits << COUNT_BITS) | wins;
+            if (entries.compareAndSet(index, old, updated)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Looks up a position.
+     * @param hash the position hash
+     * @return the entry, to be read with {@link #visits(long)} and {@link #wins(long)},
+     *         or 0 if the table holds nothing for the position
+     */
+    public long probe(long hash) {
+        long entry = entries.get((int) hash & mask);
+        return entry >>> TAG_SHIFT == hash >>> TAG_SHIFT ? entry : 0;
+    }
+
+    /**
+     * Returns the number of playouts in an entry.
+     * @param entry an entry returned by {@link #probe(long)}
+     * @return the visit count
+     */
+    public static int visits(long entry) {
+        return (int) ((entry >>> COUNT_BITS) & COUNT_MASK);
+    }
+
+    /**
+     * Returns the number of wins in an entry.
+     * @param entry an entry returned by {@link #probe(long)}
+     * @return the win count
+     */
+    public static int wins(long entry) {
+        return (int) (entry & COUNT_MASK);
+    }
+
+    /**
+     * Removes every entry.
+     */
+    public void clear() {
+        for (int i = 0; i <= mask; i++) {
+            entries.set(i, 0);
+        }
+    }
+}
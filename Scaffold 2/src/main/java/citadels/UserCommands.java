@@ -1,61 +1,75 @@
 package citadels;
 
+import java.io.PrintStream;
 import java.util.*;
 
 /**
  * Handles user commands in the Citadels game, processing various actions
  * such as showing hands, building districts, and using character abilities.
+ * Output goes to the seat that issued the command, and "you" is that seat's player.
  */
 public class UserCommands {
-    private Deck deck;
-    private List<CharacterCard> characterDeck;
-    private App app;
-
-    /**
-     * Counter to ensure a character ability is only used once per round.
-     */
-    public static int abilityCount = 0;
+    private GameEngine engine;
+    private HumanSeat seat;
+    private PrintStream out;
 
     /**
      * Constructs a UserCommands handler.
-     * @param deck the district card deck
-     * @param characterDeck the character card deck
-     * @param app reference to the main App object
+     * @param engine the game the commands act on
+     * @param seat the human seat issuing the commands
      */
-    public UserCommands(Deck deck, List<CharacterCard> characterDeck, App app) {
-        this.deck = deck;
-        this.characterDeck = characterDeck;
-        this.app = app;
+    public UserCommands(GameEngine engine, HumanSeat seat) {
+        this.engine = engine;
+        this.seat = seat;
+        this.out = seat.getOut();
     }
 
+    /** Every command word, so a command can be matched to a constant without copying the line. */
+    private static final String[] COMMANDS = {
+        "hand", "gold", "build", "citadel", "list", "city", "info", "all", "help", "debug", "action", "save", "load"
+    };
+
     /**
      * Processes a user command and dispatches it to the corresponding method.
+     * The line is a command word and an optional argument separated by spaces, matched without
+     * regard to case. Only arguments that are names are copied out of the line.
      * @param player the player issuing the command
-     * @param input the command input as a string array
+     * @param line the command line
      * @param players the list of all players
+     * @return true if the command prompted for an ability target, which the seat's next line answers
      */
-    public void process(Player player, String[] input, List<Player> players) {
-        String command = input[0];
-        String arg = (input.length > 1) ? input[1] : "";
+    public boolean process(Player player, CharSequence line, List<Player> players) {
+        int start = skipSpaces(line, 0);
+        int end = tokenEnd(line, start);
+        int argStart = skipSpaces(line, end);
+        int argEnd = tokenEnd(line, argStart);
+        String command = "";
+        for (String word : COMMANDS) {
+            if (regionIs(line, start, end, word)) {
+                command = word;
+                break;
+            }
+        }
+        boolean hasArg = argEnd > argStart;
 
-        System.out.println("");
+        out.println("");
         switch (command) {
             case "hand":
                 showHand(player);
                 break;
             case "gold":
-                showGold(players, arg);
+                showGold(players, line, argStart, argEnd);
                 break;
             case "build":
-                buildDistrict(player, arg);
+                buildDistrict(player, line, argStart, argEnd);
                 break;
             case "citadel":
             case "list":
             case "city":
-                showCity(players, arg);
+                showCity(players, line, argStart, argEnd);
                 break;
             case "info":
-                showInfo(player, arg);
+                showInfo(player, line, argStart, argEnd);
                 break;
             case "all":
                 showAll(players);
@@ -64,34 +78,112 @@ public class UserCommands {
                 showHelp();
                 break;
             case "debug":
-                toggleDebug();
+                if (seat.getApp() == null) {
+                    out.println("Debug mode is not available on this table");
+                } else {
+                    toggleDebug();
+                }
                 break;
             case "action":
-                if (abilityCount == 0) {
-                    player.getCharacter().useAbility(player, deck, players);
-                    abilityCount += 1;
+                if (engine.isAbilityUsed() == false) {
+                    return seat.useAbility();
                 } else {
-                    System.out.println("Unable to use ability twice in one round");
+                    out.println("Unable to use ability twice in one round");
                 }
                 break;
             case "save":
-                if (!arg.isEmpty()) {
-                    app.saveGame(arg);
+                if (seat.getApp() == null) {
+                    out.println("Saving is not available on this table");
+                } else if (hasArg) {
+                    seat.getApp().saveGame(line.subSequence(argStart, argEnd).toString());
                 } else {
-                    System.out.println("Usage: save <filename.json>");
+                    out.println("Usage: save <filename>");
                 }
                 break;
             case "load":
-                if (!arg.isEmpty()) {
-                    app.loadGame(arg);
+                if (seat.getApp() == null) {
+                    out.println("Loading is not available on this table");
+                } else if (hasArg) {
+                    seat.getApp().loadGame(line.subSequence(argStart, argEnd).toString());
                 } else {
-                    System.out.println("Usage: load <filename.json>");
+                    out.println("Usage: load <filename>");
                 }
                 break;
             default:
-                System.out.println("Unknown command. Type help to see available actions");
+                out.println("Unknown command. Type help to see available actions");
                 break;
         }
+        return false;
+    }
+
+    /**
+     * Returns whether the first word of a line is the given command, ignoring case.
+     * @param line    the command line
+     * @param command the command word, in lower case
+     * @return true if the line starts with the command
+     */
+    public static boolean commandIs(CharSequence line, String command) {
+        int start = skipSpaces(line, 0);
+        return regionIs(line, start, tokenEnd(line, start), command);
+    }
+
+    /**
+     * Returns the index of the first character at or after an index that is not a space.
+     */
+    static int skipSpaces(CharSequence line, int index) {
+        while (index < line.length() && line.charAt(index) == ' ') {
+            index++;
+        }
+        return index;
+    }
+
+    /**
+     * Returns the index of the first space at or after an index, or the line length.
+     */
+    static int tokenEnd(CharSequence line, int index) {
+        while (index < line.length() && line.charAt(index) != ' ') {
+            index++;
+        }
+        return index;
+    }
+
+    /**
+     * Returns whether part of a line equals a lower case word, ignoring case.
+     */
+    static boolean regionIs(CharSequence line, int start, int end, String word) {
+        if (end - start != word.length()) {
+            return false;
+        }
+        for (int i = 0; i < word.length(); i++) {
+            if (Character.toLowerCase(line.charAt(start + i)) != word.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns the player chosen by a 1-based player number argument, reporting invalid numbers.
+     * @param players the list of all players
+     * @param line the command line
+     * @param argStart the start of the argument
+     * @param argEnd the end of the argument, equal to the start if there is none
+     * @return the player, the seat's own player if there is no argument, or null if the argument is invalid
+     */
+    private Player targetPlayer(List<Player> players, CharSequence line, int argStart, int argEnd) {
+        if (argEnd == argStart) {
+            return players.get(seat.getSeat());
+        }
+        try {
+            int index = Integer.parseInt(line, argStart, argEnd, 10) - 1;
+            if (index >= 0 && index < players.size()) {
+                return players.get(index);
+            }
+            out.println("Invalid player number. Must be between 1 and " + players.size());
+        } catch (NumberFormatException e) {
+            out.println("Invalid input. Please enter a player number");
+        }
+        return null;
     }
 
     /**
@@ -99,134 +191,119 @@ public class UserCommands {
      * @param player the player whose hand is shown
      */
     private void showHand(Player player) {
-        System.out.println("Your hand:");
+        out.println("Your hand:");
         List<DistrictCard> hand = player.getHand();
         for (int i = 0; i < hand.size(); i++) {
             DistrictCard card = hand.get(i);
-            System.out.println("[" + i + "] '" + card.getName() + "' [" + card.getColor() + "] [" + card.getCost() + "]");
+            out.println("[" + i + "] '" + card.getName() + "' [" + card.getColor() + "] [" + card.getCost() + "]");
         }
-        System.out.println("Gold: " + player.getGold());
+        out.println("Gold: " + player.getGold());
     }
 
     /**
      * Displays the amount of gold a specified player has.
      * @param players the list of all players
-     * @param arg the index of the player, default is player 1
+     * @param line the command line
+     * @param argStart the start of the player number, default is the seat's own player
+     * @param argEnd the end of the player number
      */
-    private void showGold(List<Player> players, String arg) {
-        Player targetPlayer = players.get(0);
-        if (!arg.isEmpty()) {
-            try {
-                int index = Integer.parseInt(arg) - 1;
-                if (index >= 0 && index < players.size()) {
-                    targetPlayer = players.get(index);
-                } else {
-                    System.out.println("Invalid player number. Must be between 1 and " + players.size());
-                    return;
-                }
-            } catch (NumberFormatException e) {
-                System.out.println("Invalid input. Please enter a player number");
-                return;
-            }
+    private void showGold(List<Player> players, CharSequence line, int argStart, int argEnd) {
+        Player targetPlayer = targetPlayer(players, line, argStart, argEnd);
+        if (targetPlayer != null) {
+            out.println(targetPlayer.getName() + " has " + targetPlayer.getGold() + " gold.");
         }
-        System.out.println(targetPlayer.getName() + " has " + targetPlayer.getGold() + " gold.");
     }
 
     /**
      * Displays the districts built by a specified player.
      * @param players the list of all players
-     * @param arg the index (1-based) of the player, default is player 1
+     * @param line the command line
+     * @param argStart the start of the player number, default is the seat's own player
+     * @param argEnd the end of the player number
      */
-    private void showCity(List<Player> players, String arg) {
-        Player targetPlayer = players.get(0);
-        if (!arg.isEmpty()) {
-            try {
-                int index = Integer.parseInt(arg) - 1;
-                if (index >= 0 && index < players.size()) {
-                    targetPlayer = players.get(index);
-                } else {
-                    System.out.println("Invalid player number. Must be between 1 and " + players.size());
-                    return;
-                }
-            } catch (NumberFormatException e) {
-                System.out.println("Invalid input. Please enter a player number");
-                return;
-            }
+    private void showCity(List<Player> players, CharSequence line, int argStart, int argEnd) {
+        Player targetPlayer = targetPlayer(players, line, argStart, argEnd);
+        if (targetPlayer == null) {
+            return;
         }
-        System.out.println(targetPlayer.getName() + "'s city:");
+        out.println(targetPlayer.getName() + "'s city:");
         for (DistrictCard card : targetPlayer.getBuiltDistricts()) {
-            System.out.println(card.getName() + " [" + card.getColor() + "] [" + card.getCost() + "]");
+            out.println(card.getName() + " [" + card.getColor() + "] [" + card.getCost() + "]");
         }
     }
 
     /**
      * Attempts to build a district from the players hand using the provided index.
      * @param player the player building the district
-     * @param arg the index of the card in players hand
+     * @param line the command line
+     * @param argStart the start of the index of the card in players hand
+     * @param argEnd the end of the index
      */
-    private void buildDistrict(Player player, String arg) {
+    private void buildDistrict(Player player, CharSequence line, int argStart, int argEnd) {
         try {
-            int index = Integer.parseInt(arg);
+            int index = Integer.parseInt(line, argStart, argEnd, 10);
             List<DistrictCard> hand = player.getHand();
 
             if (index < 0 || index >= hand.size()) {
-                System.out.println("Invalid card index.");
+                out.println("Invalid card index.");
                 return;
             }
 
             DistrictCard card = hand.get(index);
 
-            if (player.hasBuilt(card.getName())) {
-                System.out.println("You already built a district with that name.");
+            if (player.hasBuilt(card)) {
+                out.println("You already built a district with that name.");
                 return;
             }
 
             if (player.getGold() < card.getCost()) {
-                System.out.println("Not enough gold to build " + card.getName());
+                out.println("Not enough gold to build " + card.getName());
                 return;
             }
 
-            player.buildDistrict(card);
-            System.out.println("Built: " + card.getName() + " [" + card.getColor() + "] " + "[" + card.getCost() + "]");
+            if (engine.step(Action.build(index)) == false) {
+                out.println("You cannot build any more districts this turn.");
+            }
         } catch (NumberFormatException e) {
-            System.out.println("Invalid format. Use: build <place in hand>");
+            out.println("Invalid format. Use: build <place in hand>");
         }
     }
 
     /**
      * Displays information about a card in hand or a character card
      * @param player the player requesting information
-     * @param command either an index (for district cards) or a character name
+     * @param line the command line
+     * @param argStart the start of either an index (for district cards) or a character name
+     * @param argEnd the end of the index or name
      */
-    private void showInfo(Player player, String command) {
-        if (command.equals("")) {
-            System.out.println("Usage: info <card number in hand> OR info <character name>");
+    private void showInfo(Player player, CharSequence line, int argStart, int argEnd) {
+        if (argEnd == argStart) {
+            out.println("Usage: info <card number in hand> OR info <character name>");
             return;
         }
 
         try {
-            int index = Integer.parseInt(command);
+            int index = Integer.parseInt(line, argStart, argEnd, 10);
             List<DistrictCard> hand = player.getHand();
             if (index >= 0 && index < hand.size()) {
                 DistrictCard card = hand.get(index);
                 if (card.getColor().equalsIgnoreCase("purple")) {
-                    System.out.println("Purple district info: " + card.getName());
-                    System.out.println("Ability: " + card.getDescription());
+                    out.println("Purple district info: " + card.getName());
+                    out.println("Ability: " + card.getDescription());
                 } else {
-                    System.out.println("This is not a purple (special) district.");
+                    out.println("This is not a purple (special) district.");
                 }
             } else {
-                System.out.println("Invalid index. Use 'hand' to see your cards and their indexes.");
+                out.println("Invalid index. Use 'hand' to see your cards and their indexes.");
             }
         } catch (NumberFormatException e) {
-            for (CharacterCard card : CharacterCard.getCharacters()) {
-                if (card.getName().toLowerCase().equals(command)) {
-                    System.out.println("Character: " + card.getName());
-                    System.out.println("Ability: " + card.getAbility());
-                    return;
-                }
+            CharacterCard card = CharacterCard.byName(line.subSequence(argStart, argEnd).toString());
+            if (card != null) {
+                out.println("Character: " + card.getName());
+                out.println("Ability: " + card.getAbility());
+                return;
             }
-            System.out.println("Character not found. Check the name and try again.");
+            out.println("Character not found. Check the name and try again.");
         }
     }
 
@@ -249,7 +326,7 @@ public class UserCommands {
             }
 
             String playerName = player.getName();
-            if (i == 0) {
+            if (i == seat.getSeat()) {
                 playerName += " (you)";
             }
 
@@ -258,8 +335,8 @@ public class UserCommands {
                 characterName = " - " + player.getCharacter().getName();
             }
 
-            System.out.println(playerName + characterName + ": cards = " + player.getHand().size() +
-                    " gold = " + player.getGold() + " cities = " + city);
+            out.println(playerName + characterName + ": cards = " + player.getHand().size() +
+                    " gold = " + player.getGold() + " score = " + engine.getLiveScore(player) + " cities = " + city);
         }
     }
 
@@ -267,18 +344,18 @@ public class UserCommands {
      * Displays a help message listing all available user commands.
      */
     private void showHelp() {
-        System.out.println("Available commands:");
-        System.out.println("info: Show information about a character or building");
-        System.out.println("t: Processes turns");
-        System.out.println("");
-        System.out.println("all : Show all player info");
-        System.out.println("citadel/list/city [p]: Show districts built by a player");
-        System.out.println("hand : Shows cards in hand");
-        System.out.println("gold[p] : Shows gold of a player");
-        System.out.println("");
-        System.out.println("build <place in hand> : Builds a building into your city");
-        System.out.println("action : Gives info about your special action and how to perform it");
-        System.out.println("end : Ends your turn");
+        out.println("Available commands:");
+        out.println("info: Show information about a character or building");
+        out.println("t: Processes turns");
+        out.println("");
+        out.println("all : Show all player info");
+        out.println("citadel/list/city [p]: Show districts built by a player");
+        out.println("hand : Shows cards in hand");
+        out.println("gold[p] : Shows gold of a player");
+        out.println("");
+        out.println("build <place in hand> : Builds a building into your city");
+        out.println("action : Gives info about your special action and how to perform it");
+        out.println("end : Ends your turn");
     }
 
     /**
@@ -286,10 +363,10 @@ public class UserCommands {
      */
     private void toggleDebug() {
         if (!App.debugMode) {
-            System.out.println("Debug Mode Enabled");
+            out.println("Debug Mode Enabled");
             App.debugMode = true;
         } else {
-            System.out.println("Debug Mode Disabled");
+            out.println("Debug Mode Disabled");
             App.debugMode = false;
         }
     }
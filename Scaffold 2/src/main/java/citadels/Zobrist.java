@@ -0,0 +1,121 @@
+package citadels;
+
+/**
+ * Zobrist keys for hashing game positions. A position's hash is the XOR of one key for each
+ * part of it: every built district of every seat, each seat's gold (in buckets) and character,
+ * the crown holder, the phase and whose decision it is. Changing one part of a position changes
+ * its hash by XORing out the old key and XORing in the new one, so {@link Player} and the city
+ * keep their hashes up to date as they change.
+ * <p>
+ * Keys are computed by mixing the kind of key, the seat and the value with a fixed bijective
+ * 64-bit mix, so every key is distinct, the same in every run, and needs no tables.
+ */
+final class Zobrist {
+    /** Gold amounts from this value up share a key. */
+    static final int GOLD_BUCKETS = 16;
+
+    private static final int DISTRICT = 1;
+    private static final int GOLD = 2;
+    private static final int CHARACTER = 3;
+    private static final int CROWN = 4;
+    private static final int PHASE = 5;
+    private static final int TURN = 6;
+    private static final int MOVER = 7;
+    private static final int ABILITY_USED = 8;
+
+    private Zobrist() {
+    }
+
+    /**
+     * Returns the key of one copy of a built district.
+     * @param seat the seat whose city holds it
+     * @param id   the district id
+     * @param copy which copy of the district it is in the city, starting at 0
+     * @return the key
+     */
+    static long district(int seat, int id, int copy) {
+        return key(DISTRICT, seat, (copy << 24) | id);
+    }
+
+    /**
+     * Returns the key of a seat's gold.
+     * @param seat the seat
+     * @param gold the amount of gold
+     * @return the key of the amount's bucket
+     */
+    static long gold(int seat, int gold) {
+        return key(GOLD, seat, Math.min(gold, GOLD_BUCKETS - 1));
+    }
+
+    /**
+     * Returns the key of a seat's character.
+     * @param seat      the seat
+     * @param character the character card, or null
+     * @return the key
+     */
+    static long character(int seat, CharacterCard character) {
+        return character(seat, character == null ? 0 : character.getTurnOrder());
+    }
+
+    /**
+     * Returns the key of a seat's character.
+     * @param seat      the seat
+     * @param turnOrder the character's turn order, or 0 for none
+     * @return the key
+     */
+    static long character(int seat, int turnOrder) {
+        return key(CHARACTER, seat, turnOrder);
+    }
+
+    /**
+     * Returns the key of the crown holder.
+     * @param seat the crowned seat
+     * @return the key
+     */
+    static long crown(int seat) {
+        return key(CROWN, seat, 0);
+    }
+
+    /**
+     * Returns the key of the phase and the seat whose decision it is.
+     * @param phase the phase
+     * @param seat  the current seat, or -1 if there is none
+     * @return the key
+     */
+    static long turn(GameEngine.Phase phase, int seat) {
+        return key(PHASE, 0, phase.ordinal()) ^ key(TURN, seat + 1, 0);
+    }
+
+    /**
+     * Returns the key of whether the current player has used their ability.
+     * @param used whether the ability was used
+     * @return the key
+     */
+    static long abilityUsed(boolean used) {
+        return used ? key(ABILITY_USED, 0, 0) : 0;
+    }
+
+    /**
+     * Returns the key of the seat that made the decision leading to a position. Search results
+     * for a position are kept per deciding seat, since each seat scores the outcome differently.
+     * @param seat the deciding seat
+     * @return the key
+     */
+    static long mover(int seat) {
+        return key(MOVER, seat, 0);
+    }
+
+    private static long key(int kind, int seat, int value) {
+        return mix64(((long) kind << 56) | ((long) (seat & 0xFF) << 48) | (value & 0xFFFFFFFFL));
+    }
+
+    /**
+     * A bijective 64-bit mix (David Stafford's variant 13, as used by SplittableRandom).
+     */
+    private static long mix64(long z) {
+        z += 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
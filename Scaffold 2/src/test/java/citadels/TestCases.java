@@ -2,9 +2,20 @@ package citadels;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
 import java.util.List;
+import java.util.SplittableRandom;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -123,4 +134,1335 @@ public class TestCases {
         int score = App.calculateScore(players, player, false);
         assertTrue(score >= 6 + 5 + 5 + 2 + 2 + 2, "Score should include 2 bonus for University and Wishing Well");
     }
+
+    /**
+     * Creates a shuffled deck from the bundled cards.tsv resource.
+     */
+    private Deck loadDeck() {
+        Deck deck = new Deck();
+        deck.loadFromStream(getClass().getClassLoader().getResourceAsStream("cards.tsv"));
+        return deck;
+    }
+
+    /**
+     * Tests that a game of computer players runs to completion without console input and picks a winner.
+     */
+    @Test
+    public void testHeadlessGameRunsToEnd() {
+        List<Player> players = new ArrayList<>();
+        for (int i = 1; i <= 5; i++) {
+            players.add(new Player("Player " + i));
+        }
+        GameEngine engine = new GameEngine(loadDeck(), players, null);
+        engine.start();
+        engine.runToEnd();
+
+        assertTrue(engine.isGameOver(), "Game should be over");
+        assertNotNull(engine.getWinner(), "Game should have a winner");
+        assertEquals(5, engine.getScores().length, "Every player should have a score");
+    }
+
+    /**
+     * Tests that the engine waits for a human seat and rejects actions that are not legal in the current phase.
+     */
+    @Test
+    public void testEngineWaitsForHumanDecision() {
+        List<Player> players = new ArrayList<>();
+        for (int i = 1; i <= 4; i++) {
+            players.add(new Player("Player " + i));
+        }
+        GameEngine engine = new GameEngine(loadDeck(), players, null);
+        engine.setHuman(0, true);
+        engine.start();
+        engine.advance();
+
+        assertTrue(engine.needsHumanInput(), "Engine should wait for the human player");
+        assertSame(players.get(0), engine.getCurrentPlayer(), "Human player should be the one deciding");
+        assertEquals(GameEngine.Phase.SELECT_CHARACTER, engine.getPhase(), "First decision should be the character pick");
+        assertFalse(engine.step(Action.takeGold()), "Taking gold should be rejected during selection");
+        assertTrue(engine.step(Action.selectCharacter(0)), "Picking a character should be accepted");
+    }
+
+    /**
+     * Tests that a tournament plays every game and each game has exactly one winning seat.
+     */
+    @Test
+    public void testTournamentCountsEveryGame() {
+        Tournament.Result result = new Tournament(100, 4).run();
+        assertEquals(100, result.getGames(), "Every game should be recorded");
+
+        int seatWins = 0;
+        for (int seat = 0; seat < 4; seat++) {
+            seatWins += result.getSeatWins(seat);
+        }
+        int characterWins = 0;
+        for (int order = 1; order <= 8; order++) {
+            characterWins += result.getCharacterWins(order);
+        }
+        assertEquals(100, seatWins, "Each game should have one winning seat");
+        assertEquals(100, characterWins, "Each game should have one winning character");
+    }
+
+    /**
+     * Tests that the deck draws from the top and adds to the bottom in order, including after it grows
+     * and wraps around its backing array.
+     */
+    @Test
+    public void testDeckDrawsInOrderAfterWrapping() {
+        Deck deck = new Deck();
+        for (int i = 0; i < 200; i++) {
+            deck.addToBottom(new DistrictCard("Card " + i, "red", 1, ""));
+            if (i % 3 == 0) {
+                deck.addToBottom(deck.draw());
+            }
+        }
+        assertEquals(200, deck.size(), "Deck should keep every card");
+
+        DistrictCard first = deck.draw();
+        deck.addToBottom(first);
+        int drawn = 0;
+        DistrictCard last = null;
+        while (!deck.isEmpty()) {
+            last = deck.draw();
+            drawn++;
+        }
+        assertEquals(200, drawn, "Every card should be drawn once");
+        assertSame(first, last, "A card added to the bottom should be drawn last");
+        assertNull(deck.draw(), "Drawing from an empty deck should return null");
+    }
+
+    /**
+     * Tests that the catalog gives every district one shared card and that the deck holds every copy,
+     * including districts without a description.
+     */
+    @Test
+    public void testCatalogSharesCardsBetweenCopies() {
+        DistrictCatalog catalog = DistrictCatalog.standard();
+        int watchtower = catalog.idOf("Watchtower");
+        assertNotEquals(DistrictCatalog.NO_ID, watchtower, "Districts without text should be in the catalog");
+        assertEquals(3, catalog.getQuantity(watchtower), "Watchtower should have 3 copies");
+
+        Deck deck = new Deck();
+        deck.loadFromCatalog(catalog);
+        assertEquals(catalog.getTotalCards(), deck.size(), "Deck should hold every copy of every district");
+
+        int copies = 0;
+        while (!deck.isEmpty()) {
+            DistrictCard card = deck.draw();
+            if (card.getId() == watchtower) {
+                assertSame(catalog.get(watchtower), card, "Every copy should be the shared catalog card");
+                copies++;
+            }
+        }
+        assertEquals(3, copies, "Deck should hold 3 Watchtowers");
+    }
+
+    /**
+     * Tests that the color counts and mask follow districts being built and destroyed.
+     */
+    @Test
+    public void testColorCountsFollowBuildAndDestroy() {
+        DistrictCard temple = new DistrictCard("Temple", "blue", 1, "");
+        DistrictCard church = new DistrictCard("Church", "blue", 2, "");
+        player.drawCard(temple);
+        player.drawCard(church);
+        player.addGold(5);
+        player.buildDistrict(temple);
+        player.buildDistrict(church);
+        assertEquals(2, player.countColor(DistrictColor.BLUE), "Two blue districts should be counted");
+        assertEquals(DistrictColor.BLUE.bit(), player.getColorMask(), "Only blue should be in the mask");
+
+        player.getBuiltDistricts().remove(temple);
+        assertEquals(1, player.countColor(DistrictColor.BLUE), "Destroyed district should no longer count");
+        player.getBuiltDistricts().remove(church);
+        assertEquals(0, player.getColorMask(), "Mask should be empty once no blue district is left");
+    }
+
+    /**
+     * Tests that the character registry is shared and that each role keeps its turn order and rules.
+     */
+    @Test
+    public void testCharacterRegistryIsShared() {
+        List<CharacterCard> characters = CharacterCard.getCharacters();
+        assertSame(characters, CharacterCard.getCharacters(), "Registry should not be rebuilt on every call");
+        assertEquals(8, characters.size(), "There should be eight characters");
+        for (int order = 1; order <= 8; order++) {
+            assertEquals(order, characters.get(order - 1).getTurnOrder(), "Characters should be in turn order");
+        }
+        assertSame(CharacterCard.of(CharacterRole.KING), CharacterCard.byName("king"), "Lookup by name should ignore case");
+        assertTrue(CharacterRole.ASSASSIN.usesAbilityFirst(), "Assassin should act at the start of the turn");
+        assertEquals(3, CharacterRole.ARCHITECT.getBuildLimit(), "Architect should build up to three districts");
+        assertThrows(UnsupportedOperationException.class, () -> characters.remove(0), "Registry should be immutable");
+    }
+
+    /**
+     * Tests that the built district index matches catalog cards by id and forgets destroyed districts.
+     */
+    @Test
+    public void testHasBuiltIndexFollowsCity() {
+        DistrictCatalog catalog = DistrictCatalog.standard();
+        DistrictCard manor = catalog.byName("Manor");
+        player.drawCard(manor);
+        player.addGold(3);
+        player.buildDistrict(manor);
+
+        assertTrue(player.hasBuilt(manor), "Built catalog card should be found by id");
+        assertTrue(player.hasBuilt("Manor"), "Built catalog card should be found by name");
+        assertFalse(player.hasBuilt(catalog.byName("Castle")), "Other districts should not be found");
+        assertTrue(player.hasBuilt(new DistrictCard("Manor", "yellow", 3, "")), "Card without an id should match by name");
+
+        player.getBuiltDistricts().remove(manor);
+        assertFalse(player.hasBuilt(manor), "Destroyed district should no longer be found");
+        assertFalse(player.hasBuilt("Manor"), "Destroyed district should no longer be found by name");
+    }
+
+    /**
+     * Tests that the running score follows builds, destroyed districts, gold and hand changes.
+     */
+    @Test
+    public void testRunningScoreFollowsPlayer() {
+        player.getBuiltDistricts().add(new DistrictCard("Imperial Treasury", "purple", 5, ""));
+        player.getBuiltDistricts().add(new DistrictCard("Park", "purple", 6, ""));
+        DistrictCard wishingWell = new DistrictCard("Wishing Well", "purple", 5, "");
+        player.getBuiltDistricts().add(wishingWell);
+        player.spendGold(player.getGold());
+
+        // 16 base, 1 per other purple for the Wishing Well (2), 2 for the empty hand
+        assertEquals(16, player.getBaseScore(), "Base score should be the sum of costs");
+        assertEquals(20, player.getScore(false), "Score should include the purple bonuses");
+
+        player.addGold(3);
+        player.drawCard(new DistrictCard("Temple", "blue", 1, ""));
+        assertEquals(21, player.getScore(false), "Gold should count for the Imperial Treasury and the hand should lose the Park bonus");
+
+        player.getBuiltDistricts().remove(wishingWell);
+        assertEquals(14, player.getScore(false), "Destroyed district should no longer score");
+        assertEquals(App.calculateScore(List.of(player), player, false), player.getScore(false), "Final scoring should use the running score");
+    }
+
+    /**
+     * Tests that a game played from the same seed is replayed exactly.
+     */
+    @Test
+    public void testSeededGamesReplay() {
+        GameEngine first = Tournament.playGame(42L, 5);
+        GameEngine second = Tournament.playGame(42L, 5);
+
+        assertEquals(first.getRound(), second.getRound(), "Replayed game should last as many rounds");
+        assertArrayEquals(first.getScores(), second.getScores(), "Replayed game should end with the same scores");
+        assertEquals(first.getPlayers().indexOf(first.getWinner()), second.getPlayers().indexOf(second.getWinner()),
+                "Replayed game should have the same winner");
+    }
+
+    /**
+     * Tests that games written to the event log are rebuilt exactly by the replayer.
+     */
+    @Test
+    public void testEventLogReplaysGames(@TempDir Path dir) throws IOException {
+        Path file = dir.resolve("games.log");
+        List<GameEngine> games = new ArrayList<>();
+        try (EventLogAppender log = EventLogAppender.open(file)) {
+            EventRecorder events = new EventRecorder();
+            for (long seed = 1; seed <= 3; seed++) {
+                events.clear();
+                games.add(Tournament.playGame(seed, 4 + (int) seed, events));
+                log.append(events);
+            }
+        }
+
+        EventReplayer replayer = EventReplayer.open(file, DistrictCatalog.standard());
+        for (GameEngine game : games) {
+            assertTrue(replayer.nextGame(), "Every recorded game should be replayed");
+            List<Player> replayed = replayer.getPlayers();
+            assertEquals(game.getPlayers().size(), replayed.size(), "Replay should have every seat");
+            for (int seat = 0; seat < replayed.size(); seat++) {
+                Player expected = game.getPlayers().get(seat);
+                Player actual = replayed.get(seat);
+                assertEquals(expected.getGold(), actual.getGold(), "Replayed gold should match");
+                assertEquals(expected.getHand(), actual.getHand(), "Replayed hand should match");
+                assertEquals(expected.getBuiltDistricts(), actual.getBuiltDistricts(), "Replayed city should match");
+                assertSame(expected.getCharacter(), actual.getCharacter(), "Replayed character should match");
+            }
+            assertEquals(game.getCrownedPlayerIndex(), replayer.getCrownedPlayerIndex(), "Replayed crown should match");
+            assertEquals(game.getRound(), replayer.getRound(), "Replayed round should match");
+            assertEquals(game.getPlayers().indexOf(game.getWinner()), replayer.getWinnerIndex(), "Replayed winner should match");
+        }
+        assertFalse(replayer.nextGame(), "Replay should stop at the end of the log");
+    }
+
+    /**
+     * Tests that a binary snapshot restores the players, deck, draft and end of game state.
+     */
+    @Test
+    public void testSnapshotRestoresWholeGame(@TempDir Path dir) throws IOException {
+        Path file = dir.resolve("game.save");
+        Deck deck = new Deck();
+        deck.loadFromCatalog(DistrictCatalog.standard());
+        GameEngine game = new GameEngine(deck, newPlayers(5), null);
+        game.start();
+        game.step(Action.selectCharacter(1));
+        GameSnapshot.save(game, file);
+
+        GameEngine loaded = new GameEngine(new Deck(), newPlayers(4), null);
+        GameSnapshot.load(loaded, file);
+        assertEquals(5, loaded.getPlayers().size(), "Snapshot should restore every seat");
+        assertEquals(game.getDeck().size(), loaded.getDeck().size(), "Snapshot should restore the deck");
+        for (int i = 0; i < 10; i++) {
+            assertSame(game.getDeck().draw(), loaded.getDeck().draw(), "Snapshot should keep the deck order");
+        }
+        for (int seat = 0; seat < 5; seat++) {
+            Player expected = game.getPlayers().get(seat);
+            Player actual = loaded.getPlayers().get(seat);
+            assertEquals(expected.getName(), actual.getName(), "Snapshot should restore names");
+            assertEquals(expected.getHand(), actual.getHand(), "Snapshot should restore hands");
+            assertSame(expected.getCharacter(), actual.getCharacter(), "Snapshot should restore characters");
+        }
+        assertEquals(GameEngine.Phase.SELECT_CHARACTER, loaded.getPhase(), "Snapshot should resume the draft");
+        assertEquals(game.getDraftChoices(), loaded.getDraftChoices(), "Snapshot should restore the draft pool");
+        assertEquals(game.getPlayers().indexOf(game.getCurrentPlayer()), loaded.getPlayers().indexOf(loaded.getCurrentPlayer()),
+                "Snapshot should restore whose pick it is");
+
+        loaded.runToEnd();
+        GameSnapshot.save(loaded, file);
+        GameEngine finished = new GameEngine(new Deck(), newPlayers(4), null);
+        GameSnapshot.load(finished, file);
+        assertTrue(finished.isGameOver(), "Snapshot should restore a finished game");
+        assertArrayEquals(loaded.getScores(), finished.getScores(), "Snapshot should restore the final scores");
+    }
+
+    /**
+     * Creates the given number of players with the starting gold.
+     */
+    private static List<Player> newPlayers(int count) {
+        List<Player> players = new ArrayList<>();
+        for (int i = 1; i <= count; i++) {
+            players.add(new Player("Player " + i));
+        }
+        return players;
+    }
+
+    /**
+     * Tests that applying actions to a game state leaves it unchanged and shares untouched seats.
+     */
+    @Test
+    public void testGameStateApplySharesUnchangedParts() {
+        Deck deck = new Deck();
+        deck.loadFromCatalog(DistrictCatalog.standard());
+        GameEngine game = new GameEngine(deck, newPlayers(4), null);
+        game.start();
+        GameState start = GameState.of(game);
+
+        GameState picked = start.apply(Action.selectCharacter(0));
+        int seat = start.getCurrentSeat();
+        assertNull(start.getCharacter(seat), "Applying an action should not change the original state");
+        assertNotNull(picked.getCharacter(seat), "New state should hold the pick");
+        int other = (seat + 1) % 4;
+        assertSame(start.getSeat(other), picked.getSeat(other), "Unchanged seats should be shared");
+        assertSame(start.getDeck(), picked.getDeck(), "Unchanged deck should be shared");
+        assertThrows(IllegalArgumentException.class, () -> start.apply(Action.endTurn()), "Illegal actions should be rejected");
+
+        GameState state = picked;
+        while (!state.isGameOver()) {
+            state = state.apply(state.getLegalActions().get(0));
+        }
+        assertEquals(-1, state.getCurrentSeat(), "Finished state should have no current seat");
+        assertNotNull(state.getScores(), "Finished state should have scores");
+
+        picked.restore(game);
+        assertSame(game.getPlayers().get(seat).getCharacter(), picked.getCharacter(seat), "Restoring should load the state into the engine");
+        assertEquals(picked.getDeckSize(), game.getDeck().size(), "Restoring should load the deck");
+    }
+
+    /**
+     * Tests that computer players using tree search make only legal decisions through a whole game.
+     */
+    @Test
+    public void testSearchingComputerFinishesGame() {
+        Deck deck = new Deck();
+        deck.loadFromCatalog(DistrictCatalog.standard());
+        GameEngine game = new GameEngine(deck, newPlayers(4), null);
+        try (MctsSearch search = new MctsSearch(50, 2, 8)) {
+            game.getComputer().setSearch(search);
+            game.start();
+            game.runToEnd();
+        }
+
+        assertTrue(game.isGameOver(), "Game with searching computers should finish");
+        assertNotNull(game.getWinner(), "Game with searching computers should have a winner");
+    }
+
+    /**
+     * Tests that a sampled world keeps what the viewer knows and only deals unseen cards, and that
+     * the face down card is dealt from the characters the viewer cannot place.
+     */
+    @Test
+    public void testDeterminizerKeepsViewerKnowledge() {
+        Deck deck = new Deck();
+        deck.loadFromCatalog(DistrictCatalog.standard());
+        GameEngine game = new GameEngine(deck, newPlayers(5), null);
+        game.start();
+        game.step(Action.selectCharacter(0));
+        game.step(Action.selectCharacter(0));
+        GameState drafting = GameState.of(game);
+        int picker = drafting.getCurrentSeat();
+        int faceUp = drafting.getFaceUp()[0];
+        Determinizer drafts = new Determinizer(DistrictCatalog.standard());
+        SplittableRandom draftRandom = new SplittableRandom(5);
+        HashSet<Integer> hiddenCards = new HashSet<>();
+        for (int i = 0; i < 100; i++) {
+            GameState world = drafts.sample(drafting, picker, draftRandom);
+            int hidden = world.getHiddenCharacter();
+            hiddenCards.add(hidden);
+            assertNotEquals(faceUp, hidden, "The face down card should never be a face up one");
+            assertArrayEquals(drafting.getDraftPool(), world.getDraftPool(), "The picker's choices should not change");
+            for (int choice : world.getDraftPool()) {
+                assertNotEquals(choice, hidden, "The face down card should not be on offer");
+            }
+            for (int seat = 0; seat < 5; seat++) {
+                int character = world.getSeat(seat).character;
+                assertTrue(character == 0 || (character != hidden && character != faceUp), "Picked characters should be unseen ones");
+            }
+        }
+        assertTrue(hiddenCards.size() > 1, "The face down card should vary between samples");
+
+        while (game.getPhase() == GameEngine.Phase.SELECT_CHARACTER) {
+            game.step(Action.selectCharacter(0));
+        }
+        GameState state = GameState.of(game);
+        assertArrayEquals(drafting.getFaceUp(), state.getFaceUp(), "Face up cards should stay known all round");
+        int viewer = state.getCurrentSeat();
+        DistrictCatalog catalog = DistrictCatalog.standard();
+        Determinizer determinizer = new Determinizer(catalog);
+        SplittableRandom random = new SplittableRandom(5);
+
+        for (int i = 0; i < 100; i++) {
+            GameState world = determinizer.sample(state, viewer, random);
+            assertSame(state.getSeat(viewer), world.getSeat(viewer), "Viewer's own seat should not change");
+            assertEquals(state.getDeckSize(), world.getDeckSize(), "Deck size should not change");
+            int[] copies = new int[catalog.size()];
+            for (int seat = 0; seat < 5; seat++) {
+                assertEquals(state.getHandSize(seat), world.getHandSize(seat), "Hand sizes should not change");
+                assertArrayEquals(state.getSeat(seat).city, world.getSeat(seat).city, "Cities should not change");
+                for (int id : world.getSeat(seat).hand) {
+                    copies[id]++;
+                }
+                if (state.getCharacter(seat).getTurnOrder() <= state.getCharacter(viewer).getTurnOrder()) {
+                    assertSame(state.getCharacter(seat), world.getCharacter(seat), "Called characters should not move");
+                }
+                assertNotEquals(faceUp, world.getSeat(seat).character, "No seat should hold a face up character");
+            }
+            for (int id : world.getDeck()) {
+                copies[id]++;
+            }
+            for (int id = 0; id < copies.length; id++) {
+                assertTrue(copies[id] <= catalog.getQuantity(id), "Sample should not hold more copies than the catalog");
+            }
+        }
+    }
+
+    /**
+     * Tests that the incrementally kept position hash matches one rebuilt from scratch through a
+     * whole game, and that the transposition table keeps results per position.
+     */
+    @Test
+    public void testZobristHashMatchesRecomputation() {
+        Deck deck = new Deck(new SplittableRandom(16));
+        deck.loadFromCatalog(DistrictCatalog.standard());
+        GameEngine game = new GameEngine(deck, newPlayers(4), null, new SplittableRandom(16));
+        GameEngine copy = new GameEngine(new Deck(), newPlayers(4), null);
+        game.start();
+        while (!game.isGameOver()) {
+            if (game.getPhase() == GameEngine.Phase.SELECT_CHARACTER) {
+                game.step(Action.selectCharacter(game.getComputer().chooseCharacter(game.getCurrentPlayer(), game.getDraftChoices())));
+            } else {
+                game.step(game.getComputer().chooseAction(game.getCurrentPlayer()));
+            }
+            GameState state = GameState.of(game);
+            assertEquals(game.getHash(), state.getHash(), "State should keep the engine's hash");
+            state.restore(copy);
+            assertEquals(game.getHash(), copy.getHash(), "Incremental hash should match a rebuilt position");
+        }
+
+        Player player = newPlayers(1).get(0);
+        long start = player.getHash();
+        player.addGold(3);
+        player.spendGold(3);
+        assertEquals(start, player.getHash(), "Undoing a change should restore the hash");
+
+        TranspositionTable table = new TranspositionTable(1000);
+        table.record(game.getHash(), true);
+        table.record(game.getHash(), false);
+        long entry = table.probe(game.getHash());
+        assertEquals(2, TranspositionTable.visits(entry), "Table should count both playouts");
+        assertEquals(1, TranspositionTable.wins(entry), "Table should count one win");
+        assertEquals(0, table.probe(~game.getHash()), "Table should not answer for another position");
+    }
+
+    /**
+     * Tests that a server table plays a connected player's decisions from their socket and lets
+     * the computer finish the game once they disconnect.
+     */
+    @Test
+    public void testServerTableFinishesAfterPlayerLeaves() throws Exception {
+        Thread serving;
+        try (GameServer server = new GameServer(0, 4, 1, 17)) {
+            serving = new Thread(() -> {
+                try {
+                    server.serve();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            serving.start();
+
+            String transcript;
+            try (Socket socket = new Socket("localhost", server.getPort())) {
+                socket.setSoTimeout(30000);
+                // Picks the first character offered, then hangs up
+                socket.getOutputStream().write("0\n".getBytes(StandardCharsets.UTF_8));
+                socket.shutdownOutput();
+                transcript = new String(socket.getInputStream().readAllBytes(), StandardCharsets.UTF_8);
+            }
+
+            assertTrue(transcript.contains("you are player 1"), "Player should be told their seat");
+            assertTrue(transcript.contains("Choose your character by number"), "Player should be asked for a character");
+            assertFalse(transcript.contains("The winner is"), "Player should not be sent the game after leaving");
+            for (int i = 0; i < 1000 && server.getOpenTables() > 0; i++) {
+                Thread.sleep(10);
+            }
+            assertEquals(0, server.getOpenTables(), "Computer should finish the game");
+        }
+        serving.join(10000);
+        assertFalse(serving.isAlive(), "Closing the server should stop accepting players");
+    }
+
+    /**
+     * Tests that a server table answers a player typing out of turn and notices their hang-up
+     * while it is still waiting on another player.
+     */
+    @Test
+    public void testServerReadsEverySeat() throws Exception {
+        Thread serving;
+        try (GameServer server = new GameServer(0, 4, 2, 20)) {
+            serving = new Thread(() -> {
+                try {
+                    server.serve();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            serving.start();
+
+            try (Socket first = new Socket("localhost", server.getPort());
+                 Socket second = new Socket("localhost", server.getPort())) {
+                first.setSoTimeout(30000);
+                second.setSoTimeout(30000);
+                // The first player picks first, so the second one is out of turn and then hangs up
+                second.getOutputStream().write("0\n".getBytes(StandardCharsets.UTF_8));
+                second.shutdownOutput();
+                String turnedAway = new String(second.getInputStream().readAllBytes(), StandardCharsets.UTF_8);
+                assertTrue(turnedAway.contains("It is not your turn."), "Player should be told it is not their turn");
+
+                java.io.BufferedReader reader = new java.io.BufferedReader(
+                    new java.io.InputStreamReader(first.getInputStream(), StandardCharsets.UTF_8));
+                String line;
+                do {
+                    line = reader.readLine();
+                } while (line != null && !line.contains("Player 2 left the table"));
+                assertNotNull(line, "Waiting player should hear about the hang-up before deciding");
+                first.getOutputStream().write("0\n".getBytes(StandardCharsets.UTF_8));
+                first.shutdownOutput();
+            }
+            for (int i = 0; i < 1000 && server.getOpenTables() > 0; i++) {
+                Thread.sleep(10);
+            }
+            assertEquals(0, server.getOpenTables(), "Computer should finish the game");
+        }
+        serving.join(10000);
+    }
+
+    /**
+     * Tests that the selector server plays commands and answers sent in one burst, and lets the
+     * computer finish the game once the player disconnects.
+     */
+    @Test
+    public void testSelectorServerHandlesCommandLines() throws Exception {
+        Thread serving;
+        try (NioGameServer server = new NioGameServer(0, 4, 1, 18)) {
+            serving = new Thread(() -> {
+                try {
+                    server.serve();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            serving.start();
+
+            String transcript;
+            try (Socket socket = new Socket("localhost", server.getPort())) {
+                socket.setSoTimeout(30000);
+                socket.getOutputStream().write("seven\r\n9\n  0 \n".getBytes(StandardCharsets.UTF_8));
+                socket.shutdownOutput();
+                transcript = new String(socket.getInputStream().readAllBytes(), StandardCharsets.UTF_8);
+            }
+
+            assertTrue(transcript.contains("you are player 1"), "Player should be told their seat");
+            assertTrue(transcript.contains("Invalid input. Enter a number."), "Words should be rejected as a character choice");
+            assertTrue(transcript.contains("Invalid selection. Try again:"), "Choices out of range should be rejected");
+            for (int i = 0; i < 1000 && server.getOpenTables() > 0; i++) {
+                Thread.sleep(10);
+            }
+            assertEquals(0, server.getOpenTables(), "Computer should finish the game");
+        }
+        serving.join(10000);
+        assertFalse(serving.isAlive(), "Closing the server should stop the selector thread");
+    }
+
+    /**
+     * Tests that the selector server decodes what players send as UTF-8, even when a character
+     * arrives split between two reads.
+     */
+    @Test
+    public void testSelectorServerDecodesUtf8() throws Exception {
+        Thread serving;
+        try (NioGameServer server = new NioGameServer(0, 4, 1, 21)) {
+            serving = new Thread(() -> {
+                try {
+                    server.serve();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            serving.start();
+
+            String transcript;
+            try (Socket socket = new Socket("localhost", server.getPort())) {
+                socket.setSoTimeout(30000);
+                // A fullwidth zero, which parses as the first character only if decoded as UTF-8
+                byte[] zero = "\uFF10\n".getBytes(StandardCharsets.UTF_8);
+                socket.getOutputStream().write(zero, 0, 2);
+                socket.getOutputStream().flush();
+                Thread.sleep(200);
+                socket.getOutputStream().write(zero, 2, zero.length - 2);
+                socket.shutdownOutput();
+                transcript = new String(socket.getInputStream().readAllBytes(), StandardCharsets.UTF_8);
+            }
+
+            assertTrue(transcript.contains("You chose:"), "Player should pick with a decoded digit");
+            assertFalse(transcript.contains("Invalid input. Enter a number."), "A split character should not be mangled");
+            for (int i = 0; i < 1000 && server.getOpenTables() > 0; i++) {
+                Thread.sleep(10);
+            }
+        }
+        serving.join(10000);
+    }
+
+    /**
+     * Tests that a game sends its events to any sink but formats messages only for sinks that
+     * want them, and that the file sink writes the messages out.
+     */
+    @Test
+    public void testEventSinkSkipsUnwantedMessages(@TempDir Path dir) throws IOException {
+        int[] events = new int[1];
+        List<String> messages = new ArrayList<>();
+        GameEventSink counting = new GameEventSink() {
+            @Override
+            public void onEvent(GameEvent event, int seat, int value) {
+                events[0]++;
+            }
+
+            @Override
+            public void onMessage(String message) {
+                messages.add(message);
+            }
+        };
+        GameEngine game = Tournament.playGame(19, 4, null);
+        assertFalse(game.isLogging(), "Silent game should not build messages");
+
+        Deck deck = new Deck(new SplittableRandom(19));
+        deck.loadFromCatalog(DistrictCatalog.standard());
+        game = new GameEngine(deck, newPlayers(4), null, new SplittableRandom(19));
+        game.setEventSink(counting);
+        game.start();
+        game.runToEnd();
+        assertTrue(events[0] > 0, "Sink should receive the game's events");
+        assertTrue(messages.isEmpty(), "Sink that does not want messages should not get any");
+
+        Path file = dir.resolve("game.txt");
+        try (FileEventSink sink = FileEventSink.open(file)) {
+            deck = new Deck(new SplittableRandom(19));
+            deck.loadFromCatalog(DistrictCatalog.standard());
+            game = new GameEngine(deck, newPlayers(4), null, new SplittableRandom(19));
+            game.setEventSink(sink);
+            assertTrue(game.isLogging(), "File sink should want messages");
+            game.start();
+            game.runToEnd();
+        }
+        String text = new String(Files.readAllBytes(file), StandardCharsets.UTF_8);
+        assertTrue(text.contains("The winner is: " + game.getWinner().getName()), "File should hold the game's messages");
+    }
+
+    @Test
+    public void testMetricsCountGamesAndTurns(@TempDir Path dir) throws Exception {
+        GameMetrics metrics = new GameMetrics();
+        int rounds = 0;
+        for (long seed = 1; seed <= 3; seed++) {
+            Deck deck = new Deck(new SplittableRandom(seed));
+            deck.loadFromCatalog(DistrictCatalog.standard());
+            GameEngine game = new GameEngine(deck, newPlayers(4), null, new SplittableRandom(seed));
+            game.setMetrics(metrics);
+            game.start();
+            game.runToEnd();
+            rounds += game.getRound();
+            if (seed == 3) {
+                Path file = dir.resolve("game.sav");
+                GameSnapshot.save(game, file);
+                GameSnapshot.load(game, file);
+            }
+        }
+        assertEquals(3, metrics.getGames());
+        assertEquals(rounds, metrics.getRounds());
+        assertEquals(rounds, metrics.getSelectionLatency().getCount(), "Every round's draft should be timed");
+        assertEquals(metrics.getTurns(), metrics.getTurnLatency().getCount(), "Every turn should be timed");
+        assertTrue(metrics.getTurns() >= rounds, "Every round should have turns");
+        assertTrue(metrics.getBuilds() > 0);
+        assertEquals(1, metrics.getSaveLatency().getCount());
+        assertEquals(1, metrics.getLoadLatency().getCount());
+        long uses = 0;
+        for (long count : metrics.getAbilityUses().values()) {
+            uses += count;
+        }
+        assertTrue(uses > 0, "Abilities should be counted by character");
+        assertTrue(metrics.getTurnLatency().getP50Nanos() <= metrics.getTurnLatency().getP99Nanos());
+        assertTrue(metrics.getTurnLatency().getP99Nanos() <= metrics.getTurnLatency().getMaxNanos());
+
+        GameMetrics.global();
+        assertTrue(java.lang.management.ManagementFactory.getPlatformMBeanServer()
+            .isRegistered(new javax.management.ObjectName(GameMetrics.OBJECT_NAME)));
+    }
+
+    @Test
+    public void testFlightRecorderEventsCarryTableRoundAndSeat(@TempDir Path dir) throws IOException {
+        Path file = dir.resolve("game.jfr");
+        GameEngine game;
+        try (jdk.jfr.Recording recording = new jdk.jfr.Recording()) {
+            for (String name : new String[] {"citadels.RoundStart", "citadels.Draft", "citadels.Turn",
+                    "citadels.Ability", "citadels.Scoring", "citadels.Snapshot"}) {
+                recording.enable(name);
+            }
+            recording.start();
+            Deck deck = new Deck(new SplittableRandom(23));
+            deck.loadFromCatalog(DistrictCatalog.standard());
+            game = new GameEngine(deck, newPlayers(4), null, new SplittableRandom(23));
+            game.setTableId(7);
+            game.start();
+            game.runToEnd();
+            GameSnapshot.save(game, dir.resolve("game.sav"));
+            Tournament.playGame(23, 4);
+            recording.stop();
+            recording.dump(file);
+        }
+
+        java.util.Map<String, Integer> counts = new java.util.HashMap<>();
+        for (jdk.jfr.consumer.RecordedEvent event : jdk.jfr.consumer.RecordingFile.readAllEvents(file)) {
+            assertEquals(7, event.getInt("tableId"), "Only the numbered table should report");
+            assertTrue(event.getInt("round") >= 1 && event.getInt("round") <= game.getRound());
+            assertTrue(event.getInt("seat") >= -1 && event.getInt("seat") < 4);
+            counts.merge(event.getEventType().getName(), 1, Integer::sum);
+        }
+        assertEquals(game.getRound(), counts.get("citadels.RoundStart"));
+        assertEquals(game.getRound(), counts.get("citadels.Draft"));
+        assertTrue(counts.get("citadels.Turn") >= game.getRound());
+        assertTrue(counts.get("citadels.Ability") > 0);
+        assertEquals(1, counts.get("citadels.Scoring"));
+        assertEquals(1, counts.get("citadels.Snapshot"));
+    }
+
+    @Test
+    public void testScriptReplaysHumanSession(@TempDir Path dir) throws IOException {
+        // Each decision finds its answer within one cycle; the other lines are turned away
+        List<String> lines = new ArrayList<>();
+        lines.add("# answers for every prompt, repeated");
+        for (int i = 0; i < 2000; i++) {
+            lines.add("0");
+            lines.add("gold");
+            lines.add("a");
+            lines.add("end");
+        }
+        Path file = dir.resolve("session.txt");
+        Files.write(file, lines, StandardCharsets.UTF_8);
+
+        String[] transcripts = new String[2];
+        for (int run = 0; run < 2; run++) {
+            ScriptInput script = ScriptInput.open(file);
+            java.io.ByteArrayOutputStream bytes = new java.io.ByteArrayOutputStream();
+            java.io.PrintStream out = new java.io.PrintStream(bytes, false, StandardCharsets.UTF_8);
+            Deck deck = new Deck(new SplittableRandom(29));
+            deck.loadFromCatalog(DistrictCatalog.standard());
+            GameEngine game = new GameEngine(deck, newPlayers(4), out, new SplittableRandom(29));
+            game.setHuman(0, true);
+            HumanSeat seat = new HumanSeat(game, 0, script, out, null);
+            game.start();
+            while (!game.isGameOver()) {
+                game.advance();
+                if (game.needsHumanInput()) {
+                    seat.decide();
+                }
+            }
+            out.flush();
+            transcripts[run] = bytes.toString(StandardCharsets.UTF_8);
+            assertTrue(script.getLineNumber() > 1, "The game should read its answers from the script");
+            assertTrue(script.getLineNumber() < lines.size(), "The script should outlast the game");
+        }
+        assertTrue(transcripts[0].contains("The winner is"));
+        assertEquals(transcripts[0], transcripts[1], "A replay should play the same game");
+
+        ScriptInput empty = new ScriptInput(List.of("# nothing to play"));
+        assertNull(empty.readLine());
+        assertNull(new ConsoleInput(new java.io.ByteArrayInputStream(new byte[0])).readLine());
+    }
+
+    @Test
+    public void testCatalogLoaderAndDeckStamping() {
+        String text = "Name\tQty\tcolor\tcost\ttext\r\n"
+            + "Watchtower\t3\tred\t1\t\r\n"
+            + "short line\r\n"
+            + "Library\t1\tpurple\t6\tKeep both cards\r\n"
+            + "Temple\t2\tblue\t1";
+        DistrictCatalog catalog = DistrictCatalog.load(new java.io.ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8)));
+        assertEquals(3, catalog.size(), "Lines with fewer than four columns should be skipped");
+        assertEquals(6, catalog.getTotalCards());
+        assertEquals("Watchtower", catalog.get(0).getName());
+        assertEquals(1, catalog.get(0).getCost());
+        assertEquals(6, catalog.byName("Library").getCost());
+        assertEquals(2, catalog.getQuantity(catalog.idOf("Temple")), "The text column should be optional");
+        assertEquals(1, catalog.byName("Temple").getCost());
+        assertThrows(NumberFormatException.class, () -> DistrictCatalog.load(
+            new java.io.ByteArrayInputStream("h\nKeep\tx\tred\t1\n".getBytes(StandardCharsets.UTF_8))));
+
+        DistrictCatalog standard = DistrictCatalog.standard();
+        DistrictCatalog reloaded = DistrictCatalog.load(getClass().getClassLoader().getResourceAsStream("cards.tsv"));
+        assertEquals(standard.size(), reloaded.size());
+        for (int id = 0; id < standard.size(); id++) {
+            assertEquals(standard.get(id).getName(), reloaded.get(id).getName());
+            assertEquals(standard.getQuantity(id), reloaded.getQuantity(id));
+        }
+
+        // A stamped deck holds the same cards in the same order as adding them one by one
+        Deck stamped = new Deck(new SplittableRandom(31));
+        stamped.addToBottom(standard.get(0));
+        stamped.loadFromCatalog(standard);
+        Deck added = new Deck(new SplittableRandom(31));
+        added.addToBottom(standard.get(0));
+        for (int id = 0; id < standard.size(); id++) {
+            for (int i = 0; i < standard.getQuantity(id); i++) {
+                added.addToBottom(standard.get(id));
+            }
+        }
+        added.shuffle();
+        assertEquals(standard.getTotalCards() + 1, stamped.size());
+        while (!added.isEmpty()) {
+            assertSame(added.draw(), stamped.draw());
+        }
+        assertTrue(stamped.isEmpty());
+    }
+
+    @Test
+    public void testResetEnginePlaysSameGameAsNewEngine() {
+        GameEngine reused = Tournament.playGame(41, 5);
+        List<Player> players = reused.getPlayers();
+        Player first = players.get(0);
+        for (long seed = 42; seed <= 45; seed++) {
+            GameEngine fresh = Tournament.playGame(seed, 5);
+            assertSame(reused, Tournament.playGame(reused, seed, null));
+            assertSame(first, reused.getPlayers().get(0), "The players should be reused");
+            assertEquals(fresh.getRound(), reused.getRound());
+            assertArrayEquals(fresh.getScores(), reused.getScores(), "Game " + seed + " should play out the same");
+            assertEquals(fresh.getPlayers().indexOf(fresh.getWinner()), players.indexOf(reused.getWinner()));
+            assertEquals(fresh.getHash(), reused.getHash());
+        }
+
+        Player player = new Player("Reset");
+        player.addGold(5);
+        player.drawCard(DistrictCatalog.standard().get(0));
+        player.buildDistrict(DistrictCatalog.standard().get(0));
+        player.assignCharacter(CharacterCard.getCharacters().get(3));
+        long startHash = new Player("Reset").getHash();
+        player.reset();
+        assertEquals(2, player.getGold());
+        assertTrue(player.getHand().isEmpty());
+        assertTrue(player.getBuiltDistricts().isEmpty());
+        assertNull(player.getCharacter());
+        assertEquals(startHash, player.getHash());
+
+        Deck deck = new Deck(new SplittableRandom(1));
+        deck.loadFromCatalog(DistrictCatalog.standard());
+        deck.draw();
+        deck.reset(DistrictCatalog.standard(), new SplittableRandom(2));
+        Deck expected = new Deck(new SplittableRandom(2));
+        expected.loadFromCatalog(DistrictCatalog.standard());
+        assertEquals(expected.size(), deck.size());
+        while (!expected.isEmpty()) {
+            assertSame(expected.draw(), deck.draw());
+        }
+    }
+
+    @Test
+    public void testCharacterDraftSamplesWithoutFaceUpKing() {
+        CharacterDraft draft = new CharacterDraft();
+        SplittableRandom random = new SplittableRandom(43);
+        int hiddenKings = 0;
+        int deals = 60000;
+        for (int i = 0; i < deals; i++) {
+            draft.deal(4, random);
+            assertEquals(2, draft.getFaceUp().size());
+            assertEquals(5, draft.getPool().size());
+            for (CharacterCard card : draft.getFaceUp()) {
+                assertNotEquals(CharacterRole.KING, card.getRole(), "The King is never removed face up");
+            }
+            if (draft.getHidden().getRole() == CharacterRole.KING) {
+                hiddenKings++;
+            }
+        }
+        // Reshuffling until the King is not face up hides it one time in six with four players
+        assertEquals(1.0 / 6, hiddenKings / (double) deals, 0.01);
+
+        List<Player> players = newPlayers(7);
+        CharacterDraft.PickPolicy last = (player, choices) -> choices.size() - 1;
+        CharacterDraft.PickPolicy[] policies = new CharacterDraft.PickPolicy[7];
+        Arrays.fill(policies, last);
+        CharacterCard[] picked = draft.run(players, 3, policies, new SplittableRandom(43));
+        assertEquals(7, new HashSet<>(Arrays.asList(picked)).size(), "Every seat should pick a different character");
+        assertNull(players.get(0).getCharacter(), "Running a draft on its own leaves the players alone");
+
+        int[] asked = new int[1];
+        Deck deck = new Deck(new SplittableRandom(43));
+        deck.loadFromCatalog(DistrictCatalog.standard());
+        GameEngine game = new GameEngine(deck, newPlayers(5), null, new SplittableRandom(43));
+        game.setHuman(0, true);
+        game.setPickPolicy(0, (player, choices) -> {
+            asked[0]++;
+            return 0;
+        });
+        game.start();
+        game.advance();
+        assertEquals(1, asked[0], "The policy should pick for its seat");
+        assertTrue(game.getPhase() != GameEngine.Phase.SELECT_CHARACTER, "A human seat with a policy does not stop the draft");
+    }
+
+    /**
+     * Tests that bot games which run out of cards before a city is complete are still scored.
+     */
+    @Test
+    public void testStalledGamesEndAtRoundCap() {
+        for (int seed = 0; seed < 40; seed++) {
+            Deck deck = new Deck(new SplittableRandom(seed));
+            deck.loadFromCatalog(DistrictCatalog.standard());
+            GameEngine game = new GameEngine(deck, newPlayers(4 + seed % 4), null, new SplittableRandom(seed));
+            game.start();
+            game.runToEnd();
+            assertTrue(game.isGameOver(), "Every game should finish");
+            assertTrue(game.getRound() <= GameEngine.MAX_ROUNDS, "No game should play past the round cap");
+        }
+    }
+
+    /**
+     * Tests that discarded, redrawn and destroyed cards go back to the deck, so no card leaves the game.
+     */
+    @Test
+    public void testCardsReturnToDeck() {
+        DistrictCatalog catalog = DistrictCatalog.standard();
+        for (int seed = 0; seed < 20; seed++) {
+            Deck deck = new Deck(new SplittableRandom(seed));
+            deck.loadFromCatalog(catalog);
+            GameEngine game = new GameEngine(deck, newPlayers(4 + seed % 4), null, new SplittableRandom(seed));
+            game.start();
+            game.runToEnd();
+            int cards = deck.size();
+            for (Player p : game.getPlayers()) {
+                cards += p.getHand().size() + p.getBuiltDistricts().size();
+            }
+            assertEquals(catalog.getTotalCards(), cards, "Every card should be in the deck, a hand or a city");
+        }
+    }
+
+    /**
+     * Tests that no build is offered once the current player has reached their build limit.
+     */
+    @Test
+    public void testBuildLimitStopsBuilding() {
+        Deck deck = new Deck(new SplittableRandom(7));
+        deck.loadFromCatalog(DistrictCatalog.standard());
+        GameEngine game = new GameEngine(deck, newPlayers(5), null, new SplittableRandom(7));
+        game.start();
+        int limited = 0;
+        while (!game.isGameOver()) {
+            if (game.getPhase() == GameEngine.Phase.MAIN && game.getBuildsThisTurn() >= game.getBuildLimit()) {
+                limited++;
+                for (Action action : game.getLegalActions()) {
+                    assertNotEquals(Action.Type.BUILD, action.getType(), "No build should be legal past the limit");
+                }
+            }
+            Action action = game.getPhase() == GameEngine.Phase.SELECT_CHARACTER
+                    ? Action.selectCharacter(0) : game.getComputer().chooseAction(game.getCurrentPlayer());
+            assertTrue(game.step(action), "The computer should only choose legal actions");
+        }
+        assertTrue(limited > 0, "Some turn should reach the build limit");
+    }
+
+    /**
+     * Tests that the crown only moves between rounds, and only to the player who was the King.
+     */
+    @Test
+    public void testCrownPassesToKingAtEndOfRound() {
+        Deck deck = new Deck(new SplittableRandom(11));
+        deck.loadFromCatalog(DistrictCatalog.standard());
+        GameEngine game = new GameEngine(deck, newPlayers(6), null, new SplittableRandom(11));
+        game.start();
+        int moves = 0;
+        int kingSeat = -1;
+        while (!game.isGameOver()) {
+            int round = game.getRound();
+            int crown = game.getCrownedPlayerIndex();
+            for (int seat = 0; seat < 6; seat++) {
+                if (CharacterRole.of(game.getPlayers().get(seat)) == CharacterRole.KING) {
+                    kingSeat = seat;
+                }
+            }
+            Action action = game.getPhase() == GameEngine.Phase.SELECT_CHARACTER
+                    ? Action.selectCharacter(0) : game.getComputer().chooseAction(game.getCurrentPlayer());
+            assertTrue(game.step(action), "The computer should only choose legal actions");
+            if (game.isGameOver()) {
+                break;
+            }
+            if (game.getRound() == round) {
+                assertEquals(crown, game.getCrownedPlayerIndex(), "The crown should not move during a round");
+            } else {
+                if (game.getCrownedPlayerIndex() != crown) {
+                    moves++;
+                    assertEquals(kingSeat, game.getCrownedPlayerIndex(), "The crown should go to the King");
+                }
+                kingSeat = -1;
+            }
+        }
+        assertTrue(moves > 0, "The crown should move at least once");
+    }
+
+    /**
+     * Tests that an assassinated character never gets a turn.
+     */
+    @Test
+    public void testAssassinatedCharacterSkipsTurn() {
+        Deck deck = new Deck(new SplittableRandom(5));
+        deck.loadFromCatalog(DistrictCatalog.standard());
+        GameEngine game = new GameEngine(deck, newPlayers(7), null, new SplittableRandom(5));
+        game.start();
+        int kills = 0;
+        while (!game.isGameOver()) {
+            boolean selecting = game.getPhase() == GameEngine.Phase.SELECT_CHARACTER;
+            Action action = selecting ? Action.selectCharacter(0) : game.getComputer().chooseAction(game.getCurrentPlayer());
+            assertTrue(game.step(action), "The computer should only choose legal actions");
+            if (!selecting && action.getType() == Action.Type.USE_ABILITY) {
+                for (Player p : game.getPlayers()) {
+                    if (p.isAssassinated() && p != game.getCurrentPlayer()) {
+                        kills++;
+                    }
+                }
+            }
+            if (!game.isGameOver() && game.getPhase() != GameEngine.Phase.SELECT_CHARACTER) {
+                assertFalse(game.getCurrentPlayer().isAssassinated(), "An assassinated player should not take a turn");
+            }
+        }
+        assertTrue(kills > 0, "Some character should be assassinated");
+    }
+
+    /**
+     * Tests that loading a missing card file fails instead of leaving the deck empty.
+     */
+    @Test
+    public void testMissingCardFileThrows(@TempDir Path dir) {
+        Deck deck = new Deck();
+        assertThrows(UncheckedIOException.class, () -> deck.loadFromFile(dir.resolve("missing.tsv").toFile()));
+        assertEquals(0, deck.size(), "Nothing should be loaded");
+    }
+
+    /**
+     * Tests that a truncated log or a record for a seat the game does not have is reported as malformed.
+     */
+    @Test
+    public void testReplayerRejectsMalformedLogs() {
+        DistrictCatalog catalog = DistrictCatalog.standard();
+        EventReplayer truncated = new EventReplayer(ByteBuffer.wrap(new byte[] {(byte) 0x80}), catalog);
+        assertThrows(IllegalStateException.class, truncated::nextGame, "A varint cut short is malformed");
+
+        byte start = (byte) GameEvent.GAME_START.ordinal();
+        byte gold = (byte) GameEvent.GOLD.ordinal();
+        EventReplayer badSeat = new EventReplayer(ByteBuffer.wrap(new byte[] {6, start, 2, 0, gold, 5, 2}), catalog);
+        assertThrows(IllegalStateException.class, badSeat::nextGame, "A seat past the players is malformed");
+
+        EventReplayer overrun = new EventReplayer(ByteBuffer.wrap(new byte[] {2, start, 2, 0}), catalog);
+        assertThrows(IllegalStateException.class, overrun::nextGame, "A record past the end of its game is malformed");
+    }
+
+    /**
+     * Tests that a game cannot be saved before it has started.
+     */
+    @Test
+    public void testSnapshotOfUnstartedGameThrows(@TempDir Path dir) {
+        GameEngine game = new GameEngine(loadDeck(), newPlayers(4), null);
+        assertThrows(IllegalStateException.class, () -> GameSnapshot.save(game, dir.resolve("game.sav")));
+        assertFalse(Files.exists(dir.resolve("game.sav")), "No file should be written");
+    }
+
+    /**
+     * Tests that applying decisions is reproducible across rounds and only copies the parts a decision changes.
+     */
+    @Test
+    public void testGameStateApplyIsReproducible() {
+        Deck deck = new Deck(new SplittableRandom(3));
+        deck.loadFromCatalog(DistrictCatalog.standard());
+        GameEngine game = new GameEngine(deck, newPlayers(5), null, new SplittableRandom(3));
+        game.start();
+        GameState start = GameState.of(game);
+
+        GameState first = start;
+        GameState second = start;
+        while (first.getRound() < 3) {
+            Action action = first.getLegalActions().get(0);
+            GameState next = first.apply(action);
+            if (action.getType() == Action.Type.END_TURN && next.getRound() == first.getRound()) {
+                assertSame(first.getDeck(), next.getDeck(), "Ending a turn should share the deck");
+            }
+            first = next;
+            second = second.apply(action);
+        }
+        assertEquals(first.getHash(), second.getHash(), "The same decisions should deal the same drafts");
+        assertArrayEquals(first.getDraftPool(), second.getDraftPool());
+
+        GameState seeded = start;
+        GameState reseeded = start;
+        SplittableRandom random = new SplittableRandom(9);
+        SplittableRandom sameRandom = new SplittableRandom(9);
+        while (seeded.getRound() < 3) {
+            Action action = seeded.getLegalActions().get(0);
+            seeded = seeded.apply(action, random);
+            reseeded = reseeded.apply(action, sameRandom);
+        }
+        assertEquals(seeded.getHash(), reseeded.getHash(), "The same random sources should deal the same drafts");
+        assertArrayEquals(seeded.getDraftPool(), reseeded.getDraftPool());
+        assertArrayEquals(seeded.getDeck(), reseeded.getDeck());
+
+        // Branch from earlier states so the scratch engine reloads only part of each one
+        List<GameState> visited = new ArrayList<>();
+        visited.add(start);
+        SplittableRandom walk = new SplittableRandom(5);
+        GameEngine full = new GameEngine(new Deck(), newPlayers(5), null);
+        for (int i = 0; i < 2000; i++) {
+            GameState from = visited.get(walk.nextInt(visited.size()));
+            if (from.isGameOver()) {
+                continue;
+            }
+            List<Action> actions = from.getLegalActions();
+            GameState next = from.apply(actions.get(walk.nextInt(actions.size())), walk);
+            visited.add(next);
+            next.restore(full);
+            GameState reread = GameState.of(full);
+            assertEquals(reread.getHash(), next.getHash(), "A branch should match the same state loaded in full");
+            assertArrayEquals(reread.getDeck(), next.getDeck());
+            for (int seat = 0; seat < 5; seat++) {
+                assertArrayEquals(reread.getSeat(seat).hand, next.getSeat(seat).hand);
+                assertArrayEquals(reread.getSeat(seat).city, next.getSeat(seat).city);
+                assertEquals(reread.getGold(seat), next.getGold(seat));
+            }
+        }
+    }
+
+    /**
+     * Tests that an ability target must be one of the targets on offer, and that a computer's
+     * kept card is not named to the table.
+     */
+    @Test
+    public void testAbilityTargetsAreRangeChecked() {
+        Deck deck = new Deck(new SplittableRandom(22));
+        deck.loadFromCatalog(DistrictCatalog.standard());
+        java.io.ByteArrayOutputStream log = new java.io.ByteArrayOutputStream();
+        GameEngine game = new GameEngine(deck, newPlayers(4), new java.io.PrintStream(log, true, StandardCharsets.UTF_8),
+            new SplittableRandom(22));
+        game.start();
+        boolean checked = false;
+        while (!game.isGameOver() && !checked) {
+            if (game.getPhase() == GameEngine.Phase.SELECT_CHARACTER) {
+                game.step(Action.selectCharacter(0));
+                continue;
+            }
+            int targets = game.getAbilityTargets().size();
+            if (targets > 0 && game.isLegal(Action.useAbility(0))) {
+                assertFalse(game.isLegal(Action.useAbility(targets)), "Targets past the end should be illegal");
+                assertFalse(game.isLegal(Action.useAbility(-1)), "A targeted ability should need a target");
+                assertFalse(game.step(Action.useAbility(targets)), "Step should refuse a missing target");
+                checked = true;
+            } else {
+                game.step(game.getComputer().chooseAction(game.getCurrentPlayer()));
+            }
+        }
+        assertTrue(checked, "Game should reach a targeted ability");
+        while (!game.isGameOver()) {
+            game.advance();
+        }
+        String messages = log.toString(StandardCharsets.UTF_8);
+        assertTrue(messages.contains(" keeps a card."), "Keeping a card should be announced");
+        assertFalse(messages.matches("(?s).* keeps (?!a card).*"), "Kept cards should not be named");
+    }
+
+    /**
+     * Tests that a table with two connected players tells each player their own pick and only
+     * tells the other one that a character was chosen.
+     */
+    @Test
+    public void testTableKeepsPicksPrivate() {
+        java.io.ByteArrayOutputStream first = new java.io.ByteArrayOutputStream();
+        java.io.ByteArrayOutputStream second = new java.io.ByteArrayOutputStream();
+        List<java.io.PrintStream> outs = List.of(
+            new java.io.PrintStream(first, false, StandardCharsets.UTF_8),
+            new java.io.PrintStream(second, false, StandardCharsets.UTF_8));
+        GameTable table = new GameTable(0, 23, 4, outs);
+        table.start();
+        int picker = table.getWaitingSeat();
+        assertTrue(picker == 0 || picker == 1, "A connected player should be picking");
+        table.onLine(picker, "0");
+
+        String mine = (picker == 0 ? first : second).toString(StandardCharsets.UTF_8);
+        String theirs = (picker == 0 ? second : first).toString(StandardCharsets.UTF_8);
+        assertTrue(mine.contains("You chose: "), "Player should be told their pick");
+        assertFalse(theirs.contains("You chose: "), "Another player's pick should not be sent");
+        assertTrue(theirs.contains("Player " + (picker + 1) + " chose a character."), "Others should be told a character was chosen");
+    }
+
+    /**
+     * Tests that a cut short or corrupt snapshot is refused without touching the game it was read into.
+     */
+    @Test
+    public void testBadSnapshotLeavesGameUntouched() {
+        Deck deck = new Deck(new SplittableRandom(24));
+        deck.loadFromCatalog(DistrictCatalog.standard());
+        GameEngine game = new GameEngine(deck, newPlayers(4), null, new SplittableRandom(24));
+        game.start();
+        game.advance();
+        ByteBuffer snapshot = ByteBuffer.allocate(1 << 14);
+        GameSnapshot.write(game, snapshot);
+        snapshot.flip();
+
+        Deck otherDeck = new Deck(new SplittableRandom(25));
+        otherDeck.loadFromCatalog(DistrictCatalog.standard());
+        GameEngine other = new GameEngine(otherDeck, newPlayers(4), null, new SplittableRandom(25));
+        other.start();
+        long hash = other.getHash();
+        List<Player> players = new ArrayList<>(other.getPlayers());
+        int deckSize = other.getDeck().size();
+        for (int cut = 7; cut < snapshot.limit(); cut += 5) {
+            ByteBuffer truncated = snapshot.duplicate().limit(cut);
+            assertThrows(RuntimeException.class, () -> GameSnapshot.read(other, truncated, DistrictCatalog.standard()),
+                "A snapshot cut at " + cut + " bytes should be refused");
+            assertEquals(players, other.getPlayers(), "A refused snapshot should keep the players");
+            assertEquals(deckSize, other.getDeck().size(), "A refused snapshot should keep the deck");
+            assertEquals(hash, other.getHash(), "A refused snapshot should keep the game");
+        }
+
+        // The crowned seat follows the players and the deck
+        int crowned = 6 + 1;
+        for (Player player : game.getPlayers()) {
+            crowned += 2 + player.getName().getBytes(StandardCharsets.UTF_8).length + 4 + 1 + 1
+                + 2 + 2 * player.getHand().size() + 2 + 2 * player.getBuiltDistricts().size();
+        }
+        crowned += 2 + 2 * game.getDeck().size();
+        assertEquals(game.getCrownedPlayerIndex(), snapshot.get(crowned), "Offset should point at the crowned seat");
+        ByteBuffer corrupt = snapshot.duplicate();
+        corrupt.put(crowned, (byte) 9);
+        assertThrows(IllegalStateException.class, () -> GameSnapshot.read(other, corrupt, DistrictCatalog.standard()),
+            "A crowned seat past the table should be refused");
+        assertEquals(hash, other.getHash(), "A refused snapshot should keep the game");
+    }
+
+    /**
+     * Tests that the target count the engine and computers use matches the targets shown to players.
+     */
+    @Test
+    public void testAbilityTargetCountMatchesTargets() {
+        java.util.Set<CharacterRole> seen = java.util.EnumSet.noneOf(CharacterRole.class);
+        for (long seed = 26; seed < 31; seed++) {
+            Deck deck = new Deck(new SplittableRandom(seed));
+            deck.loadFromCatalog(DistrictCatalog.standard());
+            GameEngine game = new GameEngine(deck, newPlayers(5), null, new SplittableRandom(seed));
+            game.start();
+            while (!game.isGameOver()) {
+                if (game.getPhase() == GameEngine.Phase.SELECT_CHARACTER) {
+                    game.step(Action.selectCharacter(0));
+                    continue;
+                }
+                int count = game.getAbilityTargetCount();
+                assertEquals(game.getAbilityTargets().size(), count, "Count should match the described targets");
+                if (count > 0) {
+                    seen.add(game.getCurrentPlayer().getCharacter().getRole());
+                }
+                game.step(game.getComputer().chooseAction(game.getCurrentPlayer()));
+            }
+        }
+        assertTrue(seen.containsAll(List.of(CharacterRole.ASSASSIN, CharacterRole.THIEF, CharacterRole.WARLORD)),
+            "Every targeted ability should be checked, saw " + seen);
+    }
+
+    /**
+     * Tests that the actions of a targeted ability get distinct keys, and that every sampled world
+     * offers the viewer the same actions under the same keys, so search results can be merged.
+     */
+    @Test
+    public void testActionKeysMatchAcrossWorlds() {
+        Determinizer determinizer = new Determinizer(DistrictCatalog.standard());
+        SplittableRandom random = new SplittableRandom(32);
+        int checked = 0;
+        for (long seed = 32; seed < 36; seed++) {
+            Deck deck = new Deck(new SplittableRandom(seed));
+            deck.loadFromCatalog(DistrictCatalog.standard());
+            GameEngine game = new GameEngine(deck, newPlayers(5), null, new SplittableRandom(seed));
+            game.start();
+            while (!game.isGameOver()) {
+                if (game.getPhase() == GameEngine.Phase.SELECT_CHARACTER) {
+                    game.step(Action.selectCharacter(0));
+                    continue;
+                }
+                if (game.getAbilityTargetCount() > 1 && game.isLegal(Action.useAbility(0))) {
+                    GameState root = GameState.of(game);
+                    java.util.Set<Long> keys = new HashSet<>();
+                    for (Action action : root.getLegalActions()) {
+                        assertTrue(keys.add(root.getActionKey(action)), "Actions should have distinct keys");
+                    }
+                    for (int i = 0; i < 20; i++) {
+                        GameState world = determinizer.sample(root, root.getCurrentSeat(), random);
+                        for (Action action : world.getLegalActions()) {
+                            assertTrue(keys.contains(world.getActionKey(action)), "World actions should match root actions");
+                        }
+                    }
+                    checked++;
+                }
+                game.step(game.getComputer().chooseAction(game.getCurrentPlayer()));
+            }
+        }
+        assertTrue(checked > 0, "Some decision should have several targets");
+    }
+
+    /**
+     * Tests that closing a search stops its worker pool.
+     */
+    @Test
+    public void testClosedSearchStopsItsPool() {
+        Deck deck = new Deck(new SplittableRandom(36));
+        deck.loadFromCatalog(DistrictCatalog.standard());
+        GameEngine game = new GameEngine(deck, newPlayers(4), null, new SplittableRandom(36));
+        game.start();
+        MctsSearch search = new MctsSearch(20, 3, 4);
+        assertTrue(game.isLegal(search.choose(game)), "Search should choose a legal action");
+        search.close();
+        assertThrows(java.util.concurrent.RejectedExecutionException.class, () -> search.choose(game),
+            "A closed search should not start workers");
+    }
 }